@@ -0,0 +1,30 @@
+package io.ludovicianul.timi.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.Main;
+
+/**
+ * Runs JMH with its usual command line, but writes JSON results to {@code
+ * results/<timestamp>.json} unless {@code -rf}/{@code -rff} say otherwise, so every run leaves a
+ * file to compare against the next one.
+ */
+public final class BenchmarkMain {
+  private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+  private BenchmarkMain() {}
+
+  public static void main(String... args) throws Exception {
+    List<String> arguments = new ArrayList<>(List.of(args));
+    if (!arguments.contains("-rf") && !arguments.contains("-rff")) {
+      Path results = Files.createDirectories(Path.of("results"));
+      Path file = results.resolve(LocalDateTime.now().format(STAMP) + ".json");
+      arguments.addAll(List.of("-rf", "json", "-rff", file.toString()));
+    }
+    Main.main(arguments.toArray(String[]::new));
+  }
+}
@@ -0,0 +1,92 @@
+package io.ludovicianul.timi.benchmark;
+
+import io.ludovicianul.timi.config.ConfigManager;
+import io.ludovicianul.timi.git.ChangeTracker;
+import io.ludovicianul.timi.persistence.EntryStore;
+import io.ludovicianul.timi.persistence.JsonCodec;
+import io.ludovicianul.timi.persistence.TimeEntry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/** Builds stores outside of CDI for the benchmarks. */
+public final class BenchmarkStores {
+  private BenchmarkStores() {}
+
+  /**
+   * Points {@code user.home} at a new temporary directory and writes {@code entries} there the way
+   * timi lays them out: one snapshot per month with its sidecars, plus the index. Every type and
+   * tag used is registered in the config, as it would be for a real user.
+   */
+  public static Path createHome(List<TimeEntry> entries) {
+    try {
+      Path home = Files.createTempDirectory("timi-bench");
+      System.setProperty("user.home", home.toString());
+      Path entriesDir = Files.createDirectories(home.resolve(".timi").resolve("entries"));
+
+      EntryStore store = open();
+      Map<String, List<TimeEntry>> byMonth =
+          entries.stream()
+              .collect(
+                  Collectors.groupingBy(
+                      e -> e.startTime().toString().substring(0, 7),
+                      TreeMap::new,
+                      Collectors.toList()));
+      byMonth.forEach(
+          (month, monthEntries) ->
+              store.saveToFile(entriesDir.resolve(month + ".json"), monthEntries));
+      store.indexRebuild();
+
+      ConfigManager config = new ConfigManager(new JsonCodec());
+      for (TimeEntry entry : entries) {
+        config.addActivityType(entry.activityType());
+        entry.tags().forEach(config::addTag);
+        entry.metaTags().forEach(config::addMetaTag);
+      }
+      return home;
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to create benchmark home", e);
+    }
+  }
+
+  /** A store over the current {@code user.home}, with a fresh, empty month cache. */
+  public static EntryStore open() {
+    return open(null);
+  }
+
+  /** As {@link #open()}, reading settings such as the load parallelism from {@code config}. */
+  public static EntryStore open(ConfigManager config) {
+    return new EntryStore(new JsonCodec(), new ChangeTracker(), config);
+  }
+
+  /** Replaces the contents of {@code target} with a copy of {@code source}. */
+  public static void copyHome(Path source, Path target) {
+    deleteHome(target);
+    try (Stream<Path> paths = Files.walk(source)) {
+      for (Path path : paths.toList()) {
+        Path copy = target.resolve(source.relativize(path).toString());
+        if (Files.isDirectory(path)) {
+          Files.createDirectories(copy);
+        } else {
+          Files.copy(path, copy);
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to copy benchmark home", e);
+    }
+  }
+
+  public static void deleteHome(Path home) {
+    try (Stream<Path> paths = Files.walk(home)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to delete benchmark home", e);
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package io.ludovicianul.timi.benchmark;
+
+import io.ludovicianul.timi.persistence.JsonCodec;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end latency of real {@code timi} invocations, for the JVM jar and/or the native binary.
+ * Each target gets its own synthetic home, and every command runs {@code --runs} times after
+ * {@code --warmup} discarded runs. For each command it reports p50/p95 wall time, peak RSS, and
+ * bytes read and written as counted by {@code /proc} (Linux only).
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar io.ludovicianul.timi.benchmark.CliLatencyBenchmark \
+ *     --jvm ../target/timi-runner.jar --native ../target/timi-runner --runs 20
+ * </pre>
+ *
+ * <p>Each command runs under {@code sh}, which prints its own {@code /proc/<pid>/io} once the
+ * command has exited; the kernel adds a reaped child's I/O to its parent's counters. Peak RSS is
+ * the child's {@code VmHWM}, sampled every millisecond while it runs.
+ */
+public final class CliLatencyBenchmark {
+  private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+  private static final String WRAPPER =
+      "\"$@\" >/dev/null </dev/null; status=$?; cat /proc/$$/io; exit $status";
+
+  private record Command(String name, Function<Path, List<String>> args) {}
+
+  private record Sample(long nanos, long peakRssKb, long readBytes, long writtenBytes) {}
+
+  public record Result(
+      String target,
+      String command,
+      int runs,
+      double p50Ms,
+      double p95Ms,
+      long peakRssKbP50,
+      long readBytesP50,
+      long writtenBytesP50) {}
+
+  private static final List<Command> COMMANDS =
+      List.of(
+          new Command(
+              "add",
+              home -> List.of("add", "-d", "30", "-t", "work", "--tags", "java", "-n", "latency")),
+          new Command("list --today", home -> List.of("list", "--today")),
+          new Command("stats --weekly-breakdown", home -> List.of("stats", "--weekly-breakdown")),
+          new Command("analyze", home -> List.of("analyze")),
+          new Command(
+              "export",
+              home -> List.of("export", "-f", "csv", "-o", home.resolve("export.csv").toString())),
+          new Command("search --note", home -> List.of("search", "--note", "review")));
+
+  private CliLatencyBenchmark() {}
+
+  public static void main(String... args) throws Exception {
+    Map<String, String> options = parse(args);
+    int runs = Integer.parseInt(options.getOrDefault("--runs", "20"));
+    int warmup = Integer.parseInt(options.getOrDefault("--warmup", "2"));
+    int years = Integer.parseInt(options.getOrDefault("--years", "2"));
+    int entriesPerDay = Integer.parseInt(options.getOrDefault("--entries-per-day", "8"));
+
+    Map<String, Function<Path, List<String>>> targets = new LinkedHashMap<>();
+    if (options.containsKey("--jvm")) {
+      String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+      String jar = Path.of(options.get("--jvm")).toAbsolutePath().toString();
+      targets.put("jvm", home -> List.of(java, "-Duser.home=" + home, "-jar", jar));
+    }
+    if (options.containsKey("--native")) {
+      String binary = Path.of(options.get("--native")).toAbsolutePath().toString();
+      targets.put("native", home -> List.of(binary, "-Duser.home=" + home));
+    }
+    if (targets.isEmpty()) {
+      System.err.println(
+          "Usage: CliLatencyBenchmark [--jvm <timi-runner.jar>] [--native <timi-runner>]"
+              + " [--runs 20] [--warmup 2] [--years 2] [--entries-per-day 8] [--output file]");
+      System.exit(2);
+    }
+
+    List<Result> results = new ArrayList<>();
+    System.out.printf(
+        "%-7s %-26s %9s %9s %10s %12s %12s%n",
+        "TARGET", "COMMAND", "p50 ms", "p95 ms", "RSS MB", "READ KB", "WRITTEN KB");
+    for (var target : targets.entrySet()) {
+      Path home =
+          BenchmarkStores.createHome(
+              SyntheticData.generate(years, entriesPerDay, 42, LocalDate.now()));
+      try {
+        for (Command command : COMMANDS) {
+          List<String> commandLine = new ArrayList<>(target.getValue().apply(home));
+          commandLine.addAll(command.args().apply(home));
+          for (int i = 0; i < warmup; i++) {
+            run(commandLine, home);
+          }
+          List<Sample> samples = new ArrayList<>();
+          for (int i = 0; i < runs; i++) {
+            samples.add(run(commandLine, home));
+          }
+          Result result = summarize(target.getKey(), command.name(), samples);
+          results.add(result);
+          System.out.printf(
+              "%-7s %-26s %9.1f %9.1f %10.1f %12d %12d%n",
+              result.target(),
+              result.command(),
+              result.p50Ms(),
+              result.p95Ms(),
+              result.peakRssKbP50() / 1024.0,
+              result.readBytesP50() / 1024,
+              result.writtenBytesP50() / 1024);
+        }
+      } finally {
+        BenchmarkStores.deleteHome(home);
+      }
+    }
+
+    Path output =
+        Path.of(
+            options.getOrDefault(
+                "--output", "results/cli-" + LocalDateTime.now().format(STAMP) + ".json"));
+    Files.createDirectories(output.toAbsolutePath().getParent());
+    new JsonCodec()
+        .prettyWriter(Result[].class)
+        .writeValue(output.toFile(), results.toArray(Result[]::new));
+    System.out.println("Results written to " + output.toAbsolutePath());
+  }
+
+  private static Sample run(List<String> commandLine, Path home)
+      throws IOException, InterruptedException {
+    List<String> wrapped = new ArrayList<>(List.of("sh", "-c", WRAPPER, "sh"));
+    wrapped.addAll(commandLine);
+    File stderr = File.createTempFile("timi-bench", ".err");
+    try {
+      long start = System.nanoTime();
+      Process process =
+          new ProcessBuilder(wrapped).directory(home.toFile()).redirectError(stderr).start();
+      AtomicLong peakRssKb = new AtomicLong();
+      Thread sampler = Thread.ofPlatform().daemon().start(() -> sampleRss(process, peakRssKb));
+      String io = new String(process.getInputStream().readAllBytes());
+      int exitCode = process.waitFor();
+      long nanos = System.nanoTime() - start;
+      sampler.join();
+
+      if (exitCode != 0) {
+        throw new IllegalStateException(
+            String.format(
+                "`%s` exited with %d:%n%s",
+                String.join(" ", commandLine), exitCode, Files.readString(stderr.toPath())));
+      }
+      return new Sample(nanos, peakRssKb.get(), ioField(io, "rchar"), ioField(io, "wchar"));
+    } finally {
+      stderr.delete();
+    }
+  }
+
+  /** Follows the wrapper's child and keeps the last {@code VmHWM} it reported. */
+  private static void sampleRss(Process wrapper, AtomicLong peakRssKb) {
+    Optional<ProcessHandle> child = Optional.empty();
+    while (wrapper.isAlive()) {
+      if (child.isEmpty()) {
+        child = wrapper.toHandle().children().findFirst();
+      }
+      child.flatMap(handle -> vmHwmKb(handle.pid())).ifPresent(peakRssKb::set);
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private static Optional<Long> vmHwmKb(long pid) {
+    try (Stream<String> lines = Files.lines(Path.of("/proc", Long.toString(pid), "status"))) {
+      return lines
+          .filter(line -> line.startsWith("VmHWM:"))
+          .map(line -> Long.parseLong(line.replaceAll("\\D", "")))
+          .findFirst();
+    } catch (IOException | RuntimeException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static long ioField(String io, String field) {
+    return io.lines()
+        .filter(line -> line.startsWith(field + ":"))
+        .mapToLong(line -> Long.parseLong(line.substring(field.length() + 1).trim()))
+        .findFirst()
+        .orElse(-1);
+  }
+
+  private static Result summarize(String target, String command, List<Sample> samples) {
+    return new Result(
+        target,
+        command,
+        samples.size(),
+        percentile(samples, Sample::nanos, 50) / 1e6,
+        percentile(samples, Sample::nanos, 95) / 1e6,
+        percentile(samples, Sample::peakRssKb, 50),
+        percentile(samples, Sample::readBytes, 50),
+        percentile(samples, Sample::writtenBytes, 50));
+  }
+
+  /** Nearest-rank percentile. */
+  private static long percentile(
+      List<Sample> samples, Function<Sample, Long> metric, int percentile) {
+    long[] values = samples.stream().map(metric).mapToLong(Long::longValue).sorted().toArray();
+    int rank = (int) Math.ceil(percentile / 100.0 * values.length);
+    return values[Math.max(0, rank - 1)];
+  }
+
+  private static Map<String, String> parse(String[] args) {
+    Map<String, String> options = new LinkedHashMap<>();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      options.put(args[i], args[i + 1]);
+    }
+    return options;
+  }
+}
@@ -0,0 +1,154 @@
+package io.ludovicianul.timi.benchmark;
+
+import io.ludovicianul.timi.config.ConfigManager;
+import io.ludovicianul.timi.persistence.EntryStore;
+import io.ludovicianul.timi.persistence.JsonCodec;
+import io.ludovicianul.timi.persistence.TimeEntry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link EntryStore} operations over a synthetic history. "Cold" variants open a new store per
+ * call, like a one-shot CLI invocation; "warm" ones reuse it, like the daemon. Each runs with
+ * months loaded sequentially and in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntryStoreBenchmark {
+
+  @Param({"1", "5"})
+  int years;
+
+  @Param({"8"})
+  int entriesPerDay;
+
+  /** The {@code loadParallelism} setting: {@code 1} is sequential, {@code 0} one per CPU. */
+  @Param({"1", "0"})
+  int loadParallelism;
+
+  private Path home;
+  private ConfigManager config;
+  private EntryStore store;
+  private List<UUID> ids;
+  private String lastMonth;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    List<TimeEntry> entries = SyntheticData.generate(years, entriesPerDay, 42);
+    home = BenchmarkStores.createHome(entries);
+    config = new ConfigManager(new JsonCodec());
+    config.setLoadParallelism(loadParallelism);
+    store = BenchmarkStores.open(config);
+    ids = entries.stream().map(TimeEntry::id).toList();
+    lastMonth = SyntheticData.END.toString().substring(0, 7);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    BenchmarkStores.deleteHome(home);
+  }
+
+  /**
+   * The store that {@link #saveEntry} writes to. The home is put back before every iteration, so
+   * each one starts from the same history instead of the entries the previous ones added.
+   */
+  @State(Scope.Benchmark)
+  public static class Writes {
+    private Path pristine;
+    private EntryStore store;
+
+    @Setup(Level.Trial)
+    public void snapshot(EntryStoreBenchmark benchmark) throws IOException {
+      pristine = Files.createTempDirectory("timi-bench-pristine");
+      BenchmarkStores.copyHome(benchmark.home, pristine);
+    }
+
+    @Setup(Level.Iteration)
+    public void restore(EntryStoreBenchmark benchmark) {
+      BenchmarkStores.copyHome(pristine, benchmark.home);
+      store = BenchmarkStores.open(benchmark.config);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      BenchmarkStores.deleteHome(pristine);
+    }
+  }
+
+  @Benchmark
+  public void saveEntry(Writes writes) {
+    LocalDateTime start =
+        SyntheticData.END.atTime(9, 0).minusDays(ThreadLocalRandom.current().nextInt(28));
+    writes.store.saveEntry(
+        new TimeEntry(
+            UUID.randomUUID(), start, 30, "benchmark entry", "work", Set.of("java"), Set.of()));
+  }
+
+  @Benchmark
+  public Optional<TimeEntry> findByIdCold() {
+    return open().findById(randomId());
+  }
+
+  @Benchmark
+  public Optional<TimeEntry> findByIdWarm() {
+    return store.findById(randomId());
+  }
+
+  @Benchmark
+  public List<TimeEntry> loadAllEntriesCold() {
+    return open().loadAllEntries(null);
+  }
+
+  @Benchmark
+  public List<TimeEntry> loadAllEntriesWarm() {
+    return store.loadAllEntries(null);
+  }
+
+  @Benchmark
+  public List<TimeEntry> loadOneMonthCold() {
+    return open().loadAllEntries(lastMonth);
+  }
+
+  @Benchmark
+  public int indexRebuild() {
+    return store.indexRebuild();
+  }
+
+  @Benchmark
+  public List<String> validateIndex() {
+    return open().validateIndex();
+  }
+
+  private EntryStore open() {
+    return BenchmarkStores.open(config);
+  }
+
+  private UUID randomId() {
+    return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+  }
+}
@@ -0,0 +1,151 @@
+package io.ludovicianul.timi.benchmark;
+
+import io.ludovicianul.timi.command.AnalyzeCommand;
+import io.ludovicianul.timi.command.StatsCommand;
+import io.ludovicianul.timi.command.TimelineCommand;
+import io.ludovicianul.timi.config.ConfigManager;
+import io.ludovicianul.timi.console.Ansi;
+import io.ludovicianul.timi.persistence.EntryStore;
+import io.ludovicianul.timi.persistence.JsonCodec;
+import jakarta.inject.Inject;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import picocli.CommandLine;
+
+/**
+ * The aggregations behind {@code stats}, {@code timeline} and {@code analyze}, run end to end over
+ * the last year of a synthetic history. Commands are created through a picocli factory and parse
+ * their options exactly as on the command line; the rendered output is discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+  @Param({"1", "5"})
+  int years;
+
+  @Param({"8"})
+  int entriesPerDay;
+
+  /** {@code false} opens a new store per call (one-shot CLI), {@code true} reuses one (daemon). */
+  @Param({"false", "true"})
+  boolean reuseStore;
+
+  private Path home;
+  private EntryStore store;
+  private ConfigManager configManager;
+  private Ansi ansi;
+  private String from;
+  private String to;
+  private PrintStream stdout;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    home = BenchmarkStores.createHome(SyntheticData.generate(years, entriesPerDay, 42));
+    store = BenchmarkStores.open();
+    configManager = new ConfigManager(new JsonCodec());
+    ansi = new Ansi(configManager);
+    from = SyntheticData.END.minusYears(1).plusDays(1).toString();
+    to = SyntheticData.END.toString();
+
+    stdout = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    System.setOut(stdout);
+    BenchmarkStores.deleteHome(home);
+  }
+
+  @Benchmark
+  public void statsWeeklyBreakdown() {
+    run(StatsCommand.class, "--from", from, "--to", to, "--weekly-breakdown");
+  }
+
+  @Benchmark
+  public void statsByTag() {
+    run(StatsCommand.class, "--from", from, "--to", to, "--group-by", "tag");
+  }
+
+  @Benchmark
+  public void timelineWeeklyByTag() {
+    run(
+        TimelineCommand.class,
+        "--from",
+        from,
+        "--to",
+        to,
+        "--view",
+        "week",
+        "--group-by",
+        "tag");
+  }
+
+  @Benchmark
+  public void analyzeAll() {
+    run(
+        AnalyzeCommand.class,
+        "--context-switch",
+        "--focus-score",
+        "--dow-insights",
+        "--co-tags",
+        "--peak",
+        "--target",
+        "java",
+        "--by",
+        "week");
+  }
+
+  private void run(Class<? extends Runnable> command, String... args) {
+    EntryStore entryStore = reuseStore ? store : BenchmarkStores.open();
+    CommandLine commandLine =
+        new CommandLine(command, new BeanFactory(List.of(entryStore, configManager, ansi)));
+    commandLine.parseArgs(args);
+    commandLine.<Runnable>getCommand().run();
+  }
+
+  /**
+   * Stands in for the CDI factory: picocli creates the command and every {@code @Inject} field gets
+   * the bean of its type.
+   */
+  private record BeanFactory(List<Object> beans) implements CommandLine.IFactory {
+    @Override
+    public <K> K create(Class<K> type) throws Exception {
+      K instance = CommandLine.defaultFactory().create(type);
+      for (Field field : type.getDeclaredFields()) {
+        if (field.isAnnotationPresent(Inject.class)) {
+          Object bean =
+              beans.stream()
+                  .filter(field.getType()::isInstance)
+                  .findFirst()
+                  .orElseThrow(() -> new IllegalStateException("No bean for " + field));
+          field.setAccessible(true);
+          field.set(instance, bean);
+        }
+      }
+      return instance;
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package io.ludovicianul.timi.benchmark;
+
+import io.ludovicianul.timi.persistence.TimeEntry;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * Generates a deterministic history that looks like a real one: working days with a steady stream
+ * of entries, sparse weekends, a few dominant activity types, a long tail of tags and short free
+ * text notes. The same arguments always produce the same entries.
+ */
+public final class SyntheticData {
+  /** Default last day of a generated history, so runs on different dates stay comparable. */
+  public static final LocalDate END = LocalDate.of(2025, 12, 31);
+
+  private static final String[] TYPES = {"work", "meeting", "prep", "review", "learning"};
+  private static final int[] TYPE_WEIGHTS = {50, 25, 10, 10, 5};
+
+  private static final String[] TAGS = {
+    "java", "ops", "clientA", "clientB", "general", "backend", "frontend", "hiring", "oncall",
+    "planning", "docs", "infra", "security", "release", "support", "research", "design", "qa",
+    "mentoring", "budget", "vendor", "migration", "perf", "incident"
+  };
+  private static final double[] TAG_WEIGHTS = zipf(TAGS.length, 1.1);
+
+  private static final String[] META_TAGS = {"ai", "boring", "urgent"};
+
+  private static final String[] WORDS = {
+    "review", "fix", "deploy", "sync", "with", "team", "about", "the", "new", "release", "api",
+    "bug", "customer", "call", "planning", "sprint", "refactor", "tests", "pipeline", "failing",
+    "docs", "update", "design", "discussion", "latency", "dashboard", "alerts", "migration",
+    "database", "schema", "pairing", "interview", "candidate", "retro", "notes", "budget", "draft",
+    "proposal", "security", "patch", "cleanup", "backlog", "grooming", "incident", "postmortem",
+    "metrics", "cache", "index", "search", "export", "report", "weekly", "monthly", "roadmap"
+  };
+
+  private SyntheticData() {}
+
+  /**
+   * Entries for the {@code years} years ending on {@link #END}, averaging {@code entriesPerDay} on
+   * working days.
+   */
+  public static List<TimeEntry> generate(int years, int entriesPerDay, long seed) {
+    return generate(years, entriesPerDay, seed, END);
+  }
+
+  /** As {@link #generate(int, int, long)}, for the {@code years} years ending on {@code end}. */
+  public static List<TimeEntry> generate(int years, int entriesPerDay, long seed, LocalDate end) {
+    Random random = new Random(seed);
+    List<TimeEntry> entries = new ArrayList<>();
+    for (LocalDate day = end.minusYears(years).plusDays(1);
+        !day.isAfter(end);
+        day = day.plusDays(1)) {
+      int count = entriesFor(day, entriesPerDay, random);
+      LocalDateTime start = day.atTime(8, 0).plusMinutes(random.nextInt(90));
+      for (int i = 0; i < count; i++) {
+        String type = weighted(TYPES, TYPE_WEIGHTS, random);
+        int duration = durationFor(type, random);
+        entries.add(
+            new TimeEntry(
+                new UUID(random.nextLong(), random.nextLong()),
+                start,
+                duration,
+                note(random),
+                type,
+                tags(random),
+                metaTags(random)));
+        start = start.plusMinutes(duration + random.nextInt(20));
+      }
+    }
+    return entries;
+  }
+
+  private static int entriesFor(LocalDate day, int entriesPerDay, Random random) {
+    boolean weekend =
+        day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY;
+    if (weekend) {
+      return random.nextInt(100) < 15 ? 1 + random.nextInt(2) : 0;
+    }
+    int spread = Math.max(1, entriesPerDay / 2);
+    return Math.max(1, entriesPerDay - spread + random.nextInt(2 * spread + 1));
+  }
+
+  private static int durationFor(String type, Random random) {
+    if (type.equals("meeting")) {
+      return random.nextInt(100) < 60 ? 30 : 60;
+    }
+    int minutes = (int) Math.round(-Math.log(1 - random.nextDouble()) * 60);
+    return Math.clamp(minutes / 5 * 5, 5, 300);
+  }
+
+  private static String note(Random random) {
+    if (random.nextInt(100) < 20) {
+      return "";
+    }
+    StringJoiner note = new StringJoiner(" ");
+    int words = 4 + random.nextInt(9);
+    for (int i = 0; i < words; i++) {
+      note.add(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return note.toString();
+  }
+
+  private static Set<String> tags(Random random) {
+    int roll = random.nextInt(100);
+    int count = roll < 10 ? 0 : roll < 55 ? 1 : roll < 85 ? 2 : 3;
+    Set<String> tags = new LinkedHashSet<>();
+    while (tags.size() < count) {
+      tags.add(TAGS[pick(TAG_WEIGHTS, random)]);
+    }
+    return tags;
+  }
+
+  private static Set<String> metaTags(Random random) {
+    Set<String> metaTags = new LinkedHashSet<>();
+    for (String metaTag : META_TAGS) {
+      if (random.nextInt(100) < 10) {
+        metaTags.add(metaTag);
+      }
+    }
+    return metaTags;
+  }
+
+  private static String weighted(String[] values, int[] weights, Random random) {
+    int roll = random.nextInt(100);
+    for (int i = 0; i < values.length; i++) {
+      roll -= weights[i];
+      if (roll < 0) {
+        return values[i];
+      }
+    }
+    return values[values.length - 1];
+  }
+
+  /** Cumulative Zipf weights: the first tags are used far more than the tail. */
+  private static double[] zipf(int size, double exponent) {
+    double[] cumulative = new double[size];
+    double total = 0;
+    for (int rank = 1; rank <= size; rank++) {
+      total += 1 / Math.pow(rank, exponent);
+      cumulative[rank - 1] = total;
+    }
+    for (int i = 0; i < size; i++) {
+      cumulative[i] /= total;
+    }
+    return cumulative;
+  }
+
+  private static int pick(double[] cumulative, Random random) {
+    double roll = random.nextDouble();
+    for (int i = 0; i < cumulative.length; i++) {
+      if (roll < cumulative[i]) {
+        return i;
+      }
+    }
+    return cumulative.length - 1;
+  }
+}
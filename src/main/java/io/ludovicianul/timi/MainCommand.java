@@ -6,6 +6,7 @@ import io.ludovicianul.timi.command.AnalyzeCommand;
 import io.ludovicianul.timi.command.AuditCommand;
 import io.ludovicianul.timi.command.BatchCommand;
 import io.ludovicianul.timi.command.ConfigCommand;
+import io.ludovicianul.timi.command.DaemonCommand;
 import io.ludovicianul.timi.command.DashboardCommand;
 import io.ludovicianul.timi.command.DeleteCommand;
 import io.ludovicianul.timi.command.EditCommand;
@@ -26,6 +27,7 @@ import io.ludovicianul.timi.command.TemplateCommand;
 import io.ludovicianul.timi.command.TimelineCommand;
 import io.ludovicianul.timi.command.UndoCommand;
 import io.ludovicianul.timi.command.ZenCommand;
+import io.ludovicianul.timi.util.StartupProfiler;
 import io.ludovicianul.timi.version.VersionProvider;
 import io.quarkus.picocli.runtime.annotations.TopCommand;
 import org.slf4j.Logger;
@@ -64,6 +66,7 @@ import picocli.CommandLine;
       StartCommand.class,
       StopCommand.class,
       StatusCommand.class,
+      DaemonCommand.class,
       AutoComplete.GenerateCompletion.class
     },
     description = "Time unit tracker for daily activities")
@@ -71,6 +74,16 @@ import picocli.CommandLine;
 public class MainCommand implements Runnable {
   private static final Logger logger = LoggerFactory.getLogger(MainCommand.class);
 
+  @CommandLine.Option(
+      names = "--profile-startup",
+      scope = CommandLine.ScopeType.INHERIT,
+      description = "Print where the time went (boot, bean loading, command, flush) to stderr")
+  void setProfileStartup(boolean enabled) {
+    if (enabled) {
+      StartupProfiler.enable();
+    }
+  }
+
   @Override
   public void run() {
     logger.debug("Starting timi");
@@ -0,0 +1,52 @@
+package io.ludovicianul.timi;
+
+import io.ludovicianul.timi.daemon.DaemonClient;
+import io.ludovicianul.timi.git.GitManager;
+import io.ludovicianul.timi.util.StartupProfiler;
+import io.quarkus.runtime.Quarkus;
+import io.quarkus.runtime.QuarkusApplication;
+import io.quarkus.runtime.annotations.QuarkusMain;
+import jakarta.inject.Inject;
+import java.util.OptionalInt;
+import picocli.CommandLine;
+
+/**
+ * Entry point. When a {@code timi daemon} is listening the command line is handed to it without
+ * booting Quarkus; otherwise the command runs in this process as usual.
+ */
+@QuarkusMain
+public class TimiMain implements QuarkusApplication {
+  @Inject CommandLine.IFactory factory;
+  @Inject GitManager gitManager;
+
+  public static void main(String... args) {
+    StartupProfiler.mainStarted(args);
+    OptionalInt exitCode = DaemonClient.run(args);
+    if (exitCode.isPresent()) {
+      System.exit(exitCode.getAsInt());
+    }
+    Quarkus.run(TimiMain.class, args);
+  }
+
+  @Override
+  public int run(String... args) {
+    StartupProfiler.record("Quarkus boot", StartupProfiler.mainStart());
+
+    long start = System.nanoTime();
+    int exitCode = new CommandLine(MainCommand.class, factory).execute(args);
+    StartupProfiler.record("Command execution", start);
+
+    start = System.nanoTime();
+    System.out.flush();
+    StartupProfiler.record("Output flush", start);
+
+    if (StartupProfiler.isEnabled()) {
+      // Normally drained on shutdown; done here so the cost shows up in the report.
+      start = System.nanoTime();
+      gitManager.flush();
+      StartupProfiler.record("Pending git commits", start);
+      StartupProfiler.report(System.err);
+    }
+    return exitCode;
+  }
+}
@@ -0,0 +1,115 @@
+package io.ludovicianul.timi.analytics;
+
+import io.ludovicianul.timi.persistence.MonthSegment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Computes any number of metrics over the entries in a single traversal. A metric is shaped like a
+ * {@link java.util.stream.Collector}, except that it is fed rows of a {@link MonthSegment} rather
+ * than entries, so it reads primitive columns and store-wide symbol IDs and no entry object is
+ * built. {@link #register} hands back a {@link Metric} whose value is available once {@link #run}
+ * has finished.
+ *
+ * <p>Every month is accumulated on its own, optionally in parallel, and the per-month results are
+ * combined in month order, so a metric sees its input in the same order as a sequential pass would
+ * feed it.
+ */
+public final class MetricEngine {
+  private final List<Registered<?, ?>> metrics = new ArrayList<>();
+
+  /** Adds row {@code i} of {@code month} to a metric's container. */
+  @FunctionalInterface
+  public interface RowAccumulator<A> {
+    void accept(A container, MonthSegment month, int i);
+  }
+
+  /** The result of one registered metric. */
+  public static final class Metric<R> {
+    private R value;
+    private boolean done;
+
+    public R get() {
+      if (!done) {
+        throw new IllegalStateException("Metric read before MetricEngine.run()");
+      }
+      return value;
+    }
+  }
+
+  public <A, R> Metric<R> register(
+      Supplier<A> supplier,
+      RowAccumulator<A> accumulator,
+      BinaryOperator<A> combiner,
+      Function<A, R> finisher) {
+    Registered<A, R> registered =
+        new Registered<>(supplier, accumulator, combiner, finisher, new Metric<>());
+    metrics.add(registered);
+    return registered.metric();
+  }
+
+  public <A> Metric<A> register(
+      Supplier<A> supplier, RowAccumulator<A> accumulator, BinaryOperator<A> combiner) {
+    return register(supplier, accumulator, combiner, Function.identity());
+  }
+
+  /** Feeds every row of {@code months} to every registered metric, in one pass. */
+  public void run(List<MonthSegment> months, boolean parallel) {
+    Stream<MonthSegment> stream = parallel ? months.parallelStream() : months.stream();
+    Object[] containers = stream.map(this::accumulate).reduce(this::combine).orElseGet(this::start);
+    for (int i = 0; i < metrics.size(); i++) {
+      metrics.get(i).finish(containers[i]);
+    }
+  }
+
+  private Object[] start() {
+    Object[] containers = new Object[metrics.size()];
+    for (int i = 0; i < containers.length; i++) {
+      containers[i] = metrics.get(i).supplier().get();
+    }
+    return containers;
+  }
+
+  private Object[] accumulate(MonthSegment month) {
+    Object[] containers = start();
+    for (int row = 0; row < month.size(); row++) {
+      for (int i = 0; i < containers.length; i++) {
+        metrics.get(i).accumulate(containers[i], month, row);
+      }
+    }
+    return containers;
+  }
+
+  private Object[] combine(Object[] earlier, Object[] later) {
+    for (int i = 0; i < earlier.length; i++) {
+      earlier[i] = metrics.get(i).combine(earlier[i], later[i]);
+    }
+    return earlier;
+  }
+
+  /** A metric with its container type erased, so metrics of different types share a pass. */
+  @SuppressWarnings("unchecked")
+  private record Registered<A, R>(
+      Supplier<A> supplier,
+      RowAccumulator<A> accumulator,
+      BinaryOperator<A> combiner,
+      Function<A, R> finisher,
+      Metric<R> metric) {
+    void accumulate(Object container, MonthSegment month, int row) {
+      accumulator.accept((A) container, month, row);
+    }
+
+    Object combine(Object earlier, Object later) {
+      return combiner.apply((A) earlier, (A) later);
+    }
+
+    void finish(Object container) {
+      metric.value = finisher.apply((A) container);
+      metric.done = true;
+    }
+  }
+}
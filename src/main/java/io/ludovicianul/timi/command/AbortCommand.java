@@ -1,6 +1,7 @@
 package io.ludovicianul.timi.command;
 
 import io.ludovicianul.timi.persistence.session.SessionManager;
+import jakarta.inject.Inject;
 import picocli.CommandLine.*;
 
 @Command(
@@ -9,7 +10,7 @@ import picocli.CommandLine.*;
     mixinStandardHelpOptions = true)
 public class AbortCommand implements Runnable {
 
-  private final SessionManager sessionManager = new SessionManager();
+  @Inject SessionManager sessionManager;
 
   @Override
   public void run() {
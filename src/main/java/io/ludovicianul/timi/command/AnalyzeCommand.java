@@ -2,15 +2,19 @@ package io.ludovicianul.timi.command;
 
 import static io.ludovicianul.timi.util.Utils.formatMinutes;
 
+import io.ludovicianul.timi.analytics.MetricEngine;
+import io.ludovicianul.timi.analytics.MetricEngine.Metric;
 import io.ludovicianul.timi.config.ConfigManager;
 import io.ludovicianul.timi.persistence.EntryStore;
-import io.ludovicianul.timi.persistence.TimeEntry;
+import io.ludovicianul.timi.persistence.MonthSegment;
+import io.ludovicianul.timi.persistence.SymbolTable;
+import io.ludovicianul.timi.persistence.TermFilter;
 import jakarta.inject.Inject;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.temporal.WeekFields;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 import picocli.CommandLine.*;
 
 @Command(
@@ -57,107 +61,272 @@ public class AnalyzeCommand implements Runnable {
     week
   }
 
+  /** Period labels by date, shared by the per-month accumulators. */
+  private final Map<LocalDate, String> periodKeys = new ConcurrentHashMap<>();
+
+  private SymbolTable symbols;
+
   @Override
   public void run() {
-    List<TimeEntry> entries = entryStore.loadAllEntries(null);
-
-    if (entries.isEmpty()) {
+    boolean summary = !contextSwitch && !peak && !focusScore && !dowInsights && !coTags;
+    boolean peakOnly =
+        peak && target != null && !contextSwitch && !focusScore && !dowInsights && !coTags;
+    // A lone peak report only needs the months the term index lists the target in.
+    List<MonthSegment> months =
+        peakOnly
+            ? entryStore.loadSegmentsMatching(
+                List.of(TermFilter.type(target), TermFilter.tag(target)))
+            : entryStore.loadSegments((String) null);
+    boolean empty =
+        peakOnly ? !entryStore.hasEntries() : months.stream().allMatch(month -> month.size() == 0);
+    if (empty) {
       System.out.println("📭 No entries found.");
       return;
     }
 
+    symbols = entryStore.symbols();
+    MetricEngine engine = new MetricEngine();
+    var switches = contextSwitch ? contextSwitches(engine) : null;
+    var peakUsage = peak && target != null ? peakUsage(engine, target) : null;
+    var days = focusScore || summary ? days(engine) : null;
+    var usage = summary ? usage(engine) : null;
+    var weekdays = dowInsights ? dayOfWeekTotals(engine) : null;
+    var pairs = coTags && forTag == null ? tagPairs(engine) : null;
+    var pairedWith = coTags && forTag != null ? tagsPairedWith(engine, forTag) : null;
+    engine.run(months, configManager.getLoadParallelism() != 1);
+
     if (contextSwitch) {
-      analyzeContextSwitch(entries);
+      printContextSwitch(switches.get());
     }
     if (peak && target != null) {
-      analyzePeakUsage(entries, target.toLowerCase());
+      printPeakUsage(peakUsage.get(), target.toLowerCase());
     } else if (peak) {
       System.out.println("❌ Please provide a target for peak analysis.");
       return;
     }
     if (focusScore) {
-      analyzeDeepVsShallow(entries);
+      printDeepVsShallow(days.get());
     }
     if (dowInsights) {
-      analyzeDayOfWeekInsights(entries);
+      printDayOfWeekInsights(weekdays.get());
     }
-    if (coTags) {
-      analyzeCoTags(entries);
+    if (coTags && forTag == null) {
+      printTagPairs(pairs.get());
+    } else if (coTags) {
+      printTagsPairedWith(pairedWith.get());
     }
-    if (!contextSwitch && !peak && !focusScore && !dowInsights && !coTags) {
-      summarize(entries);
-      analyzeDeepVsShallow(entries);
+    if (summary) {
+      printSummary(usage.get(), days.get());
+      printDeepVsShallow(days.get());
     }
   }
 
-  private void analyzeCoTags(List<TimeEntry> entries) {
-    System.out.println("\n📎 Co-Tag Analysis");
+  // The metrics below keep keys in first-seen order while accumulating and finish into plain hash
+  // maps filled in that order, so ties in the sorted output, and the day order of the deep work
+  // report, come out exactly as when every report streamed the entries on its own. Types and tags
+  // are compared by their store-wide symbol ID and only turned back into names when finishing.
+
+  /** Per day or week, the distinct tags and types. */
+  private Metric<Map<String, Set<String>>> contextSwitches(MetricEngine engine) {
+    return engine.<Map<String, Set<Integer>>, Map<String, Set<String>>>register(
+        LinkedHashMap::new,
+        (periods, month, i) -> {
+          Set<Integer> seen =
+              periods.computeIfAbsent(periodKey(month.date(i)), k -> new LinkedHashSet<>());
+          for (int k = 0; k < month.tagCount(i); k++) {
+            seen.add(month.tagSymbol(i, k));
+          }
+          seen.add(month.typeSymbol(i));
+        },
+        (earlier, later) -> {
+          later.forEach(
+              (period, seen) ->
+                  earlier.merge(
+                      period,
+                      seen,
+                      (a, b) -> {
+                        a.addAll(b);
+                        return a;
+                      }));
+          return earlier;
+        },
+        periods -> {
+          Map<String, Set<String>> result = new TreeMap<>();
+          periods.forEach((period, seen) -> result.put(period, names(seen)));
+          return result;
+        });
+  }
 
-    Map<Set<String>, Integer> pairCounts = new HashMap<>();
-    Map<String, Map<String, Integer>> coTagMap = new HashMap<>();
+  /** Per day or week, the minutes spent on entries tagged or typed {@code target}. */
+  private Metric<Map<String, Integer>> peakUsage(MetricEngine engine, String target) {
+    int wanted = symbols.id(target);
+    return engine.<Map<String, Integer>>register(
+        TreeMap::new,
+        (periods, month, i) -> {
+          if (month.typeSymbol(i) == wanted || month.hasTagSymbol(i, wanted)) {
+            periods.merge(periodKey(month.date(i)), month.duration(i), Integer::sum);
+          }
+        },
+        (earlier, later) -> {
+          later.forEach((period, minutes) -> earlier.merge(period, minutes, Integer::sum));
+          return earlier;
+        });
+  }
 
-    for (TimeEntry e : entries) {
-      List<String> tags = new ArrayList<>(e.tags());
-      if (forTag != null && tags.stream().noneMatch(t -> t.equalsIgnoreCase(forTag))) {
-        continue;
-      }
+  /** Per day, the distinct activity types and the total minutes. */
+  private Metric<Map<LocalDate, Day>> days(MetricEngine engine) {
+    return engine.<Map<LocalDate, Day>, Map<LocalDate, Day>>register(
+        LinkedHashMap::new,
+        (days, month, i) -> {
+          Day day = days.computeIfAbsent(month.date(i), d -> new Day());
+          day.types.set(month.typeSymbol(i));
+          day.minutes += month.duration(i);
+        },
+        (earlier, later) -> {
+          later.forEach(
+              (date, day) ->
+                  earlier.merge(
+                      date,
+                      day,
+                      (a, b) -> {
+                        a.types.or(b.types);
+                        a.minutes += b.minutes;
+                        return a;
+                      }));
+          return earlier;
+        },
+        AnalyzeCommand::hashed);
+  }
 
-      for (int i = 0; i < tags.size(); i++) {
-        for (int j = i + 1; j < tags.size(); j++) {
-          String t1 = tags.get(i).toLowerCase();
-          String t2 = tags.get(j).toLowerCase();
+  /** Uses of every tag and type, and the total minutes. */
+  private Metric<Usage> usage(MetricEngine engine) {
+    return engine.register(
+        Usage::new,
+        (usage, month, i) -> {
+          for (int k = 0; k < month.tagCount(i); k++) {
+            usage.tags.add(month.tagSymbol(i, k));
+          }
+          usage.types.add(month.typeSymbol(i));
+          usage.minutes += month.duration(i);
+        },
+        (earlier, later) -> {
+          earlier.tags.addAll(later.tags);
+          earlier.types.addAll(later.types);
+          earlier.minutes += later.minutes;
+          return earlier;
+        });
+  }
 
-          Set<String> pair = new TreeSet<>(Set.of(t1, t2));
-          pairCounts.merge(pair, 1, Integer::sum);
+  private Metric<Map<DayOfWeek, Integer>> dayOfWeekTotals(MetricEngine engine) {
+    return engine.<Map<DayOfWeek, Integer>>register(
+        TreeMap::new,
+        (totals, month, i) ->
+            totals.merge(month.date(i).getDayOfWeek(), month.duration(i), Integer::sum),
+        (earlier, later) -> {
+          later.forEach((dow, minutes) -> earlier.merge(dow, minutes, Integer::sum));
+          return earlier;
+        });
+  }
 
-          // For directed co-tag display
-          coTagMap.putIfAbsent(t1, new HashMap<>());
-          coTagMap.get(t1).merge(t2, 1, Integer::sum);
+  /**
+   * How often each pair of tags appears on the same entry, keyed by the two names in alphabetical
+   * order. Only pairs that occur are counted, keyed by the smaller ID and the larger one packed
+   * into a long.
+   */
+  private Metric<Map<String, Integer>> tagPairs(MetricEngine engine) {
+    return engine.<Map<Long, Integer>, Map<String, Integer>>register(
+        HashMap::new,
+        (pairs, month, i) -> {
+          int[] tags = distinctTagSymbols(month, i);
+          for (int a = 0; a < tags.length; a++) {
+            for (int b = a + 1; b < tags.length; b++) {
+              pairs.merge(pairKey(tags[a], tags[b]), 1, Integer::sum);
+            }
+          }
+        },
+        (earlier, later) -> {
+          later.forEach((pair, count) -> earlier.merge(pair, count, Integer::sum));
+          return earlier;
+        },
+        pairs -> {
+          Map<String, Integer> result = new HashMap<>();
+          pairs.forEach(
+              (pair, count) -> {
+                String x = symbols.name((int) (pair >>> 32));
+                String y = symbols.name(pair.intValue());
+                result.put(x.compareTo(y) <= 0 ? x + ", " + y : y + ", " + x, count);
+              });
+          return result;
+        });
+  }
 
-          coTagMap.putIfAbsent(t2, new HashMap<>());
-          coTagMap.get(t2).merge(t1, 1, Integer::sum);
-        }
-      }
-    }
+  private static long pairKey(int x, int y) {
+    return (long) Math.min(x, y) << 32 | Math.max(x, y);
+  }
 
-    if (forTag != null) {
-      System.out.printf("\nTags commonly paired with '%s':\n\n", forTag);
-      coTagMap.getOrDefault(forTag.toLowerCase(), Map.of()).entrySet().stream()
-          .filter(e -> e.getValue() >= minOccurrence)
-          .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-          .forEach(e -> System.out.printf("  %s (%d)\n", e.getKey(), e.getValue()));
-    } else {
-      System.out.printf("\nTop co-occurring tag pairs (min %d):\n\n", minOccurrence);
-      System.out.printf("  %-30s %s\n", "Tag Pair", "Occurrences");
-      System.out.println("  " + "-".repeat(44));
-
-      pairCounts.entrySet().stream()
-          .filter(e -> e.getValue() >= minOccurrence)
-          .sorted(Map.Entry.<Set<String>, Integer>comparingByValue().reversed())
-          .limit(20)
-          .forEach(
-              e -> {
-                String pair = String.join(", ", e.getKey());
-                System.out.printf("  %-30s %d\n", pair, e.getValue());
-              });
-    }
+  /** How often each other tag appears on an entry alongside {@code tag}. */
+  private Metric<Map<String, Long>> tagsPairedWith(MetricEngine engine, String tag) {
+    int wanted = symbols.id(tag);
+    return engine.<Counts, Map<String, Long>>register(
+        Counts::new,
+        (paired, month, i) -> {
+          if (!month.hasTagSymbol(i, wanted)) {
+            return;
+          }
+          for (int other : distinctTagSymbols(month, i)) {
+            if (other != wanted) {
+              paired.add(other);
+            }
+          }
+        },
+        Counts::addAll,
+        paired -> paired.toMap(symbols));
   }
 
-  private void analyzeContextSwitch(List<TimeEntry> entries) {
-    System.out.printf("\n📊 Context Switching Analysis by %s%n%n", by.name().toUpperCase());
+  /** The tag IDs of entry {@code i} in their stored order, with spellings of one name merged. */
+  private static int[] distinctTagSymbols(MonthSegment month, int i) {
+    int[] tags = new int[month.tagCount(i)];
+    int size = 0;
+    for (int k = 0; k < tags.length; k++) {
+      int tag = month.tagSymbol(i, k);
+      boolean seen = false;
+      for (int j = 0; j < size && !seen; j++) {
+        seen = tags[j] == tag;
+      }
+      if (!seen) {
+        tags[size++] = tag;
+      }
+    }
+    return size == tags.length ? tags : Arrays.copyOf(tags, size);
+  }
 
-    Map<String, Set<String>> grouped = new TreeMap<>();
+  private void printTagPairs(Map<String, Integer> pairCounts) {
+    System.out.println("\n📎 Co-Tag Analysis");
+    System.out.printf("\nTop co-occurring tag pairs (min %d):\n\n", minOccurrence);
+    System.out.printf("  %-30s %s\n", "Tag Pair", "Occurrences");
+    System.out.println("  " + "-".repeat(44));
+
+    pairCounts.entrySet().stream()
+        .filter(e -> e.getValue() >= minOccurrence)
+        .sorted(
+            Map.Entry.<String, Integer>comparingByValue()
+                .reversed()
+                .thenComparing(Map.Entry.comparingByKey()))
+        .limit(20)
+        .forEach(e -> System.out.printf("  %-30s %d\n", e.getKey(), e.getValue()));
+  }
 
-    for (TimeEntry e : entries) {
-      String key =
-          by == SplitBy.week
-              ? getWeekKey(e.startTime().toLocalDate())
-              : e.startTime().toLocalDate().toString();
+  private void printTagsPairedWith(Map<String, Long> pairedWith) {
+    System.out.println("\n📎 Co-Tag Analysis");
+    System.out.printf("\nTags commonly paired with '%s':\n\n", forTag);
+    pairedWith.entrySet().stream()
+        .filter(e -> e.getValue() >= minOccurrence)
+        .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+        .forEach(e -> System.out.printf("  %s (%d)\n", e.getKey(), e.getValue()));
+  }
 
-      grouped.putIfAbsent(key, new HashSet<>());
-      grouped.get(key).addAll(e.tags().stream().map(String::toLowerCase).toList());
-      grouped.get(key).add(e.activityType().toLowerCase());
-    }
+  private void printContextSwitch(Map<String, Set<String>> grouped) {
+    System.out.printf("\n📊 Context Switching Analysis by %s%n%n", by.name().toUpperCase());
 
     grouped.entrySet().stream()
         .sorted((a, b) -> Integer.compare(b.getValue().size(), a.getValue().size()))
@@ -169,95 +338,38 @@ public class AnalyzeCommand implements Runnable {
                     entry.getKey(), entry.getValue().size(), String.join(", ", entry.getValue())));
   }
 
-  private void analyzePeakUsage(List<TimeEntry> entries, String target) {
+  private void printPeakUsage(Map<String, Integer> grouped, String target) {
     System.out.printf("\n📊 Peak Usage for '%s'%n%n", target);
 
-    Map<String, Integer> grouped = new TreeMap<>();
-
-    for (TimeEntry e : entries) {
-      String key =
-          by == SplitBy.week
-              ? getWeekKey(e.startTime().toLocalDate())
-              : e.startTime().toLocalDate().toString();
-
-      boolean matches =
-          e.tags().stream().anyMatch(t -> t.equalsIgnoreCase(target))
-              || e.activityType().equalsIgnoreCase(target);
-
-      if (matches) {
-        grouped.merge(key, e.durationMinutes(), Integer::sum);
-      }
-    }
-
     grouped.entrySet().stream()
         .sorted((a, b) -> Integer.compare(b.getValue(), a.getValue()))
         .limit(10)
         .forEach(e -> System.out.printf("%s → %s%n", e.getKey(), formatMinutes(e.getValue())));
   }
 
-  private void summarize(List<TimeEntry> entries) {
+  private void printSummary(Usage usage, Map<LocalDate, Day> days) {
     System.out.println("\n📈 Overall Summary\n");
 
-    Set<String> allTags =
-        entries.stream()
-            .flatMap(e -> e.tags().stream())
-            .map(String::toLowerCase)
-            .collect(Collectors.toSet());
-
-    Set<String> allTypes =
-        entries.stream().map(e -> e.activityType().toLowerCase()).collect(Collectors.toSet());
-
-    Map<LocalDate, List<TimeEntry>> byDay =
-        entries.stream().collect(Collectors.groupingBy(e -> e.startTime().toLocalDate()));
-
-    int totalMinutes = entries.stream().mapToInt(TimeEntry::durationMinutes).sum();
-    double avgDaily = totalMinutes / (double) byDay.size();
-
-    TimeEntry longestDay =
-        entries.stream()
-            .collect(
-                Collectors.groupingBy(
-                    e -> e.startTime().toLocalDate(),
-                    Collectors.summingInt(TimeEntry::durationMinutes)))
-            .entrySet()
-            .stream()
-            .max(Map.Entry.comparingByValue())
-            .map(
-                e ->
-                    new TimeEntry(
-                        null,
-                        e.getKey().atStartOfDay(),
-                        e.getValue(),
-                        null,
-                        "",
-                        Set.of(),
-                        Set.of()))
-            .orElse(null);
-
-    var mostCommonTag =
-        entries.stream()
-            .flatMap(e -> e.tags().stream())
-            .collect(Collectors.groupingBy(String::toLowerCase, Collectors.counting()))
-            .entrySet()
-            .stream()
-            .max(Map.Entry.comparingByValue());
-
-    var mostCommonType =
-        entries.stream()
-            .map(TimeEntry::activityType)
-            .collect(Collectors.groupingBy(String::toLowerCase, Collectors.counting()))
-            .entrySet()
-            .stream()
-            .max(Map.Entry.comparingByValue());
-
-    System.out.printf("• Unique Tags: %d%n", allTags.size());
-    System.out.printf("• Unique Activity Types: %d%n", allTypes.size());
+    double avgDaily = usage.minutes / (double) days.size();
+    Map.Entry<LocalDate, Day> longestDay = null;
+    for (Map.Entry<LocalDate, Day> day : days.entrySet()) {
+      if (longestDay == null || day.getValue().minutes > longestDay.getValue().minutes) {
+        longestDay = day;
+      }
+    }
+    Map<String, Long> tags = usage.tags.toMap(symbols);
+    Map<String, Long> types = usage.types.toMap(symbols);
+    var mostCommonTag = tags.entrySet().stream().max(Map.Entry.comparingByValue());
+    var mostCommonType = types.entrySet().stream().max(Map.Entry.comparingByValue());
+
+    System.out.printf("• Unique Tags: %d%n", tags.size());
+    System.out.printf("• Unique Activity Types: %d%n", types.size());
     System.out.printf("• Avg Daily Time: %s%n", formatMinutes((int) avgDaily));
 
     if (longestDay != null) {
       System.out.printf(
           "• Max Time in a Day: %s (%s)%n",
-          formatMinutes(longestDay.durationMinutes()), longestDay.startTime().toLocalDate());
+          formatMinutes(longestDay.getValue().minutes), longestDay.getKey());
     }
 
     mostCommonTag.ifPresent(
@@ -267,29 +379,20 @@ public class AnalyzeCommand implements Runnable {
         e -> System.out.printf("• Most Common Activity: %s (%d uses)%n", e.getKey(), e.getValue()));
   }
 
-  private void analyzeDeepVsShallow(List<TimeEntry> entries) {
+  private void printDeepVsShallow(Map<LocalDate, Day> days) {
     System.out.println("\n🧠 Deep vs Shallow Work Analysis\n");
 
-    Map<LocalDate, List<TimeEntry>> byDay =
-        entries.stream().collect(Collectors.groupingBy(e -> e.startTime().toLocalDate()));
-
-    for (var entry : byDay.entrySet()) {
+    for (var entry : days.entrySet()) {
       LocalDate date = entry.getKey();
-      List<TimeEntry> logs = entry.getValue();
-      Set<String> uniqueTypes =
-          logs.stream()
-              .map(TimeEntry::activityType)
-              .map(String::toLowerCase)
-              .collect(Collectors.toSet());
-      int total = logs.stream().mapToInt(TimeEntry::durationMinutes).sum();
+      Day day = entry.getValue();
 
       String profile =
-          uniqueTypes.size() <= configManager.getDeepWorkValue()
+          day.types.cardinality() <= configManager.getDeepWorkValue()
               ? "🔵 Deep Work"
-              : uniqueTypes.size() <= configManager.getFocusedWorkValue()
+              : day.types.cardinality() <= configManager.getFocusedWorkValue()
                   ? "🟡 Focused"
                   : "🔴 Context Switching";
-      System.out.printf("%s → %s (%s)%n", date, profile, formatMinutes(total));
+      System.out.printf("%s → %s (%s)%n", date, profile, formatMinutes(day.minutes));
     }
     System.out.printf(
         "%n🔵 Deep Work <= %s types; 🟡 Focused <= %s types; 🔴 Context Switching > %s types",
@@ -298,19 +401,87 @@ public class AnalyzeCommand implements Runnable {
         configManager.getFocusedWorkValue());
   }
 
-  private void analyzeDayOfWeekInsights(List<TimeEntry> entries) {
+  private void printDayOfWeekInsights(Map<DayOfWeek, Integer> dowTotals) {
     System.out.println("\n📆 Day of Week Insights\n");
 
-    Map<DayOfWeek, Integer> dowTotals = new TreeMap<>();
-    for (TimeEntry e : entries) {
-      DayOfWeek dow = e.startTime().getDayOfWeek();
-      dowTotals.merge(dow, e.durationMinutes(), Integer::sum);
-    }
-
     dowTotals.forEach(
         (dow, minutes) -> System.out.printf("%s → %s%n", dow, formatMinutes(minutes)));
   }
 
+  private String periodKey(LocalDate date) {
+    return periodKeys.computeIfAbsent(date, d -> by == SplitBy.week ? getWeekKey(d) : d.toString());
+  }
+
+  /**
+   * A hash map holding {@code ordered}'s entries, inserted in its iteration order. Inserting
+   * through {@code computeIfAbsent}, like {@code groupingBy} and {@code merge} do, also grows the
+   * table at the same points, so the iteration order matches theirs.
+   */
+  private static <K, V> Map<K, V> hashed(Map<K, V> ordered) {
+    Map<K, V> hashed = new HashMap<>();
+    ordered.forEach((key, value) -> hashed.computeIfAbsent(key, k -> value));
+    return hashed;
+  }
+
+  /** The names behind {@code ids}, added to a hash set in iteration order. */
+  private Set<String> names(Set<Integer> ids) {
+    Set<String> names = new HashSet<>();
+    ids.forEach(id -> names.add(symbols.name(id)));
+    return names;
+  }
+
+  private static final class Day {
+    final BitSet types = new BitSet();
+    int minutes;
+  }
+
+  private static final class Usage {
+    final Counts tags = new Counts();
+    final Counts types = new Counts();
+    int minutes;
+  }
+
+  /** Uses per symbol ID, remembering the order in which the IDs were first seen. */
+  private static final class Counts {
+    private long[] counts = new long[64];
+    private int[] order = new int[16];
+    private int size;
+
+    void add(int id) {
+      add(id, 1);
+    }
+
+    private void add(int id, long uses) {
+      if (id >= counts.length) {
+        counts = Arrays.copyOf(counts, Math.max(id + 1, counts.length * 2));
+      }
+      if (counts[id] == 0) {
+        if (size == order.length) {
+          order = Arrays.copyOf(order, size * 2);
+        }
+        order[size++] = id;
+      }
+      counts[id] += uses;
+    }
+
+    Counts addAll(Counts other) {
+      for (int k = 0; k < other.size; k++) {
+        add(other.order[k], other.counts[other.order[k]]);
+      }
+      return this;
+    }
+
+    /** Names and uses, inserted in first-seen order like {@link #hashed(Map)} does. */
+    Map<String, Long> toMap(SymbolTable symbols) {
+      Map<String, Long> map = new HashMap<>();
+      for (int k = 0; k < size; k++) {
+        long uses = counts[order[k]];
+        map.computeIfAbsent(symbols.name(order[k]), name -> uses);
+      }
+      return map;
+    }
+  }
+
   private String getWeekKey(LocalDate date) {
     WeekFields weekFields = WeekFields.of(Locale.getDefault());
     int week = date.get(weekFields.weekOfWeekBasedYear());
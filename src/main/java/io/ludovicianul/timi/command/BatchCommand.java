@@ -9,7 +9,7 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.stream.Collectors;
 import picocli.CommandLine;
@@ -41,6 +41,7 @@ public class BatchCommand implements Runnable {
     public void run() {
       System.out.println(" ");
       try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+        List<TimeEntry> entries = new ArrayList<>();
         String line;
         while ((line = reader.readLine()) != null) {
           if (line.startsWith("startTime") || line.isBlank()) {
@@ -57,8 +58,16 @@ public class BatchCommand implements Runnable {
             continue;
           }
 
-          LocalDateTime startTime = Utils.parseDateTime(parts[0]);
-          int duration = Integer.parseInt(parts[1].trim());
+          LocalDateTime startTime;
+          int duration;
+          try {
+            startTime = Utils.parseDateTime(parts[0]);
+            duration = Integer.parseInt(parts[1].trim());
+          } catch (DateTimeParseException | NumberFormatException e) {
+            // Skip the line as above; the valid ones are still saved.
+            System.err.println("❌ Invalid line: " + line + " (" + e.getMessage() + ")");
+            continue;
+          }
           String type = parts[2].trim().toLowerCase();
           Set<String> tags =
               Arrays.stream(parts[3].split(";"))
@@ -71,12 +80,16 @@ public class BatchCommand implements Runnable {
                   .filter(s -> !s.isEmpty())
                   .collect(Collectors.toSet());
           String note = parts[5].trim();
-          TimeEntry entry =
-              new TimeEntry(UUID.randomUUID(), startTime, duration, note, type, tags, metaTags);
-          entryStore.saveEntry(entry);
-          gitManager.commit("Batch added entry on " + startTime.format(DateTimeFormatter.ISO_DATE));
-          System.out.println("✅ Added entry: " + entry.id());
+          entries.add(
+              new TimeEntry(UUID.randomUUID(), startTime, duration, note, type, tags, metaTags));
         }
+
+        // The whole file is written as one batch: one write per month, one commit.
+        entryStore.saveAll(entries);
+        if (!entries.isEmpty()) {
+          gitManager.commit("Batch added " + entries.size() + " entries");
+        }
+        entries.forEach(entry -> System.out.println("✅ Added entry: " + entry.id()));
         System.out.println("✅ Batch add completed.");
       } catch (IOException e) {
         System.err.println("❌ Failed to read file: " + e.getMessage());
@@ -104,16 +117,33 @@ public class BatchCommand implements Runnable {
     public void run() {
       System.out.println(" ");
       try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+        List<UUID> ids = new ArrayList<>();
+        int invalidCount = 0;
         String line;
-        int successCount = 0, failureCount = 0;
         while ((line = reader.readLine()) != null) {
           String id = line.trim();
           if (id.isEmpty()) {
             continue;
           }
-          boolean deleted = entryStore.deleteById(UUID.fromString(id));
-          if (deleted) {
-            gitManager.commit("Batch deleted entry " + id);
+          try {
+            ids.add(UUID.fromString(id));
+          } catch (IllegalArgumentException e) {
+            // Skip it; the valid IDs are still deleted.
+            invalidCount++;
+            System.err.println("❌ Invalid entry ID: " + id);
+          }
+        }
+
+        // One write per month and one commit for the whole file; report per ID as before.
+        Set<UUID> deleted = entryStore.deleteAll(new LinkedHashSet<>(ids));
+        if (!deleted.isEmpty()) {
+          gitManager.commit("Batch deleted " + deleted.size() + " entries");
+        }
+
+        int successCount = 0, failureCount = invalidCount;
+        Set<UUID> reported = new HashSet<>();
+        for (UUID id : ids) {
+          if (deleted.contains(id) && reported.add(id)) {
             successCount++;
             System.out.println("✅ Deleted entry: " + id);
           } else {
@@ -0,0 +1,49 @@
+package io.ludovicianul.timi.command;
+
+import io.ludovicianul.timi.daemon.DaemonClient;
+import io.ludovicianul.timi.daemon.DaemonServer;
+import jakarta.inject.Inject;
+import java.io.IOException;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+@Command(
+    name = "daemon",
+    description = "Keep timi resident and serve commands over ~/.timi/run/daemon.sock",
+    mixinStandardHelpOptions = true)
+public class DaemonCommand implements Runnable {
+
+  @Option(names = "--stop", description = "Stop the running daemon")
+  boolean stop;
+
+  @Option(names = "--status", description = "Show whether a daemon is running")
+  boolean status;
+
+  @Inject DaemonServer daemonServer;
+
+  @Override
+  public void run() {
+    if (stop) {
+      System.out.println(
+          DaemonClient.stop() ? "✅ Daemon stopped." : "📭 No daemon is running.");
+      return;
+    }
+    if (DaemonClient.isRunning()) {
+      System.out.println("🟢 Daemon is running on " + daemonServer.socketPath());
+      return;
+    }
+    if (status) {
+      System.out.println("📭 No daemon is running.");
+      return;
+    }
+
+    System.out.println("🚀 Daemon listening on " + daemonServer.socketPath());
+    System.out.println("   Stop it with `timi daemon --stop`.");
+    try {
+      daemonServer.serve();
+      System.out.println("👋 Daemon stopped.");
+    } catch (IOException e) {
+      System.out.println("❌ Daemon failed: " + e.getMessage());
+    }
+  }
+}
@@ -1,15 +1,20 @@
 package io.ludovicianul.timi.command;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.ludovicianul.timi.persistence.DateRange;
 import io.ludovicianul.timi.persistence.EntryStore;
+import io.ludovicianul.timi.persistence.JsonCodec;
 import io.ludovicianul.timi.persistence.TimeEntry;
 import jakarta.inject.Inject;
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.stream.Stream;
 import picocli.CommandLine;
 
 @CommandLine.Command(
@@ -58,6 +63,7 @@ public class ExportCommand implements Runnable {
   String outputPath;
 
   @Inject EntryStore entryStore;
+  @Inject JsonCodec codec;
 
   public enum Format {
     csv,
@@ -67,37 +73,15 @@ public class ExportCommand implements Runnable {
   @Override
   public void run() {
     System.out.println(" ");
-    List<TimeEntry> entries = entryStore.loadAllEntries(null);
-    if (entries.isEmpty()) {
-      System.out.println("📭 No entries to export.");
-      return;
+    try (Stream<TimeEntry> any = entryStore.query(DateRange.ALL, e -> true)) {
+      if (any.findAny().isEmpty()) {
+        System.out.println("📭 No entries to export.");
+        return;
+      }
     }
 
-    entries =
-        entries.parallelStream()
-            .filter(
-                e -> {
-                  boolean match = true;
-                  if (from != null) {
-                    match = !e.startTime().toLocalDate().isBefore(from);
-                  }
-                  if (to != null) {
-                    match = match && !e.startTime().toLocalDate().isAfter(to);
-                  }
-                  if (activityType != null) {
-                    match = match && e.activityType().equalsIgnoreCase(activityType);
-                  }
-                  if (!tags.isEmpty()) {
-                    match = match && e.tags().containsAll(tags);
-                  }
-                  if (!metaTags.isEmpty()) {
-                    match = match && e.metaTags().containsAll(metaTags);
-                  }
-                  return match;
-                })
-            .toList();
-
-    try {
+    // Entries are written as they are read, so the export never holds the whole history.
+    try (Stream<TimeEntry> entries = entryStore.query(DateRange.of(from, to), this::matches)) {
       if (Format.csv == format) {
         exportCSV(entries);
       } else if (Format.json == format) {
@@ -108,11 +92,25 @@ public class ExportCommand implements Runnable {
     }
   }
 
-  private void exportCSV(List<TimeEntry> entries) throws IOException {
-    try (FileWriter writer = new FileWriter(outputPath)) {
+  private boolean matches(TimeEntry e) {
+    boolean match = true;
+    if (activityType != null) {
+      match = match && e.activityType().equalsIgnoreCase(activityType);
+    }
+    if (!tags.isEmpty()) {
+      match = match && e.tags().containsAll(tags);
+    }
+    if (!metaTags.isEmpty()) {
+      match = match && e.metaTags().containsAll(metaTags);
+    }
+    return match;
+  }
+
+  private void exportCSV(Stream<TimeEntry> entries) throws IOException {
+    try (Writer writer = new BufferedWriter(new FileWriter(outputPath))) {
       writer.write("ID,Start Time,Duration,Activity Type,Tags,Meta Tags,Note\n");
       DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-      for (TimeEntry e : entries) {
+      for (TimeEntry e : (Iterable<TimeEntry>) entries::iterator) {
         String line =
             String.format(
                 "\"%s\",\"%s\",%d,\"%s\",\"%s\",\"%s\",\"%s\"\n",
@@ -129,11 +127,16 @@ public class ExportCommand implements Runnable {
     }
   }
 
-  private void exportJSON(List<TimeEntry> entries) throws IOException {
-    ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
-
-    try (FileWriter writer = new FileWriter(outputPath)) {
-      objectMapper.writerWithDefaultPrettyPrinter().writeValue(writer, entries);
+  private void exportJSON(Stream<TimeEntry> entries) throws IOException {
+    try (Writer writer = new BufferedWriter(new FileWriter(outputPath));
+        SequenceWriter sequence =
+            codec
+                .prettyWriter(TimeEntry.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .writeValuesAsArray(writer)) {
+      for (TimeEntry e : (Iterable<TimeEntry>) entries::iterator) {
+        sequence.write(e);
+      }
       System.out.println("✅ Exported entries to JSON: " + outputPath);
     }
   }
@@ -40,6 +40,9 @@ public class LastCommand implements Runnable {
       if (action.entryBefore() != null) {
         printEntry("Before", action.entryBefore());
       }
+      if (action.entries() != null) {
+        System.out.printf("%n  Entries: %d%n", action.entries().size());
+      }
     } catch (Exception e) {
       System.out.println("❌ Failed to load last action: " + e.getMessage());
     }
@@ -3,13 +3,19 @@ package io.ludovicianul.timi.command;
 import static io.ludovicianul.timi.util.Utils.formatMinutes;
 
 import io.ludovicianul.timi.console.Ansi;
+import io.ludovicianul.timi.persistence.DateRange;
 import io.ludovicianul.timi.persistence.EntryStore;
+import io.ludovicianul.timi.persistence.TermFilter;
 import io.ludovicianul.timi.persistence.TimeEntry;
 import jakarta.inject.Inject;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import picocli.CommandLine;
 
 @CommandLine.Command(
@@ -70,19 +76,41 @@ public class ListCommand implements Runnable {
       defaultValue = "split")
   CountMode countMode;
 
+  @CommandLine.Option(names = "--limit", description = "Show only the newest N entries")
+  Integer limit;
+
+  @CommandLine.Option(names = "--latest", description = "Show the newest entries first")
+  boolean latest;
+
   @Inject EntryStore entryStore;
   @Inject Ansi ansi;
 
   @Override
   public void run() {
     System.out.println(" ");
-    List<TimeEntry> entries =
-        entryStore.loadAllEntries(month).stream()
-            .sorted(Comparator.comparing(TimeEntry::startTime))
-            .filter(e -> filterByDateRange(e.startTime().toLocalDate()))
-            .filter(e -> e.tagsMatching(onlyTag))
-            .filter(e -> e.metaTagsMatching(onlyMetaTag))
-            .toList();
+    if (limit != null && limit < 1) {
+      System.out.println("❌ --limit must be at least 1.");
+      return;
+    }
+
+    DateRange range = queryRange();
+    TermFilter terms = new TermFilter(null, onlyTag, onlyMetaTag);
+    Predicate<TimeEntry> filter =
+        e ->
+            (month == null || e.startTime().toString().startsWith(month))
+                && filterByDateRange(e.startTime().toLocalDate())
+                && e.tagsMatching(onlyTag)
+                && e.metaTagsMatching(onlyMetaTag);
+    List<TimeEntry> entries;
+    if (limit != null || latest) {
+      int wanted = limit == null ? Integer.MAX_VALUE : limit;
+      entries = entryStore.queryTop(range, terms, filter, wanted, true);
+      entries = latest ? entries : entries.reversed();
+    } else {
+      try (Stream<TimeEntry> stream = entryStore.query(range, terms, filter)) {
+        entries = stream.sorted(Comparator.comparing(TimeEntry::startTime)).toList();
+      }
+    }
 
     if (entries.isEmpty()) {
       System.out.println("📭 No entries found.");
@@ -206,6 +234,27 @@ public class ListCommand implements Runnable {
     }
   }
 
+  /** Narrowest range implied by the date options, so only the matching months are read. */
+  private DateRange queryRange() {
+    if (today) {
+      return DateRange.day(LocalDate.now());
+    }
+    if (yesterday) {
+      return DateRange.day(LocalDate.now().minusDays(1));
+    }
+    if (day != null) {
+      return DateRange.day(day);
+    }
+    if (month != null && from == null && to == null) {
+      try {
+        return DateRange.month(YearMonth.parse(month));
+      } catch (DateTimeParseException e) {
+        // Not a full yyyy-MM; the month is still matched as a prefix below.
+      }
+    }
+    return DateRange.of(from, to);
+  }
+
   private boolean filterByDateRange(LocalDate entryDate) {
     if (from == null && to == null && day == null && !today && !yesterday) {
       return true;
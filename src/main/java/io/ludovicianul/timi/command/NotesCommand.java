@@ -1,6 +1,8 @@
 package io.ludovicianul.timi.command;
 
+import io.ludovicianul.timi.persistence.DateRange;
 import io.ludovicianul.timi.persistence.EntryStore;
+import io.ludovicianul.timi.persistence.TermFilter;
 import io.ludovicianul.timi.persistence.TimeEntry;
 import jakarta.inject.Inject;
 import java.time.LocalDate;
@@ -10,6 +12,7 @@ import java.time.format.DateTimeParseException;
 import java.util.Comparator;
 import java.util.List;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
@@ -31,6 +34,12 @@ public class NotesCommand implements Runnable {
   @Option(names = "--day", description = "Day filter (format: yyyy-MM-dd)")
   String day;
 
+  @Option(names = "--limit", description = "Show only the newest N notes")
+  Integer limit;
+
+  @Option(names = "--latest", description = "Show the newest notes first")
+  boolean latest;
+
   @Inject EntryStore entryStore;
 
   @Override
@@ -39,20 +48,30 @@ public class NotesCommand implements Runnable {
       System.out.println("\n❌ Please provide at least one of: --tag or --meta-tag");
       return;
     }
-    Predicate<LocalDate> dateFilter = buildDateFilter();
+    DateRange range = buildDateRange();
 
-    if (dateFilter == null) {
+    if (range == null) {
       System.out.println("\n❌ Invalid date format. Use yyyy-MM-dd for day or yyyy-MM for month.");
       return;
     }
 
-    List<TimeEntry> entries =
-        entryStore.loadAllEntries(null).stream()
-            .filter(e -> e.tagsMatching(tag))
-            .filter(e -> e.metaTagsMatching(metaTag))
-            .filter(e -> dateFilter.test(e.startTime().toLocalDate()))
-            .sorted(Comparator.comparing(TimeEntry::startTime))
-            .toList();
+    if (limit != null && limit < 1) {
+      System.out.println("\n❌ --limit must be at least 1.");
+      return;
+    }
+
+    TermFilter terms = new TermFilter(null, tag, metaTag);
+    Predicate<TimeEntry> filter = e -> e.tagsMatching(tag) && e.metaTagsMatching(metaTag);
+    List<TimeEntry> entries;
+    if (limit != null || latest) {
+      int wanted = limit == null ? Integer.MAX_VALUE : limit;
+      entries = entryStore.queryTop(range, terms, filter, wanted, true);
+      entries = latest ? entries : entries.reversed();
+    } else {
+      try (Stream<TimeEntry> stream = entryStore.query(range, terms, filter)) {
+        entries = stream.sorted(Comparator.comparing(TimeEntry::startTime)).toList();
+      }
+    }
 
     if (entries.isEmpty()) {
       System.out.printf(
@@ -73,19 +92,17 @@ public class NotesCommand implements Runnable {
     }
   }
 
-  private Predicate<LocalDate> buildDateFilter() {
+  private DateRange buildDateRange() {
     try {
       if (day != null) {
-        LocalDate target = LocalDate.parse(day);
-        return d -> d.equals(target);
+        return DateRange.day(LocalDate.parse(day));
       } else if (month != null) {
-        YearMonth target = YearMonth.parse(month);
-        return d -> YearMonth.from(d).equals(target);
+        return DateRange.month(YearMonth.parse(month));
       }
     } catch (DateTimeParseException e) {
       return null;
     }
 
-    return d -> true;
+    return DateRange.ALL;
   }
 }
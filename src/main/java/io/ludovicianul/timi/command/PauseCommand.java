@@ -2,13 +2,14 @@ package io.ludovicianul.timi.command;
 
 import io.ludovicianul.timi.persistence.session.Session;
 import io.ludovicianul.timi.persistence.session.SessionManager;
+import jakarta.inject.Inject;
 import java.time.LocalDateTime;
 import picocli.CommandLine.*;
 
 @Command(name = "pause", description = "Pause the current session", mixinStandardHelpOptions = true)
 public class PauseCommand implements Runnable {
 
-  private final SessionManager sessionManager = new SessionManager();
+  @Inject SessionManager sessionManager;
 
   @Override
   public void run() {
@@ -2,6 +2,7 @@ package io.ludovicianul.timi.command;
 
 import io.ludovicianul.timi.persistence.session.Session;
 import io.ludovicianul.timi.persistence.session.SessionManager;
+import jakarta.inject.Inject;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import picocli.CommandLine.*;
@@ -9,7 +10,7 @@ import picocli.CommandLine.*;
 @Command(name = "resume", description = "Resume a paused session", mixinStandardHelpOptions = true)
 public class ResumeCommand implements Runnable {
 
-  private final SessionManager sessionManager = new SessionManager();
+  @Inject SessionManager sessionManager;
 
   @Override
   public void run() {
@@ -2,7 +2,11 @@ package io.ludovicianul.timi.command;
 
 import static io.ludovicianul.timi.util.Utils.formatMinutes;
 
+import io.ludovicianul.timi.persistence.DateRange;
 import io.ludovicianul.timi.persistence.EntryStore;
+import io.ludovicianul.timi.persistence.NoteMatch;
+import io.ludovicianul.timi.persistence.NoteQuery;
+import io.ludovicianul.timi.persistence.TermFilter;
 import io.ludovicianul.timi.persistence.TimeEntry;
 import jakarta.inject.Inject;
 import java.time.LocalDate;
@@ -10,7 +14,8 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
@@ -36,6 +41,27 @@ public class SearchCommand implements Runnable {
   @Option(names = "--note", description = "Search by note content (case-insensitive, substring)")
   String note;
 
+  @Option(
+      names = "--note-match",
+      defaultValue = "substring",
+      description = "How --note matches: substring, word or prefix (default: substring)")
+  NoteQuery.Match noteMatch;
+
+  @Option(
+      names = "--limit",
+      description =
+          "Keep only the newest N matches, or with --rank the N most relevant; totals cover the"
+              + " kept entries")
+  Integer limit;
+
+  @Option(names = "--latest", description = "Show the newest entries first")
+  boolean latest;
+
+  @Option(
+      names = "--rank",
+      description = "With --note, show the most relevant matches first (newest first on ties)")
+  boolean rank;
+
   @Option(names = "--from", description = "Start date filter (yyyy-MM-dd)")
   String from;
 
@@ -71,26 +97,54 @@ public class SearchCommand implements Runnable {
       }
     }
 
-    List<TimeEntry> matches =
-        entryStore.loadAllEntries(null).stream()
-            .filter(
-                e -> {
-                  boolean tagMatch = e.tagsMatching(tag);
-                  boolean metaTagMatch = e.metaTagsMatching(metaTag);
-                  boolean activityMatch =
-                      activity == null || e.activityType().equalsIgnoreCase(activity);
-                  boolean noteMatch =
-                      note == null
-                          || (e.note() != null
-                              && e.note().toLowerCase().contains(note.toLowerCase(Locale.ROOT)));
-                  boolean dateMatch =
-                      (fromDate == null
-                          || (!e.startTime().toLocalDate().isBefore(fromDate)
-                              && !e.startTime().toLocalDate().isAfter(toDate)));
-                  return tagMatch && metaTagMatch && activityMatch && noteMatch && dateMatch;
-                })
-            .sorted(Comparator.comparing(TimeEntry::startTime))
-            .toList();
+    if (limit != null && limit < 1) {
+      System.out.println("\n❌ --limit must be at least 1.");
+      return;
+    }
+
+    if (rank && note == null) {
+      System.out.println("\n❌ --rank needs --note.");
+      return;
+    }
+
+    DateRange range = fromDate == null ? DateRange.ALL : DateRange.of(fromDate, toDate);
+    TermFilter terms = new TermFilter(activity, tag, metaTag);
+    Predicate<TimeEntry> filter =
+        e -> {
+          boolean tagMatch = e.tagsMatching(tag);
+          boolean metaTagMatch = e.metaTagsMatching(metaTag);
+          boolean activityMatch = activity == null || e.activityType().equalsIgnoreCase(activity);
+          return tagMatch && metaTagMatch && activityMatch;
+        };
+    // --limit keeps the newest matches, read newest month first; --rank has to score every match
+    // before it can keep the most relevant.
+    int wanted = rank || limit == null ? Integer.MAX_VALUE : limit;
+    List<TimeEntry> matches;
+    if (note != null) {
+      // The note index narrows the search down to candidate entries and ranks them.
+      NoteQuery query = new NoteQuery(note, noteMatch);
+      List<NoteMatch> found = entryStore.searchNotesTop(range, terms, query, filter, wanted, true);
+      if (rank) {
+        matches =
+            found.stream()
+                .sorted(
+                    Comparator.comparingDouble(NoteMatch::score)
+                        .reversed()
+                        .thenComparing(m -> m.entry().startTime(), Comparator.reverseOrder()))
+                .limit(limit == null ? Long.MAX_VALUE : limit)
+                .map(NoteMatch::entry)
+                .toList();
+      } else {
+        matches = (latest ? found : found.reversed()).stream().map(NoteMatch::entry).toList();
+      }
+    } else if (limit != null || latest) {
+      matches = entryStore.queryTop(range, terms, filter, wanted, true);
+      matches = latest ? matches : matches.reversed();
+    } else {
+      try (Stream<TimeEntry> stream = entryStore.query(range, terms, filter)) {
+        matches = stream.sorted(Comparator.comparing(TimeEntry::startTime)).toList();
+      }
+    }
 
     if (matches.isEmpty()) {
       System.out.println("\n📭 No entries matched your search.");
@@ -106,8 +160,14 @@ public class SearchCommand implements Runnable {
       return;
     }
 
-    System.out.printf(
-        "\n🔎 Found %d matching entr%s:%n%n", matches.size(), matches.size() == 1 ? "y" : "ies");
+    if (limit != null) {
+      System.out.printf(
+          "\n🔎 Showing the %d %s matching entr%s:%n%n",
+          matches.size(), rank ? "most relevant" : "newest", matches.size() == 1 ? "y" : "ies");
+    } else {
+      System.out.printf(
+          "\n🔎 Found %d matching entr%s:%n%n", matches.size(), matches.size() == 1 ? "y" : "ies");
+    }
 
     for (TimeEntry e : matches) {
       String time = e.startTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
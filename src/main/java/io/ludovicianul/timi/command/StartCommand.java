@@ -2,6 +2,7 @@ package io.ludovicianul.timi.command;
 
 import io.ludovicianul.timi.persistence.session.Session;
 import io.ludovicianul.timi.persistence.session.SessionManager;
+import jakarta.inject.Inject;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
@@ -20,7 +21,7 @@ public class StartCommand implements Runnable {
   @Option(names = "--note", description = "Optional session note")
   String note;
 
-  private final SessionManager sessionManager = new SessionManager();
+  @Inject SessionManager sessionManager;
 
   @Override
   public void run() {
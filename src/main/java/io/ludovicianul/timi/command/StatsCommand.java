@@ -3,14 +3,13 @@ package io.ludovicianul.timi.command;
 import static io.ludovicianul.timi.util.Utils.formatMinutes;
 
 import io.ludovicianul.timi.console.Ansi;
+import io.ludovicianul.timi.persistence.DayRollup;
 import io.ludovicianul.timi.persistence.EntryStore;
-import io.ludovicianul.timi.persistence.TimeEntry;
 import jakarta.inject.Inject;
 import java.time.LocalDate;
 import java.time.temporal.WeekFields;
 import java.util.*;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
@@ -76,25 +75,20 @@ public class StatsCommand implements Runnable {
       from = to = LocalDate.now();
     }
 
-    Predicate<LocalDate> dateFilter = d -> !d.isBefore(from) && !d.isAfter(to);
+    SortedMap<LocalDate, DayRollup> days = entryStore.loadRollups(from, to);
 
-    List<TimeEntry> entries =
-        entryStore.loadAllEntries(null).stream()
-            .filter(e -> dateFilter.test(e.startTime().toLocalDate()))
-            .toList();
-
-    if (entries.isEmpty()) {
+    if (days.isEmpty()) {
       System.out.printf("\n📭 No entries found from %s to %s.%n", from, to);
       return;
     }
 
     if (showWeeklyBreakdown && !from.equals(to)) {
-      printWeeklyTrend(entries);
+      printWeeklyTrend(days);
       return;
     }
 
     if (showDailyBreakdown && !from.equals(to)) {
-      printDailyTrend(entries);
+      printDailyTrend(days);
       return;
     }
 
@@ -102,44 +96,34 @@ public class StatsCommand implements Runnable {
         "\nℹ️ Use --daily-breakdown or --weekly-breakdown for detailed trend views.");
   }
 
-  private void printWeeklyTrend(List<TimeEntry> entries) {
+  private void printWeeklyTrend(SortedMap<LocalDate, DayRollup> days) {
     WeekFields wf = WeekFields.ISO;
     var weekly =
         aggregateEntriesByDateKey(
-            entries,
-            e -> {
-              LocalDate d = e.startTime().toLocalDate();
-              return String.format("%d-W%02d", d.getYear(), d.get(wf.weekOfWeekBasedYear()));
-            });
+            days,
+            d -> String.format("%d-W%02d", d.getYear(), d.get(wf.weekOfWeekBasedYear())));
     printTrend("📈 Weekly Breakdown by " + groupBy, weekly, label -> String.format("%-10s", label));
   }
 
-  private void printDailyTrend(List<TimeEntry> entries) {
-    var daily = aggregateEntriesByDateKey(entries, e -> e.startTime().toLocalDate().toString());
+  private void printDailyTrend(SortedMap<LocalDate, DayRollup> days) {
+    var daily = aggregateEntriesByDateKey(days, LocalDate::toString);
     printTrend("📆 Daily Breakdown with Trends", daily, label -> String.format("%-12s", label));
   }
 
+  /** Folds the per-day rollups into the requested periods; no entry is read. */
   private Map<String, Map<String, Integer>> aggregateEntriesByDateKey(
-      List<TimeEntry> entries, Function<TimeEntry, String> keyFn) {
+      SortedMap<LocalDate, DayRollup> days, Function<LocalDate, String> keyFn) {
     Map<String, Map<String, Integer>> result = new TreeMap<>();
-
-    for (TimeEntry e : entries) {
-      String key = keyFn.apply(e);
-      result.putIfAbsent(key, new TreeMap<>());
-      Map<String, Integer> map = result.get(key);
-
-      if (groupBy == GroupBy.type) {
-        map.merge(e.activityType(), e.durationMinutes(), Integer::sum);
-      } else {
-        int share =
-            (countMode == CountMode.split && !e.tags().isEmpty())
-                ? e.durationMinutes() / e.tags().size()
-                : e.durationMinutes();
-        for (String tag : e.tags()) {
-          map.merge(tag, share, Integer::sum);
-        }
-      }
-    }
+    DayRollup.Dimension dimension =
+        groupBy == GroupBy.type ? DayRollup.Dimension.TYPE : DayRollup.Dimension.TAG;
+
+    days.forEach(
+        (day, rollup) -> {
+          Map<String, Integer> map = result.computeIfAbsent(keyFn.apply(day), k -> new TreeMap<>());
+          rollup
+              .minutes(dimension, countMode == CountMode.split)
+              .forEach((group, minutes) -> map.merge(group, minutes, Integer::sum));
+        });
 
     return result;
   }
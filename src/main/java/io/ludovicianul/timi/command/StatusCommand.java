@@ -2,6 +2,7 @@ package io.ludovicianul.timi.command;
 
 import io.ludovicianul.timi.persistence.session.Session;
 import io.ludovicianul.timi.persistence.session.SessionManager;
+import jakarta.inject.Inject;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -13,7 +14,7 @@ import picocli.CommandLine.*;
     mixinStandardHelpOptions = true)
 public class StatusCommand implements Runnable {
 
-  private final SessionManager sessionManager = new SessionManager();
+  @Inject SessionManager sessionManager;
 
   @Override
   public void run() {
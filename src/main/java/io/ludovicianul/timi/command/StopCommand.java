@@ -22,7 +22,7 @@ public class StopCommand implements Runnable {
 
   @Inject EntryStore entryStore;
   @Inject ConfigManager configManager;
-  private final SessionManager sessionManager = new SessionManager();
+  @Inject SessionManager sessionManager;
 
   @Override
   public void run() {
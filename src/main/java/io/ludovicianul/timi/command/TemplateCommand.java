@@ -1,8 +1,10 @@
 package io.ludovicianul.timi.command;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.type.TypeReference;
 import io.ludovicianul.timi.config.ConfigManager;
+import io.ludovicianul.timi.git.ChangeTracker;
 import io.ludovicianul.timi.persistence.EntryStore;
+import io.ludovicianul.timi.persistence.JsonCodec;
 import io.ludovicianul.timi.persistence.TimeEntry;
 import jakarta.inject.Inject;
 import java.io.IOException;
@@ -23,6 +25,7 @@ import picocli.CommandLine.*;
       TemplateCommand.Delete.class
     })
 public class TemplateCommand implements Runnable {
+  private static final TypeReference<Map<String, Object>> TEMPLATE = new TypeReference<>() {};
 
   @Override
   public void run() {
@@ -30,6 +33,10 @@ public class TemplateCommand implements Runnable {
         "Use 'timi template save', 'timi template use', 'timi template list', or 'timi template delete'.");
   }
 
+  private static List<String> tagsOf(Map<String, Object> template) {
+    return ((List<?>) template.get("tags")).stream().map(String.class::cast).toList();
+  }
+
   @Command(name = "save", description = "Save a new template")
   public static class Save implements Runnable {
 
@@ -52,6 +59,8 @@ public class TemplateCommand implements Runnable {
         Path.of(System.getProperty("user.home"), ".timi", "templates");
 
     @Inject ConfigManager configManager;
+    @Inject ChangeTracker changeTracker;
+    @Inject JsonCodec codec;
 
     @Override
     public void run() {
@@ -82,8 +91,8 @@ public class TemplateCommand implements Runnable {
           template.put("note", note);
         }
 
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.writerWithDefaultPrettyPrinter().writeValue(templateFile.toFile(), template);
+        codec.prettyWriter(Map.class).writeValue(templateFile.toFile(), template);
+        changeTracker.modified(templateFile);
 
         System.out.printf("✅ Template '%s' saved successfully.%n", name);
       } catch (IOException e) {
@@ -105,6 +114,7 @@ public class TemplateCommand implements Runnable {
         Path.of(System.getProperty("user.home"), ".timi", "templates");
 
     @Inject EntryStore entryStore;
+    @Inject JsonCodec codec;
 
     @Override
     public void run() {
@@ -116,11 +126,10 @@ public class TemplateCommand implements Runnable {
           return;
         }
 
-        ObjectMapper mapper = new ObjectMapper();
-        Map<String, Object> template = mapper.readValue(templateFile.toFile(), Map.class);
+        Map<String, Object> template = codec.reader(TEMPLATE).readValue(templateFile.toFile());
 
         String type = (String) template.get("type");
-        List<String> tags = (List<String>) template.get("tags");
+        List<String> tags = tagsOf(template);
         int duration = (int) template.get("duration");
         String templateNote = (String) template.get("note");
 
@@ -157,6 +166,8 @@ public class TemplateCommand implements Runnable {
     private final Path templatesDir =
         Path.of(System.getProperty("user.home"), ".timi", "templates");
 
+    @Inject JsonCodec codec;
+
     @Override
     public void run() {
       if (!Files.exists(templatesDir)) {
@@ -165,8 +176,6 @@ public class TemplateCommand implements Runnable {
       }
       try (var paths = Files.list(templatesDir)) {
 
-        ObjectMapper mapper = new ObjectMapper();
-
         System.out.println("\n📄 Saved Templates:");
         System.out.println("=".repeat(80));
 
@@ -175,10 +184,10 @@ public class TemplateCommand implements Runnable {
             .forEach(
                 p -> {
                   try {
-                    Map<String, Object> template = mapper.readValue(p.toFile(), Map.class);
+                    Map<String, Object> template = codec.reader(TEMPLATE).readValue(p.toFile());
                     String name = p.getFileName().toString().replace(".json", "");
                     String type = (String) template.get("type");
-                    List<String> tags = (List<String>) template.get("tags");
+                    List<String> tags = tagsOf(template);
                     int duration = (int) template.get("duration");
                     String note = (String) template.get("note");
 
@@ -211,6 +220,8 @@ public class TemplateCommand implements Runnable {
     private final Path templatesDir =
         Path.of(System.getProperty("user.home"), ".timi", "templates");
 
+    @Inject ChangeTracker changeTracker;
+
     @Override
     public void run() {
       try {
@@ -229,6 +240,7 @@ public class TemplateCommand implements Runnable {
           return;
         }
         Files.delete(templateFile);
+        changeTracker.modified(templateFile);
         System.out.printf("✅ Template '%s' deleted successfully.%n", name);
 
       } catch (IOException e) {
@@ -3,8 +3,9 @@ package io.ludovicianul.timi.command;
 import static io.ludovicianul.timi.util.Utils.*;
 
 import io.ludovicianul.timi.console.Ansi;
+import io.ludovicianul.timi.persistence.DayRollup;
 import io.ludovicianul.timi.persistence.EntryStore;
-import io.ludovicianul.timi.persistence.TimeEntry;
+import io.ludovicianul.timi.persistence.MonthSegment;
 import jakarta.inject.Inject;
 import java.time.LocalDate;
 import java.time.YearMonth;
@@ -66,56 +67,110 @@ public class TimelineCommand implements Runnable {
 
   @Override
   public void run() {
-    List<TimeEntry> entries = loadEntriesBetween(entryStore, from, to);
-    if (entries.isEmpty()) {
+    // --only on tags keeps whole entries (with all their tags), which per-day totals cannot tell
+    // apart, so that case still scans the columnar segments.
+    if (!hasOnlyFilter() || groupBy == GroupBy.type) {
+      SortedMap<LocalDate, DayRollup> days = entryStore.loadRollups(from, to);
+      if (days.isEmpty()) {
+        System.out.printf("📭 No entries between %s and %s.%n", from, to);
+        return;
+      }
+      printStackedBarChart(aggregate(days));
+      return;
+    }
+
+    int fromMinute = MonthSegment.epochMinute(from);
+    int toMinute = MonthSegment.epochMinute(to.plusDays(1));
+    List<MonthSegment> segments = entryStore.loadSegments(from, to);
+    if (segments.stream().noneMatch(s -> s.hasEntriesBetween(fromMinute, toMinute))) {
       System.out.printf("📭 No entries between %s and %s.%n", from, to);
       return;
     }
 
-    Map<String, Map<String, Integer>> aggregated = aggregate(entries);
+    Map<String, Map<String, Integer>> aggregated = aggregate(segments, fromMinute, toMinute);
     printStackedBarChart(aggregated);
   }
 
-  private Map<String, Map<String, Integer>> aggregate(List<TimeEntry> entries) {
-    WeekFields wf = WeekFields.ISO;
-    Map<String, Map<String, Integer>> result = new TreeMap<>();
-    for (TimeEntry e : entries) {
-      if (!matchesOnlyFilter(e)) continue;
-
-      String period =
-          switch (viewMode) {
-            case day -> e.startTime().toLocalDate().toString();
-            case week -> {
-              LocalDate d = e.startTime().toLocalDate();
-              yield d.getYear() + "-W" + String.format("%02d", d.get(wf.weekOfWeekBasedYear()));
-            }
-            case month -> YearMonth.from(e.startTime()).toString();
-          };
-
-      result.putIfAbsent(period, new TreeMap<>());
+  private boolean hasOnlyFilter() {
+    return only != null && !only.isBlank();
+  }
 
-      List<String> groups =
-          switch (groupBy) {
-            case type -> List.of(e.activityType());
-            case tag -> new ArrayList<>(e.tags());
-            case metaTag -> new ArrayList<>(e.metaTags());
-          };
+  private String period(LocalDate d) {
+    return switch (viewMode) {
+      case day -> d.toString();
+      case week ->
+          d.getYear() + "-W" + String.format("%02d", d.get(WeekFields.ISO.weekOfWeekBasedYear()));
+      case month -> YearMonth.from(d).toString();
+    };
+  }
 
-      int share = groups.isEmpty() ? e.durationMinutes() : e.durationMinutes() / groups.size();
+  /** Folds the per-day rollups into periods; no entry is read. */
+  private Map<String, Map<String, Integer>> aggregate(SortedMap<LocalDate, DayRollup> days) {
+    DayRollup.Dimension dimension =
+        switch (groupBy) {
+          case type -> DayRollup.Dimension.TYPE;
+          case tag -> DayRollup.Dimension.TAG;
+          case metaTag -> DayRollup.Dimension.META_TAG;
+        };
+    Map<String, Map<String, Integer>> result = new TreeMap<>();
+    days.forEach(
+        (day, rollup) -> {
+          Map<String, Integer> minutes = rollup.minutes(dimension, true);
+          if (hasOnlyFilter()) {
+            minutes.keySet().removeIf(group -> !group.equalsIgnoreCase(only));
+            if (minutes.isEmpty()) {
+              return;
+            }
+          }
+          Map<String, Integer> map = result.computeIfAbsent(period(day), k -> new TreeMap<>());
+          minutes.forEach((group, value) -> map.merge(group, value, Integer::sum));
+        });
+    return result;
+  }
 
-      for (String g : groups) {
-        result.get(period).merge(g, share, Integer::sum);
+  /** Scans the start-time, duration and group columns only; notes are never read. */
+  private Map<String, Map<String, Integer>> aggregate(
+      List<MonthSegment> segments, int fromMinute, int toMinute) {
+    Map<String, Map<String, Integer>> result = new TreeMap<>();
+    int onlySymbol = hasOnlyFilter() ? entryStore.symbols().id(only) : -1;
+    for (MonthSegment segment : segments) {
+      for (int i = 0; i < segment.size(); i++) {
+        int start = segment.startMinute(i);
+        if (start < fromMinute || start >= toMinute) continue;
+        if (hasOnlyFilter() && !matchesOnlyFilter(segment, i, onlySymbol)) continue;
+
+        String period = period(segment.date(i));
+        result.putIfAbsent(period, new TreeMap<>());
+
+        int groupCount =
+            switch (groupBy) {
+              case type -> 1;
+              case tag -> segment.tagCount(i);
+              case metaTag -> segment.metaTagCount(i);
+            };
+
+        int share = groupCount == 0 ? segment.duration(i) : segment.duration(i) / groupCount;
+
+        for (int k = 0; k < groupCount; k++) {
+          int id =
+              switch (groupBy) {
+                case type -> segment.typeId(i);
+                case tag -> segment.tagId(i, k);
+                case metaTag -> segment.metaTagId(i, k);
+              };
+          result.get(period).merge(segment.symbol(id), share, Integer::sum);
+        }
       }
     }
     return result;
   }
 
-  private boolean matchesOnlyFilter(TimeEntry entry) {
-    if (only == null || only.isBlank()) return true;
+  /** Compares store-wide symbol IDs; {@code -1} means no loaded entry uses {@code --only}. */
+  private boolean matchesOnlyFilter(MonthSegment segment, int i, int onlySymbol) {
     return switch (groupBy) {
-      case type -> entry.activityType().equalsIgnoreCase(only);
-      case tag -> entry.tags().stream().anyMatch(t -> t.equalsIgnoreCase(only));
-      case metaTag -> entry.metaTags().stream().anyMatch(t -> t.equalsIgnoreCase(only));
+      case type -> segment.typeSymbol(i) == onlySymbol;
+      case tag -> segment.hasTagSymbol(i, onlySymbol);
+      case metaTag -> segment.hasMetaTagSymbol(i, onlySymbol);
     };
   }
 
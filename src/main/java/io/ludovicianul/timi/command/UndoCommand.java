@@ -1,14 +1,16 @@
 package io.ludovicianul.timi.command;
 
 import io.ludovicianul.timi.persistence.EntryStore;
+import io.ludovicianul.timi.persistence.TimeEntry;
 import io.ludovicianul.timi.persistence.UndoAction;
 import jakarta.inject.Inject;
 import java.nio.file.Path;
+import java.util.stream.Collectors;
 import picocli.CommandLine;
 
 @CommandLine.Command(
     name = "undo",
-    description = "Undo the last action (add/edit/delete)",
+    description = "Undo the last action (add/edit/delete/batch add/batch delete)",
     mixinStandardHelpOptions = true)
 public class UndoCommand implements Runnable {
 
@@ -33,6 +35,17 @@ public class UndoCommand implements Runnable {
           System.out.printf(
               "✅ Undone: Added entry %s has been removed.%n", action.entryAfter().id());
         }
+        case "batch-add" -> {
+          entryStore.deleteAll(
+              action.entries().stream().map(TimeEntry::id).collect(Collectors.toSet()));
+          System.out.printf(
+              "✅ Undone: %d batch-added entries have been removed.%n", action.entries().size());
+        }
+        case "batch-delete" -> {
+          entryStore.saveAll(action.entries());
+          System.out.printf(
+              "✅ Undone: %d batch-deleted entries have been restored.%n", action.entries().size());
+        }
         case "delete" -> {
           entryStore.saveEntry(action.entryBefore());
           System.out.printf(
@@ -29,5 +29,6 @@ public class ListConfigCommand implements Runnable {
     System.out.println("  • shortDurationThreshold: " + configManager.getShortDurationThreshold());
     System.out.println("  • shortDurationThreshold: " + configManager.getShortDurationThreshold());
     System.out.println("  • roundSessionMinutes: " + configManager.getRoundSessionMinutes());
+    System.out.println("  • loadParallelism: " + configManager.getLoadParallelism());
   }
 }
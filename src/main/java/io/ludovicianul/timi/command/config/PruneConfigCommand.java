@@ -1,12 +1,14 @@
 package io.ludovicianul.timi.command.config;
 
 import io.ludovicianul.timi.config.ConfigManager;
+import io.ludovicianul.timi.persistence.DateRange;
 import io.ludovicianul.timi.persistence.EntryStore;
 import io.ludovicianul.timi.persistence.TimeEntry;
 import jakarta.inject.Inject;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import picocli.CommandLine;
 
 @CommandLine.Command(
@@ -19,14 +21,15 @@ public class PruneConfigCommand implements Runnable {
 
   @Override
   public void run() {
-    Set<String> usedTags =
-        entryStore.loadAllEntries(null).stream()
-            .flatMap(e -> e.tags().stream())
-            .collect(Collectors.toSet());
-    Set<String> usedTypes =
-        entryStore.loadAllEntries(null).stream()
-            .map(TimeEntry::activityType)
-            .collect(Collectors.toSet());
+    Set<String> usedTags = new HashSet<>();
+    Set<String> usedTypes = new HashSet<>();
+    try (Stream<TimeEntry> entries = entryStore.query(DateRange.ALL, e -> true)) {
+      entries.forEach(
+          e -> {
+            usedTags.addAll(e.tags());
+            usedTypes.add(e.activityType());
+          });
+    }
 
     List<String> unusedTags =
         configManager.getTags().stream().filter(t -> !usedTags.contains(t)).toList();
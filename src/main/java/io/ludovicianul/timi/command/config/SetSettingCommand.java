@@ -34,7 +34,8 @@ public class SetSettingCommand implements Runnable {
     focusedWorkValue,
     colorOutput,
     shortDurationThreshold,
-    roundSessionMinutes
+    roundSessionMinutes,
+    loadParallelism
   }
 
   @Override
@@ -57,6 +58,9 @@ public class SetSettingCommand implements Runnable {
               value,
               v -> configManager.setRoundSessionMinutes(v),
               Settings.roundSessionMinutes.name());
+      case loadParallelism ->
+          setInt(
+              value, v -> configManager.setLoadParallelism(v), Settings.loadParallelism.name());
     }
   }
 
@@ -1,11 +1,13 @@
 package io.ludovicianul.timi.command.config;
 
 import io.ludovicianul.timi.config.ConfigManager;
+import io.ludovicianul.timi.persistence.DateRange;
 import io.ludovicianul.timi.persistence.EntryStore;
 import io.ludovicianul.timi.persistence.TimeEntry;
 import jakarta.inject.Inject;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 import picocli.CommandLine;
 
 @CommandLine.Command(
@@ -20,20 +22,24 @@ public class ValidateConfigCommand implements Runnable {
   public void run() {
     List<String> errors = new ArrayList<>();
 
-    for (TimeEntry entry : entryStore.loadAllEntries(null)) {
-      if (configManager.isNotValidActivity(entry.activityType())) {
-        errors.add("⚠️ Invalid activity type in entry " + entry.id() + ": " + entry.activityType());
-      }
-      for (String tag : entry.tags()) {
-        if (configManager.isNotValidTag(tag)) {
-          errors.add("⚠️ Invalid tag in entry " + entry.id() + ": " + tag);
-        }
-      }
-      for (String metaTag : entry.metaTags()) {
-        if (configManager.isNotValidMetaTag(metaTag)) {
-          errors.add("⚠️ Invalid meta tag in entry " + entry.id() + ": " + metaTag);
-        }
-      }
+    try (Stream<TimeEntry> entries = entryStore.query(DateRange.ALL, e -> true)) {
+      entries.forEach(
+          entry -> {
+            if (configManager.isNotValidActivity(entry.activityType())) {
+              errors.add(
+                  "⚠️ Invalid activity type in entry " + entry.id() + ": " + entry.activityType());
+            }
+            for (String tag : entry.tags()) {
+              if (configManager.isNotValidTag(tag)) {
+                errors.add("⚠️ Invalid tag in entry " + entry.id() + ": " + tag);
+              }
+            }
+            for (String metaTag : entry.metaTags()) {
+              if (configManager.isNotValidMetaTag(metaTag)) {
+                errors.add("⚠️ Invalid meta tag in entry " + entry.id() + ": " + metaTag);
+              }
+            }
+          });
     }
 
     if (errors.isEmpty()) {
@@ -1,41 +1,75 @@
 package io.ludovicianul.timi.config;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ludovicianul.timi.git.ChangeTracker;
+import io.ludovicianul.timi.persistence.DateRange;
 import io.ludovicianul.timi.persistence.EntryStore;
+import io.ludovicianul.timi.persistence.FileSignature;
+import io.ludovicianul.timi.persistence.JsonCodec;
+import io.ludovicianul.timi.persistence.TimeEntry;
+import io.ludovicianul.timi.util.StartupProfiler;
 import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.inject.Singleton;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
-@Singleton
+@ApplicationScoped
 public class ConfigManager {
   private final Path configPath = Path.of(System.getProperty("user.home"), ".timi", "config.json");
-  private final ObjectMapper mapper = new ObjectMapper();
+  private final JsonCodec codec;
 
-  private final ConfigData config;
+  private ConfigData config;
+  /** {@link FileSignature} of the config file as this process last read or wrote it. */
+  private long[] loadedSignature;
 
   @Inject EntryStore entryStore;
+  @Inject ChangeTracker changeTracker;
 
-  public ConfigManager() {
+  @Inject
+  public ConfigManager(JsonCodec codec) {
+    this.codec = codec;
+    long start = System.nanoTime();
     try {
       if (Files.exists(configPath)) {
-        config = mapper.readValue(configPath.toFile(), ConfigData.class);
+        read();
       } else {
         config = new ConfigData();
         config.tags.add("general");
         config.types.addAll(Set.of("work", "meeting", "prep"));
         config.metaTags.addAll(Set.of("ai", "boring", "urgent"));
-        save();
+        // Nothing is injected yet; the first commit of a new repository picks the file up with
+        // everything else.
+        write();
       }
     } catch (IOException e) {
       throw new RuntimeException("Failed to load config", e);
     }
+    StartupProfiler.recordBean("ConfigManager: load config", start);
+  }
+
+  /** Reads the config again if another process has changed it since it was last read. */
+  public void refresh() {
+    long[] signature = FileSignature.of(configPath);
+    if (Files.exists(configPath) && !Arrays.equals(loadedSignature, signature)) {
+      try {
+        read();
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to load config", e);
+      }
+    }
+  }
+
+  private void read() throws IOException {
+    config = codec.reader(ConfigData.class).readValue(configPath.toFile());
+    loadedSignature = FileSignature.of(configPath);
   }
 
   public boolean addTag(String tag) {
@@ -57,10 +91,7 @@ public class ConfigManager {
   }
 
   public boolean removeTag(String tag) {
-    boolean used =
-        entryStore.loadAllEntries(null).stream()
-            .flatMap(e -> e.tags().stream())
-            .anyMatch(t -> t.equalsIgnoreCase(tag));
+    boolean used = isUsed(e -> e.tags().stream().anyMatch(t -> t.equalsIgnoreCase(tag)));
 
     if (used) {
       System.out.printf("⚠️ Tag '%s' is in use by existing entries. Remove anyway? (y/N): ", tag);
@@ -79,9 +110,7 @@ public class ConfigManager {
   }
 
   public boolean removeActivityType(String type) {
-    boolean used =
-        entryStore.loadAllEntries(null).stream()
-            .anyMatch(e -> e.activityType().equalsIgnoreCase(type));
+    boolean used = isUsed(e -> e.activityType().equalsIgnoreCase(type));
     if (used) {
       System.out.printf(
           "⚠️ Activity type '%s' is in use by existing entries. Remove anyway? (y/N): ", type);
@@ -99,14 +128,30 @@ public class ConfigManager {
     return removed;
   }
 
+  /** Stops reading history at the first entry that matches. */
+  private boolean isUsed(Predicate<TimeEntry> usage) {
+    try (Stream<TimeEntry> entries = entryStore.query(DateRange.ALL, usage)) {
+      return entries.findAny().isPresent();
+    }
+  }
+
   public void save() {
     try {
-      mapper.writerWithDefaultPrettyPrinter().writeValue(configPath.toFile(), config);
+      write();
+      // Not set when the manager is built outside of CDI, e.g. by the benchmarks.
+      if (changeTracker != null) {
+        changeTracker.modified(configPath);
+      }
     } catch (IOException e) {
       throw new RuntimeException("Failed to save config", e);
     }
   }
 
+  private void write() throws IOException {
+    codec.prettyWriter(ConfigData.class).writeValue(configPath.toFile(), config);
+    loadedSignature = FileSignature.of(configPath);
+  }
+
   public Set<String> getTags() {
     return config.tags;
   }
@@ -197,6 +242,18 @@ public class ConfigManager {
     save();
   }
 
+  public int getLoadParallelism() {
+    return config.loadParallelism;
+  }
+
+  public void setLoadParallelism(int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Load parallelism cannot be negative.");
+    }
+    config.loadParallelism = value;
+    save();
+  }
+
   public boolean addMetaTag(String normalizedName) {
     if (!config.metaTags.contains(normalizedName)) {
       config.metaTags.add(normalizedName);
@@ -219,5 +276,6 @@ public class ConfigManager {
     public int shortDurationThreshold = 10;
     public int roundSessionMinutes = 0; // 0, 5, 10
     public String zenStyle = "zen"; // coach, zen, snarky
+    public int loadParallelism = 0; // 0 = one per CPU, 1 = sequential
   }
 }
@@ -0,0 +1,148 @@
+package io.ludovicianul.timi.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.OptionalInt;
+import java.util.Set;
+
+/**
+ * The thin client: hands a command line to a running {@code timi daemon} and relays its input and
+ * output. It runs before Quarkus boots, so it only uses the JDK.
+ */
+public final class DaemonClient {
+  /** Options taking a file path, made absolute because the daemon has its own working directory. */
+  private static final Set<String> PATH_OPTIONS = Set.of("--file", "--output", "-o");
+
+  private DaemonClient() {}
+
+  /**
+   * Runs {@code args} in the daemon.
+   *
+   * @return the command's exit code, or empty if no daemon is listening and the command should run
+   *     in-process
+   */
+  public static OptionalInt run(String... args) {
+    if (args.length > 0 && args[0].equals("daemon")
+        || Arrays.asList(args).contains("--profile-startup")) {
+      return OptionalInt.empty();
+    }
+    SocketChannel channel = connect();
+    if (channel == null) {
+      return OptionalInt.empty();
+    }
+
+    try (channel) {
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(DaemonProtocol.outputOf(channel)));
+      DataInputStream in =
+          new DataInputStream(new BufferedInputStream(DaemonProtocol.inputOf(channel)));
+      out.writeByte(DaemonProtocol.RUN);
+      out.writeInt(args.length);
+      for (String arg : absolutePaths(args)) {
+        out.writeUTF(arg);
+      }
+      out.flush();
+      Thread.ofPlatform().daemon().name("timi-stdin").start(() -> forwardStdin(out));
+
+      while (true) {
+        byte type = in.readByte();
+        switch (type) {
+          case DaemonProtocol.STDOUT -> {
+            System.out.write(DaemonProtocol.readPayload(in));
+            System.out.flush();
+          }
+          case DaemonProtocol.STDERR -> {
+            System.err.write(DaemonProtocol.readPayload(in));
+            System.err.flush();
+          }
+          case DaemonProtocol.EXIT -> {
+            return OptionalInt.of(in.readInt());
+          }
+          default -> throw new IOException("Unexpected frame from daemon: " + type);
+        }
+      }
+    } catch (IOException e) {
+      // The command may already have run, so it is not retried in-process.
+      System.err.println("❌ Lost connection to timi daemon: " + e.getMessage());
+      return OptionalInt.of(1);
+    }
+  }
+
+  public static boolean isRunning() {
+    try (SocketChannel channel = connect()) {
+      return channel != null;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /** Asks the daemon to stop; {@code false} if none is running. */
+  public static boolean stop() {
+    SocketChannel channel = connect();
+    if (channel == null) {
+      return false;
+    }
+    try (channel) {
+      DataOutputStream out = new DataOutputStream(DaemonProtocol.outputOf(channel));
+      out.writeByte(DaemonProtocol.STOP);
+      out.flush();
+      DataInputStream in = new DataInputStream(DaemonProtocol.inputOf(channel));
+      return in.readByte() == DaemonProtocol.EXIT;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /** Connects to the daemon socket, or returns {@code null} if nothing is listening on it. */
+  private static SocketChannel connect() {
+    Path socket = DaemonProtocol.socketPath();
+    if (!Files.exists(socket)) {
+      return null;
+    }
+    try {
+      return SocketChannel.open(UnixDomainSocketAddress.of(socket));
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static void forwardStdin(DataOutputStream out) {
+    byte[] buffer = new byte[8192];
+    try {
+      int read;
+      while ((read = System.in.read(buffer)) > 0) {
+        DaemonProtocol.writeFrame(out, DaemonProtocol.STDIN, buffer, 0, read);
+      }
+      DaemonProtocol.writeFrame(out, DaemonProtocol.STDIN_CLOSED, buffer, 0, 0);
+    } catch (IOException e) {
+      // The command finished and the connection is gone; nothing left to forward to.
+    }
+  }
+
+  private static String[] absolutePaths(String[] args) {
+    String[] resolved = args.clone();
+    for (int i = 0; i < resolved.length; i++) {
+      String arg = resolved[i];
+      int equals = arg.indexOf('=');
+      if (equals > 0 && PATH_OPTIONS.contains(arg.substring(0, equals))) {
+        resolved[i] = arg.substring(0, equals + 1) + absolute(arg.substring(equals + 1));
+      } else if (PATH_OPTIONS.contains(arg) && i + 1 < resolved.length) {
+        resolved[i + 1] = absolute(resolved[i + 1]);
+        i++;
+      }
+    }
+    return resolved;
+  }
+
+  private static String absolute(String path) {
+    return Path.of(path).toAbsolutePath().toString();
+  }
+}
@@ -0,0 +1,111 @@
+package io.ludovicianul.timi.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * Wire format between the thin client and {@code timi daemon}, spoken over the Unix domain socket
+ * {@code ~/.timi/run/daemon.sock}.
+ *
+ * <p>The client opens with a request: {@link #RUN} followed by the argument count and the arguments
+ * (modified UTF-8), or {@link #STOP}. After that both sides exchange frames of one type byte, a
+ * length and that many bytes: the client sends its standard input as {@link #STDIN} frames and an
+ * empty {@link #STDIN_CLOSED} frame at end of input, the daemon answers with {@link #STDOUT} and
+ * {@link #STDERR} frames and finishes with {@link #EXIT} followed by the exit code (no length).
+ */
+final class DaemonProtocol {
+  static final byte RUN = 'R';
+  static final byte STOP = 'S';
+  static final byte STDIN = 'I';
+  static final byte STDIN_CLOSED = 'C';
+  static final byte STDOUT = 'O';
+  static final byte STDERR = 'E';
+  static final byte EXIT = 'X';
+
+  private DaemonProtocol() {}
+
+  static Path socketPath() {
+    return Path.of(System.getProperty("user.home"), ".timi", "run", "daemon.sock");
+  }
+
+  static void writeFrame(DataOutputStream out, byte type, byte[] bytes, int offset, int length)
+      throws IOException {
+    synchronized (out) {
+      out.writeByte(type);
+      out.writeInt(length);
+      out.write(bytes, offset, length);
+      out.flush();
+    }
+  }
+
+  static byte[] readPayload(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  /**
+   * Reads straight from the channel. Unlike {@code Channels.newInputStream}, a blocked read does
+   * not hold a lock that writes from another thread need.
+   */
+  static InputStream inputOf(SocketChannel channel) {
+    return new InputStream() {
+      @Override
+      public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+      }
+
+      @Override
+      public int read(byte[] bytes, int offset, int length) throws IOException {
+        return length == 0 ? 0 : channel.read(ByteBuffer.wrap(bytes, offset, length));
+      }
+    };
+  }
+
+  static OutputStream outputOf(SocketChannel channel) {
+    return new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] bytes, int offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+    };
+  }
+
+  /** An output stream that sends everything written to it as frames of one type. */
+  static final class FrameOutputStream extends OutputStream {
+    private final DataOutputStream out;
+    private final byte type;
+
+    FrameOutputStream(DataOutputStream out, byte type) {
+      this.out = out;
+      this.type = type;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      if (length > 0) {
+        writeFrame(out, type, bytes, offset, length);
+      }
+    }
+  }
+}
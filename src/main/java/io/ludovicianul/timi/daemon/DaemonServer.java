@@ -0,0 +1,219 @@
+package io.ludovicianul.timi.daemon;
+
+import io.ludovicianul.timi.MainCommand;
+import io.ludovicianul.timi.config.ConfigManager;
+import io.ludovicianul.timi.git.ChangeTracker;
+import io.ludovicianul.timi.persistence.EntryStore;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import picocli.CommandLine;
+
+/**
+ * Serves timi commands to {@link DaemonClient}s from this process, so the stores, the config and
+ * their caches stay loaded between invocations.
+ *
+ * <p>Requests are handled one at a time: each gets a fresh picocli command tree, and {@code
+ * System.in}/{@code out}/{@code err} point at the client for the duration of the command. Git
+ * commits wait until the request in progress has finished writing. Timi commands run without the
+ * daemon may change the files in between, so each request first drops the indexes and config that
+ * no longer match their files on disk.
+ */
+@ApplicationScoped
+public class DaemonServer {
+  @Inject CommandLine.IFactory factory;
+  @Inject ChangeTracker changeTracker;
+  @Inject EntryStore entryStore;
+  @Inject ConfigManager configManager;
+
+  private volatile boolean running;
+
+  public Path socketPath() {
+    return DaemonProtocol.socketPath();
+  }
+
+  /** Listens until a client asks the daemon to stop. */
+  public void serve() throws IOException {
+    Path socket = socketPath();
+    createPrivateDirectory(socket.getParent());
+    // Left behind by a daemon that was killed; the caller checked nobody listens on it.
+    Files.deleteIfExists(socket);
+
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      // The socket is created with the umask, but its directory already keeps other users out.
+      server.bind(UnixDomainSocketAddress.of(socket));
+      try {
+        Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+      } catch (UnsupportedOperationException e) {
+        // Not a POSIX file system; the socket keeps the permissions of its directory.
+      }
+
+      running = true;
+      while (running) {
+        try (SocketChannel client = server.accept()) {
+          handle(client);
+        } catch (EOFException e) {
+          // A client that only checked whether the daemon is up.
+        } catch (IOException e) {
+          System.err.println("❌ Daemon request failed: " + e.getMessage());
+        }
+      }
+    } finally {
+      Files.deleteIfExists(socket);
+    }
+  }
+
+  /**
+   * Creates {@code directory} accessible to its owner only, or restricts it if it exists, before
+   * anything is bound inside it.
+   */
+  private static void createPrivateDirectory(Path directory) throws IOException {
+    Files.createDirectories(directory.getParent());
+    Set<PosixFilePermission> ownerOnly = PosixFilePermissions.fromString("rwx------");
+    try {
+      if (Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+        Files.setPosixFilePermissions(directory, ownerOnly);
+      } else {
+        Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(ownerOnly));
+      }
+    } catch (UnsupportedOperationException e) {
+      Files.createDirectories(directory);
+    }
+  }
+
+  private void handle(SocketChannel client) throws IOException {
+    DataInputStream in =
+        new DataInputStream(new BufferedInputStream(DaemonProtocol.inputOf(client)));
+    DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(DaemonProtocol.outputOf(client)));
+
+    int exitCode = 0;
+    if (in.readByte() == DaemonProtocol.STOP) {
+      running = false;
+    } else {
+      String[] args = new String[in.readInt()];
+      for (int i = 0; i < args.length; i++) {
+        args[i] = in.readUTF();
+      }
+      exitCode = execute(args, in, out);
+    }
+
+    synchronized (out) {
+      out.writeByte(DaemonProtocol.EXIT);
+      out.writeInt(exitCode);
+      out.flush();
+    }
+  }
+
+  private int execute(String[] args, DataInputStream in, DataOutputStream out) {
+    PrintStream stdout = System.out;
+    PrintStream stderr = System.err;
+    InputStream stdin = System.in;
+    PrintStream clientOut = clientStream(out, DaemonProtocol.STDOUT);
+    PrintStream clientErr = clientStream(out, DaemonProtocol.STDERR);
+    System.setOut(clientOut);
+    System.setErr(clientErr);
+    System.setIn(new ClientInput(in, clientOut, clientErr));
+    try {
+      if (args.length > 0 && args[0].equals("daemon")) {
+        System.err.println("❌ The daemon is already running.");
+        return 1;
+      }
+      return changeTracker.writing(
+          () -> {
+            entryStore.refresh();
+            configManager.refresh();
+            return new CommandLine(MainCommand.class, factory).execute(args);
+          });
+    } finally {
+      clientOut.flush();
+      clientErr.flush();
+      System.setOut(stdout);
+      System.setErr(stderr);
+      System.setIn(stdin);
+    }
+  }
+
+  private static PrintStream clientStream(DataOutputStream out, byte type) {
+    return new PrintStream(
+        new BufferedOutputStream(new DaemonProtocol.FrameOutputStream(out, type)),
+        true,
+        StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The client's standard input. Output is flushed before every blocking read so prompts show up
+   * before the daemon waits for the answer.
+   */
+  private static final class ClientInput extends InputStream {
+    private final DataInputStream in;
+    private final PrintStream out;
+    private final PrintStream err;
+    private byte[] buffer = new byte[0];
+    private int position;
+    private boolean closed;
+
+    private ClientInput(DataInputStream in, PrintStream out, PrintStream err) {
+      this.in = in;
+      this.out = out;
+      this.err = err;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] one = new byte[1];
+      return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      while (position == buffer.length) {
+        if (closed) {
+          return -1;
+        }
+        out.flush();
+        err.flush();
+        byte type = in.readByte();
+        byte[] payload = DaemonProtocol.readPayload(in);
+        if (type == DaemonProtocol.STDIN_CLOSED) {
+          closed = true;
+        } else if (type == DaemonProtocol.STDIN) {
+          buffer = payload;
+          position = 0;
+        } else {
+          throw new IOException("Unexpected frame from client: " + type);
+        }
+      }
+      int count = Math.min(length, buffer.length - position);
+      System.arraycopy(buffer, position, bytes, offset, count);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.length - position;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package io.ludovicianul.timi.git;
+
+import jakarta.inject.Singleton;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+
+/**
+ * Collects the files under {@code ~/.timi} written during this run, so {@link GitManager} can
+ * commit exactly those paths instead of scanning the whole directory. Stores report every file they
+ * create, overwrite or delete; a reported file that turns out unchanged simply adds nothing.
+ *
+ * <p>The daemon runs every request through {@link #writing}, and commits are written under the same
+ * lock, so a commit never captures a file a request is halfway through writing.
+ */
+@Singleton
+public class ChangeTracker {
+  private final Set<Path> changed = new TreeSet<>();
+  private final ReentrantLock writeLock = new ReentrantLock();
+
+  public synchronized void modified(Collection<Path> paths) {
+    paths.forEach(path -> changed.add(path.toAbsolutePath().normalize()));
+  }
+
+  public void modified(Path... paths) {
+    modified(List.of(paths));
+  }
+
+  /** Runs {@code work}, which may write files, while no commit is being written. */
+  public int writing(IntSupplier work) {
+    writeLock.lock();
+    try {
+      return work.getAsInt();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  ReentrantLock writeLock() {
+    return writeLock;
+  }
+
+  /** Returns and forgets everything reported so far. */
+  synchronized Set<Path> drain() {
+    Set<Path> drained = new TreeSet<>(changed);
+    changed.clear();
+    return drained;
+  }
+}
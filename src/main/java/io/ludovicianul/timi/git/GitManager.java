@@ -1,38 +1,223 @@
 package io.ludovicianul.timi.git;
 
 import io.ludovicianul.timi.config.ConfigManager;
+import io.ludovicianul.timi.util.StartupProfiler;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.inject.Singleton;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
-@Singleton
+/**
+ * Versions {@code ~/.timi} with git.
+ *
+ * <p>{@link #commit(String)} only records a commit intent and returns; a background virtual thread
+ * waits {@link #COALESCE_WINDOW_MILLIS} for more intents and turns everything that arrived into a
+ * single commit. Commits are written in-process by {@link InProcessGit}; whenever that is not
+ * possible the git binary ({@code git add} + {@code git commit}) is used instead. Only the files
+ * reported to the {@link ChangeTracker} are staged, never {@code session.json} or the term and note
+ * indexes, which every install derives from the months itself; they are dropped from the tree if an
+ * older version of timi committed them. Commits are written under the tracker's
+ * write lock, so under the daemon they never overlap a request's writes. When a commit fails, its
+ * paths are reported to the tracker again and go into the next one. Pending intents are flushed
+ * before the application exits.
+ *
+ * <p>The repository is only created, with {@code git init}, when the first commit is written, so
+ * commands that never commit (and installs with git disabled) never touch {@code .git}.
+ */
+@ApplicationScoped
 public class GitManager {
+  private static final long COALESCE_WINDOW_MILLIS = 250;
+  private static final long FLUSH_TIMEOUT_MILLIS = 65_000;
+  /** Transient and derived state that is never versioned. */
+  private static final Set<String> UNTRACKED =
+      Set.of(
+          "session.json",
+          "entries/terms.bin",
+          "entries/terms.log",
+          "entries/notes.bin",
+          "entries/notes.log");
+
   private final File repoDir = new File(System.getProperty("user.home"), ".timi");
+  private final InProcessGit inProcessGit = new InProcessGit(repoDir.toPath(), UNTRACKED);
   @Inject ConfigManager configManager;
+  @Inject ChangeTracker changeTracker;
+
+  private final List<String> pending = new ArrayList<>();
+  private Thread worker;
+  private boolean flushing;
+  private boolean repositoryReady;
+  /** Set once {@code git init} ran, until the whole tree has been committed. */
+  private boolean wholeTreePending;
+
+  public void commit(String message) {
+    if (!configManager.isGitEnabled()) {
+      // Nothing will ever commit these; don't let them pile up in a long-running daemon.
+      changeTracker.drain();
+      return;
+    }
+    synchronized (this) {
+      pending.add(message);
+      if (worker == null) {
+        worker = Thread.ofVirtual().name("timi-git-commit").start(this::drain);
+      }
+    }
+  }
 
-  public GitManager() {
+  /** Commits pending intents right away and waits until the queue is empty. */
+  @PreDestroy
+  public void flush() {
+    long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MILLIS;
+    synchronized (this) {
+      flushing = true;
+      notifyAll();
+      try {
+        while (worker != null && System.currentTimeMillis() < deadline) {
+          wait(Math.max(1, deadline - System.currentTimeMillis()));
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        flushing = false;
+      }
+    }
+  }
+
+  private void drain() {
+    while (true) {
+      List<String> batch;
+      synchronized (this) {
+        try {
+          if (!flushing) {
+            wait(COALESCE_WINDOW_MILLIS);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        if (pending.isEmpty()) {
+          worker = null;
+          notifyAll();
+          return;
+        }
+        batch = new ArrayList<>(pending);
+        pending.clear();
+      }
+
+      changeTracker.writeLock().lock();
+      Set<Path> changed = Set.of();
+      try {
+        ensureRepository();
+        changed = changeTracker.drain();
+        commitPaths(messageFor(batch), wholeTreePending ? null : relativize(changed));
+        wholeTreePending = false;
+      } catch (Exception e) {
+        // Report the paths again, so the next commit picks them up.
+        changeTracker.modified(changed);
+        System.err.println("❌ Git commit failed: " + e.getMessage());
+      } finally {
+        changeTracker.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Runs {@code git init} on first use, after which the whole tree is committed; afterwards the
+   * answer is remembered for the process.
+   */
+  private void ensureRepository() throws IOException, InterruptedException {
+    if (repositoryReady) {
+      return;
+    }
+    long start = System.nanoTime();
+    if (!new File(repoDir, ".git").exists()) {
+      executeGitCommand(List.of("init"));
+      wholeTreePending = true;
+    }
+    repositoryReady = true;
+    StartupProfiler.recordBean("GitManager: repository check", start);
+  }
+
+  /** Paths under the repository, relative and with {@code /} separators, minus untracked ones. */
+  private List<String> relativize(Set<Path> changed) {
+    Path root = repoDir.toPath().toAbsolutePath().normalize();
+    return changed.stream()
+        .filter(path -> path.startsWith(root) && !path.equals(root))
+        .map(path -> root.relativize(path).toString().replace(File.separatorChar, '/'))
+        .filter(path -> !UNTRACKED.contains(path))
+        .toList();
+  }
+
+  /**
+   * Commits the given paths, or the whole tree when {@code paths} is {@code null} (the first commit
+   * of a new repository).
+   */
+  private void commitPaths(String message, List<String> paths)
+      throws IOException, InterruptedException {
+    if (paths != null && paths.isEmpty()) {
+      return;
+    }
     try {
-      if (!new File(repoDir, ".git").exists()) {
-        executeGitCommand(List.of("init"));
+      inProcessGit.commit(message, paths);
+    } catch (IOException | RuntimeException e) {
+      if (paths == null) {
+        executeGitCommand(
+            concat(
+                List.of("add", "-A", "--", "."),
+                UNTRACKED.stream().map(path -> ":(exclude)" + path).toList()));
+      } else {
+        List<String> present = paths.stream().filter(p -> new File(repoDir, p).exists()).toList();
+        List<String> missing = paths.stream().filter(p -> !present.contains(p)).toList();
+        if (!present.isEmpty()) {
+          executeGitCommand(concat(List.of("add", "--"), present));
+        }
+        if (!missing.isEmpty()) {
+          executeGitCommand(
+              concat(List.of("rm", "--cached", "--quiet", "--ignore-unmatch", "--"), missing));
+        }
       }
-    } catch (Exception e) {
-      throw new RuntimeException("Git init failed", e);
+      // Older repositories may still track these; unstage them as the in-process writer does.
+      executeGitCommand(
+          concat(
+              List.of("rm", "--cached", "--quiet", "--ignore-unmatch", "--"),
+              List.copyOf(UNTRACKED)));
+      executeGitCommand(List.of("commit", "-m", message));
     }
+    packIfNeeded();
   }
 
-  public void commit(String message) {
+  /**
+   * Runs {@code git gc --auto} once the in-process writer has left enough loose objects behind,
+   * as {@code git commit} would. Git packs in the background; failures only mean the objects stay
+   * loose until the next commit tries again.
+   */
+  private void packIfNeeded() throws InterruptedException {
     try {
-      if (configManager.isGitEnabled()) {
-        executeGitCommand(List.of("add", "."));
-        executeGitCommand(List.of("commit", "-m", message));
+      if (inProcessGit.needsPacking()) {
+        executeGitCommand(List.of("gc", "--auto", "--quiet"));
       }
-    } catch (Exception e) {
-      throw new RuntimeException("Git commit failed", e);
+    } catch (IOException | RuntimeException e) {
+      // Housekeeping only; the commit itself succeeded.
+    }
+  }
+
+  private static List<String> concat(List<String> command, List<String> paths) {
+    List<String> all = new ArrayList<>(command);
+    all.addAll(paths);
+    return all;
+  }
+
+  private static String messageFor(List<String> intents) {
+    if (intents.size() == 1) {
+      return intents.getFirst();
     }
+    StringBuilder message = new StringBuilder(intents.size() + " changes\n");
+    intents.forEach(intent -> message.append("\n- ").append(intent));
+    return message.toString();
   }
 
   private void executeGitCommand(List<String> commands) throws IOException, InterruptedException {
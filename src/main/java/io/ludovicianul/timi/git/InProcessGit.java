@@ -0,0 +1,495 @@
+package io.ludovicianul.timi.git;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Commits straight into {@code .git} without forking the git binary: changed files are written as
+ * loose blobs, only the trees on their paths are rewritten, and a commit object, the branch ref,
+ * the reflogs and {@code .git/index} are updated the way {@code git commit} would. Existing
+ * objects are read loose or from packs.
+ *
+ * <p>Anything outside this small subset (a {@code .gitignore} during a full scan, symlinks, a
+ * missing author identity, a held lock) raises {@link UnsupportedOperationException} or {@link
+ * IOException}, and {@link GitManager} falls back to the git binary. Moving the branch ref is the
+ * last step, so a failure leaves the branch where it was: at worst new objects, an index already
+ * matching the files and a reflog line for a commit that never landed, all of which the git binary
+ * commit made instead simply supersedes.
+ */
+final class InProcessGit {
+  private static final String FILE_MODE = "100644";
+  private static final String EXECUTABLE_MODE = "100755";
+  private static final String TREE_MODE = "40000";
+  private static final String ZERO_ID = "0".repeat(40);
+  private static final DateTimeFormatter OFFSET = DateTimeFormatter.ofPattern("xx");
+
+  private final Path workTree;
+  private final Path gitDir;
+  private final LooseObjectStore objects;
+  private final Set<String> untracked;
+
+  /** Where {@code GIT_AUTHOR_*} and {@code GIT_COMMITTER_*} are read from; tests replace it. */
+  Map<String, String> environment = System.getenv();
+
+  /** {@code untracked} paths are never committed, and dropped from the tree if it has them. */
+  InProcessGit(Path workTree, Set<String> untracked) {
+    this.workTree = workTree;
+    this.untracked = untracked;
+    this.gitDir = workTree.resolve(".git");
+    this.objects = new LooseObjectStore(gitDir);
+  }
+
+  /**
+   * Commits the current content of {@code paths} (relative to the work tree; a path that no longer
+   * exists is removed), or of the whole work tree when {@code paths} is {@code null}.
+   *
+   * @return {@code false} if the resulting tree equals the parent's and nothing was committed
+   */
+  boolean commit(String message, Collection<String> paths) throws IOException {
+    Map<String, String> user = userConfig();
+    String author = identity("AUTHOR", user);
+    String committer = identity("COMMITTER", user);
+    String refName = headRef();
+    String parent = refName == null ? readDetachedHead() : readRef(refName);
+    String parentTree = parent == null ? null : treeOfCommit(parent);
+
+    Tree root = new Tree(parentTree);
+    Collection<String> targets = paths == null ? allPaths(root) : paths;
+    for (String path : targets) {
+      Path file = workTree.resolve(path);
+      if (Files.isSymbolicLink(file)) {
+        throw new UnsupportedOperationException("Symbolic links are not supported: " + path);
+      }
+      if (Files.isRegularFile(file)) {
+        String mode = Files.isExecutable(file) ? EXECUTABLE_MODE : FILE_MODE;
+        root.put(path.split("/"), 0, mode, objects.write("blob", Files.readAllBytes(file)));
+      } else {
+        root.remove(path.split("/"), 0);
+      }
+    }
+    // Repositories from before these paths were excluded may still track them.
+    for (String path : untracked) {
+      root.remove(path.split("/"), 0);
+    }
+
+    String tree = root.write();
+    if (tree.equals(parentTree) || (parent == null && root.entries().isEmpty())) {
+      return false;
+    }
+
+    String text = message.endsWith("\n") ? message : message + "\n";
+    StringBuilder commit = new StringBuilder("tree ").append(tree).append('\n');
+    if (parent != null) {
+      commit.append("parent ").append(parent).append('\n');
+    }
+    commit.append("author ").append(author).append('\n');
+    commit.append("committer ").append(committer).append("\n\n").append(text);
+    String id = objects.write("commit", commit.toString().getBytes(StandardCharsets.UTF_8));
+
+    writeIndex(root);
+    String subject = text.lines().findFirst().orElse("");
+    String reflog =
+        (parent == null ? ZERO_ID : parent)
+            + " "
+            + id
+            + " "
+            + committer
+            + "\tcommit"
+            + (parent == null ? " (initial)" : "")
+            + ": "
+            + subject
+            + "\n";
+    updateRef(refName, id, reflog);
+    return true;
+  }
+
+  /** Whether loose objects have piled up enough that {@code git gc --auto} should pack them. */
+  boolean needsPacking() throws IOException {
+    return objects.needsPacking();
+  }
+
+  /** Every file in the work tree plus every file in the parent tree, so deletions are seen. */
+  private Collection<String> allPaths(Tree root) throws IOException {
+    if (Files.exists(workTree.resolve(".gitignore"))) {
+      throw new UnsupportedOperationException(".gitignore is only honoured by the git binary");
+    }
+    Set<String> paths = new TreeSet<>();
+    try (Stream<Path> files = Files.walk(workTree)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Path relative = workTree.relativize(file);
+        if (relative.getNameCount() > 0
+            && !relative.getName(0).toString().equals(".git")
+            && !Files.isDirectory(file)) {
+          paths.add(relative.toString().replace('\\', '/'));
+        }
+      }
+    }
+    root.collect("", (path, mode, id) -> paths.add(path));
+    paths.removeAll(untracked);
+    return paths;
+  }
+
+  // --- refs -------------------------------------------------------------------------------------
+
+  /** The branch HEAD points to, or {@code null} if HEAD is detached. */
+  private String headRef() throws IOException {
+    String head = Files.readString(gitDir.resolve("HEAD")).trim();
+    return head.startsWith("ref: ") ? head.substring(5).trim() : null;
+  }
+
+  private String readDetachedHead() throws IOException {
+    return Files.readString(gitDir.resolve("HEAD")).trim();
+  }
+
+  /** Resolves a loose or packed ref; {@code null} for an unborn branch. */
+  private String readRef(String refName) throws IOException {
+    Path loose = gitDir.resolve(refName);
+    if (Files.exists(loose)) {
+      return Files.readString(loose).trim();
+    }
+    Path packed = gitDir.resolve("packed-refs");
+    if (Files.exists(packed)) {
+      for (String line : Files.readAllLines(packed)) {
+        if (line.endsWith(" " + refName) && !line.startsWith("#")) {
+          return line.substring(0, line.indexOf(' '));
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Points {@code refName} (the branch, or {@code HEAD} itself when detached) at {@code id}. Like
+   * git, the ref is locked first and the reflogs are written before the lock is renamed over the
+   * ref, so nothing can fail once the branch has moved.
+   */
+  private void updateRef(String refName, String id, String reflog) throws IOException {
+    Path ref = gitDir.resolve(refName == null ? "HEAD" : refName);
+    Files.createDirectories(ref.getParent());
+    Path lock = ref.resolveSibling(ref.getFileName() + ".lock");
+    replaceLocked(
+        lock,
+        ref,
+        (id + "\n").getBytes(StandardCharsets.UTF_8),
+        () -> {
+          appendReflog("HEAD", reflog);
+          if (refName != null) {
+            appendReflog(refName, reflog);
+          }
+        });
+  }
+
+  /**
+   * Writes {@code content} to {@code lock}, runs {@code beforeMove} and renames the lock over
+   * {@code target}. Creating the lock fails if another process holds it; once this method has
+   * created it, it deletes it again on any failure, so a failed commit never blocks the next one.
+   */
+  private static void replaceLocked(Path lock, Path target, byte[] content, IoStep beforeMove)
+      throws IOException {
+    OutputStream out =
+        Files.newOutputStream(lock, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    boolean moved = false;
+    try {
+      try (out) {
+        out.write(content);
+      }
+      beforeMove.run();
+      Files.move(lock, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      moved = true;
+    } finally {
+      if (!moved) {
+        Files.deleteIfExists(lock);
+      }
+    }
+  }
+
+  private interface IoStep {
+    void run() throws IOException;
+  }
+
+  private void appendReflog(String refName, String line) throws IOException {
+    Path log = gitDir.resolve("logs").resolve(refName);
+    Files.createDirectories(log.getParent());
+    Files.writeString(
+        log, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  private String treeOfCommit(String commitId) throws IOException {
+    String commit = new String(objects.read(commitId, "commit"), StandardCharsets.UTF_8);
+    if (!commit.startsWith("tree ")) {
+      throw new IOException("Commit " + commitId + " has no tree");
+    }
+    return commit.substring(5, 45);
+  }
+
+  // --- identity ---------------------------------------------------------------------------------
+
+  /**
+   * {@code "Name <email> <epoch seconds> <+hhmm>"} for {@code role} ({@code AUTHOR} or {@code
+   * COMMITTER}): from {@code GIT_<role>_NAME} and {@code GIT_<role>_EMAIL}, as git reads them, or
+   * else from the {@code user} section of the git config.
+   */
+  private String identity(String role, Map<String, String> user) {
+    String name = environment.getOrDefault("GIT_" + role + "_NAME", user.get("name"));
+    String email = environment.getOrDefault("GIT_" + role + "_EMAIL", user.get("email"));
+    if (name == null || email == null) {
+      throw new UnsupportedOperationException("No git user.name/user.email configured");
+    }
+    ZonedDateTime now = ZonedDateTime.now(ZoneId.systemDefault());
+    return name + " <" + email + "> " + now.toEpochSecond() + " " + now.format(OFFSET);
+  }
+
+  /** The {@code user} section of the XDG, global and repository git config, later ones winning. */
+  private Map<String, String> userConfig() throws IOException {
+    Map<String, String> user = new HashMap<>();
+    String home = environment.getOrDefault("HOME", System.getProperty("user.home"));
+    String xdg = environment.getOrDefault("XDG_CONFIG_HOME", home + "/.config");
+    Path global = Path.of(home, ".gitconfig");
+    List<Path> configs = List.of(Path.of(xdg, "git", "config"), global, gitDir.resolve("config"));
+    for (Path config : configs) {
+      readUserSection(config, user);
+    }
+    return user;
+  }
+
+  private static void readUserSection(Path config, Map<String, String> user) throws IOException {
+    if (!Files.exists(config)) {
+      return;
+    }
+    boolean inUser = false;
+    for (String raw : Files.readAllLines(config)) {
+      String line = raw.trim();
+      if (line.startsWith("[")) {
+        inUser = line.replace(" ", "").equalsIgnoreCase("[user]");
+      } else if (inUser && line.contains("=")) {
+        String key = line.substring(0, line.indexOf('=')).trim().toLowerCase();
+        String value = line.substring(line.indexOf('=') + 1).trim();
+        if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+          value = value.substring(1, value.length() - 1);
+        }
+        user.put(key, value);
+      }
+    }
+  }
+
+  // --- index ------------------------------------------------------------------------------------
+
+  /**
+   * Rewrites {@code .git/index} (version 2) to match the committed tree. Only size and mtime are
+   * filled in; git notices the other stat fields differ and re-hashes those files on the next
+   * {@code git status}, finding them clean.
+   */
+  private void writeIndex(Tree root) throws IOException {
+    List<String[]> entries = new ArrayList<>();
+    root.collect("", (path, mode, id) -> entries.add(new String[] {path, mode, id}));
+    entries.sort(
+        Comparator.comparing(e -> e[0].getBytes(StandardCharsets.UTF_8), Arrays::compareUnsigned));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeBytes("DIRC");
+    out.writeInt(2);
+    out.writeInt(entries.size());
+    for (String[] entry : entries) {
+      Path file = workTree.resolve(entry[0]);
+      long mtimeNanos = 0;
+      long size = 0;
+      if (Files.isRegularFile(file)) {
+        var modified = Files.getLastModifiedTime(file).toInstant();
+        mtimeNanos = modified.getEpochSecond() * 1_000_000_000L + modified.getNano();
+        size = Files.size(file);
+      }
+      byte[] path = entry[0].getBytes(StandardCharsets.UTF_8);
+      out.writeInt(0); // ctime seconds
+      out.writeInt(0); // ctime nanoseconds
+      out.writeInt((int) (mtimeNanos / 1_000_000_000L));
+      out.writeInt((int) (mtimeNanos % 1_000_000_000L));
+      out.writeInt(0); // dev
+      out.writeInt(0); // ino
+      out.writeInt(Integer.parseInt(entry[1], 8));
+      out.writeInt(0); // uid
+      out.writeInt(0); // gid
+      out.writeInt((int) size);
+      out.write(LooseObjectStore.unhex(entry[2]));
+      out.writeShort(Math.min(path.length, 0xFFF));
+      out.write(path);
+      int length = 62 + path.length;
+      out.write(new byte[8 - length % 8]);
+    }
+    out.flush();
+    bytes.writeBytes(LooseObjectStore.sha1(bytes.toByteArray()));
+
+    Path index = gitDir.resolve("index");
+    replaceLocked(gitDir.resolve("index.lock"), index, bytes.toByteArray(), () -> {});
+  }
+
+  // --- trees ------------------------------------------------------------------------------------
+
+  private interface EntryVisitor {
+    void visit(String path, String mode, String id);
+  }
+
+  private static final class Entry {
+    private String mode;
+    private String id;
+    private Tree tree;
+
+    private Entry(String mode, String id) {
+      this.mode = mode;
+      this.id = id;
+    }
+
+    private boolean isTree() {
+      return TREE_MODE.equals(mode);
+    }
+  }
+
+  /** A tree loaded on demand from its object; any change clears {@link #id} until rewritten. */
+  private final class Tree {
+    private String id;
+    private Map<String, Entry> entries;
+
+    private Tree(String id) {
+      this.id = id;
+    }
+
+    private Map<String, Entry> entries() throws IOException {
+      if (entries == null) {
+        entries = new LinkedHashMap<>();
+        if (id != null) {
+          parse(objects.read(id, "tree"));
+        }
+      }
+      return entries;
+    }
+
+    private void parse(byte[] content) {
+      int i = 0;
+      while (i < content.length) {
+        int space = i;
+        while (content[space] != ' ') {
+          space++;
+        }
+        int nul = space + 1;
+        while (content[nul] != 0) {
+          nul++;
+        }
+        String mode = new String(content, i, space - i, StandardCharsets.US_ASCII);
+        String name = new String(content, space + 1, nul - space - 1, StandardCharsets.UTF_8);
+        String entryId = LooseObjectStore.hex(Arrays.copyOfRange(content, nul + 1, nul + 21));
+        entries.put(name, new Entry(mode, entryId));
+        i = nul + 21;
+      }
+    }
+
+    private Tree subtree(Entry entry) {
+      if (entry.tree == null) {
+        entry.tree = new Tree(entry.id);
+      }
+      return entry.tree;
+    }
+
+    private void put(String[] path, int depth, String mode, String blobId) throws IOException {
+      Entry entry = entries().get(path[depth]);
+      if (depth == path.length - 1) {
+        if (entry != null && mode.equals(entry.mode) && blobId.equals(entry.id)) {
+          return;
+        }
+        entries().put(path[depth], new Entry(mode, blobId));
+      } else {
+        if (entry == null || !entry.isTree()) {
+          entry = new Entry(TREE_MODE, null);
+          entries().put(path[depth], entry);
+        }
+        subtree(entry).put(path, depth + 1, mode, blobId);
+      }
+      id = null;
+    }
+
+    private void remove(String[] path, int depth) throws IOException {
+      Entry entry = entries().get(path[depth]);
+      if (entry == null) {
+        return;
+      }
+      if (depth == path.length - 1) {
+        if (entry.isTree()) {
+          return;
+        }
+        entries().remove(path[depth]);
+        id = null;
+      } else if (entry.isTree()) {
+        Tree child = subtree(entry);
+        child.remove(path, depth + 1);
+        if (child.id == null) {
+          id = null;
+        }
+      }
+    }
+
+    /** Writes this tree and any changed subtrees; empty subtrees are dropped. */
+    private String write() throws IOException {
+      if (id != null) {
+        return id;
+      }
+      List<Map.Entry<String, Entry>> sorted = new ArrayList<>();
+      for (Map.Entry<String, Entry> e : new ArrayList<>(entries().entrySet())) {
+        Entry entry = e.getValue();
+        if (entry.isTree() && entry.tree != null && entry.tree.id == null) {
+          entry.id = entry.tree.entries().isEmpty() ? null : entry.tree.write();
+          if (entry.tree.entries().isEmpty()) {
+            entries().remove(e.getKey());
+            continue;
+          }
+        }
+        sorted.add(e);
+      }
+      // Git orders entries by name, comparing a tree's name as if it ended with '/'.
+      sorted.sort(
+          Comparator.comparing(
+              e -> (e.getKey() + (e.getValue().isTree() ? "/" : ""))
+                  .getBytes(StandardCharsets.UTF_8),
+              Arrays::compareUnsigned));
+
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      for (Map.Entry<String, Entry> e : sorted) {
+        content.writeBytes(
+            (e.getValue().mode + " " + e.getKey() + "\0").getBytes(StandardCharsets.UTF_8));
+        content.writeBytes(LooseObjectStore.unhex(e.getValue().id));
+      }
+      id = objects.write("tree", content.toByteArray());
+      return id;
+    }
+
+    private void collect(String prefix, EntryVisitor visitor) throws IOException {
+      for (Map.Entry<String, Entry> e : entries().entrySet()) {
+        String path = prefix + e.getKey();
+        if (e.getValue().isTree()) {
+          subtree(e.getValue()).collect(path + "/", visitor);
+        } else {
+          visitor.visit(path, e.getValue().mode, e.getValue().id);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package io.ludovicianul.timi.git;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Minimal reader/writer for git loose objects ({@code .git/objects/xx/yyyy…}): a {@code "<type>
+ * <size>\0"} header followed by the content, zlib-compressed and named by the SHA-1 of the
+ * uncompressed bytes. Objects are always written loose; reads fall back to {@link PackFiles} for
+ * objects that {@code git gc} has packed.
+ */
+final class LooseObjectStore {
+  private static final HexFormat HEX = HexFormat.of();
+
+  /** {@code git gc --auto} packs once {@code objects/17} holds more than this many objects. */
+  private static final int GC_AUTO_SAMPLE_LIMIT = (6700 + 255) / 256;
+
+  private final Path objectsDir;
+  private final PackFiles packs;
+
+  LooseObjectStore(Path gitDir) {
+    this.objectsDir = gitDir.resolve("objects");
+    this.packs = new PackFiles(gitDir);
+  }
+
+  /** Writes the object unless it already exists and returns its hex ID. */
+  String write(String type, byte[] content) throws IOException {
+    byte[] header = (type + " " + content.length + "\0").getBytes(StandardCharsets.US_ASCII);
+    byte[] raw = new byte[header.length + content.length];
+    System.arraycopy(header, 0, raw, 0, header.length);
+    System.arraycopy(content, 0, raw, header.length, content.length);
+
+    String id = HEX.formatHex(sha1(raw));
+    Path file = pathOf(id);
+    if (Files.exists(file)) {
+      return id;
+    }
+
+    Files.createDirectories(file.getParent());
+    Path tmp = Files.createTempFile(file.getParent(), "tmp_obj_", "");
+    try {
+      Files.write(tmp, deflate(raw));
+      Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      Files.deleteIfExists(tmp);
+      if (!Files.exists(file)) {
+        throw e;
+      }
+    }
+    return id;
+  }
+
+  /** Reads an object's content, checking that it has the expected type. */
+  byte[] read(String id, String expectedType) throws IOException {
+    Path file = pathOf(id);
+    if (!Files.exists(file)) {
+      PackFiles.PackedObject packed = packs.read(id);
+      if (packed == null) {
+        throw new IOException("Object " + id + " not found");
+      }
+      if (!packed.type().equals(expectedType)) {
+        throw new IOException("Object " + id + " is not a " + expectedType + ": " + packed.type());
+      }
+      return packed.content();
+    }
+
+    byte[] raw = inflate(Files.readAllBytes(file));
+    int nul = 0;
+    while (nul < raw.length && raw[nul] != 0) {
+      nul++;
+    }
+    String header = new String(raw, 0, nul, StandardCharsets.US_ASCII);
+    if (!header.startsWith(expectedType + " ")) {
+      throw new IOException("Object " + id + " is not a " + expectedType + ": " + header);
+    }
+    byte[] content = new byte[raw.length - nul - 1];
+    System.arraycopy(raw, nul + 1, content, 0, content.length);
+    return content;
+  }
+
+  /**
+   * Whether enough loose objects have piled up that {@code git gc --auto} would pack them. Uses the
+   * same estimate as git: the number of objects in {@code objects/17}.
+   */
+  boolean needsPacking() throws IOException {
+    Path sample = objectsDir.resolve("17");
+    if (!Files.isDirectory(sample)) {
+      return false;
+    }
+    try (Stream<Path> files = Files.list(sample)) {
+      return files.limit(GC_AUTO_SAMPLE_LIMIT + 1).count() > GC_AUTO_SAMPLE_LIMIT;
+    }
+  }
+
+  static byte[] sha1(byte[] bytes) {
+    try {
+      return MessageDigest.getInstance("SHA-1").digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static String hex(byte[] bytes) {
+    return HEX.formatHex(bytes);
+  }
+
+  static byte[] unhex(String id) {
+    return HEX.parseHex(id);
+  }
+
+  private Path pathOf(String id) {
+    return objectsDir.resolve(id.substring(0, 2)).resolve(id.substring(2));
+  }
+
+  private static byte[] deflate(byte[] raw) {
+    Deflater deflater = new Deflater();
+    try {
+      deflater.setInput(raw);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate(byte[] compressed) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressed);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 3);
+      byte[] buffer = new byte[8192];
+      while (!inflater.finished()) {
+        int n = inflater.inflate(buffer);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Truncated git object");
+        }
+        out.write(buffer, 0, n);
+      }
+      return out.toByteArray();
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt git object", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
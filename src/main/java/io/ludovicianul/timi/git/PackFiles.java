@@ -0,0 +1,260 @@
+package io.ludovicianul.timi.git;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only lookups in {@code .git/objects/pack}, so the in-process writer keeps working after
+ * {@code git gc} has packed the history. Each version 2 {@code .idx} is read once and
+ * binary-searched; the matching {@code .pack} is memory-mapped, and deltified entries are rebuilt
+ * from their base. The pack directory is scanned again when an object is not found, to pick up
+ * packs written since.
+ */
+final class PackFiles {
+  private static final int IDX_MAGIC = 0xFF744F63; // "\377tOc"
+  private static final int IDX_HEADER_BYTES = 8 + 256 * 4;
+  private static final int OFS_DELTA = 6;
+  private static final int REF_DELTA = 7;
+  private static final String[] TYPES = {null, "commit", "tree", "blob", "tag"};
+
+  private final Path packDir;
+  private List<Pack> packs;
+
+  PackFiles(Path gitDir) {
+    this.packDir = gitDir.resolve("objects").resolve("pack");
+  }
+
+  /** An object's type and content. */
+  record PackedObject(String type, byte[] content) {}
+
+  /** Returns the object with the given hex ID, or {@code null} if no pack holds it. */
+  PackedObject read(String id) throws IOException {
+    byte[] name = LooseObjectStore.unhex(id);
+    PackedObject found = find(name);
+    if (found == null) {
+      packs = null;
+      found = find(name);
+    }
+    return found;
+  }
+
+  private PackedObject find(byte[] name) throws IOException {
+    for (Pack pack : packs()) {
+      long offset = pack.offsetOf(name);
+      if (offset >= 0) {
+        return pack.read(offset);
+      }
+    }
+    return null;
+  }
+
+  private List<Pack> packs() throws IOException {
+    if (packs == null) {
+      List<Pack> found = new ArrayList<>();
+      if (Files.isDirectory(packDir)) {
+        try (Stream<Path> files = Files.list(packDir)) {
+          for (Path idx : files.filter(f -> f.toString().endsWith(".idx")).sorted().toList()) {
+            String name = idx.getFileName().toString();
+            Path pack = idx.resolveSibling(name.substring(0, name.length() - 4) + ".pack");
+            if (Files.exists(pack)) {
+              found.add(new Pack(Files.readAllBytes(idx), pack));
+            }
+          }
+        }
+      }
+      packs = found;
+    }
+    return packs;
+  }
+
+  private final class Pack {
+    private final ByteBuffer idx;
+    private final int count;
+    private final Path packFile;
+    private ByteBuffer data;
+
+    private Pack(byte[] idxBytes, Path packFile) {
+      this.idx = ByteBuffer.wrap(idxBytes);
+      this.packFile = packFile;
+      if (idxBytes.length < IDX_HEADER_BYTES || idx.getInt(0) != IDX_MAGIC || idx.getInt(4) != 2) {
+        throw new UnsupportedOperationException("Unsupported pack index: " + packFile);
+      }
+      this.count = idx.getInt(IDX_HEADER_BYTES - 4);
+    }
+
+    /** Offset of {@code name} in the pack, or {@code -1}. */
+    private long offsetOf(byte[] name) {
+      int first = name[0] & 0xFF;
+      int low = first == 0 ? 0 : idx.getInt(8 + (first - 1) * 4);
+      int high = idx.getInt(8 + first * 4) - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int cmp = compareName(mid, name);
+        if (cmp < 0) {
+          low = mid + 1;
+        } else if (cmp > 0) {
+          high = mid - 1;
+        } else {
+          int offsets = IDX_HEADER_BYTES + count * 24;
+          int offset = idx.getInt(offsets + mid * 4);
+          if (offset >= 0) {
+            return offset;
+          }
+          return idx.getLong(offsets + count * 4 + (offset & 0x7FFFFFFF) * 8);
+        }
+      }
+      return -1;
+    }
+
+    private int compareName(int slot, byte[] name) {
+      int start = IDX_HEADER_BYTES + slot * 20;
+      for (int i = 0; i < 20; i++) {
+        int cmp = Integer.compare(idx.get(start + i) & 0xFF, name[i] & 0xFF);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return 0;
+    }
+
+    private PackedObject read(long offset) throws IOException {
+      ByteBuffer data = data();
+      int position = (int) offset;
+      int c = data.get(position++) & 0xFF;
+      int type = (c >> 4) & 7;
+      long size = c & 0x0F;
+      for (int shift = 4; (c & 0x80) != 0; shift += 7) {
+        c = data.get(position++) & 0xFF;
+        size |= (long) (c & 0x7F) << shift;
+      }
+
+      if (type == OFS_DELTA) {
+        c = data.get(position++) & 0xFF;
+        long distance = c & 0x7F;
+        while ((c & 0x80) != 0) {
+          c = data.get(position++) & 0xFF;
+          distance = ((distance + 1) << 7) | (c & 0x7F);
+        }
+        PackedObject base = read(offset - distance);
+        return new PackedObject(base.type(), applyDelta(base.content(), inflate(position, size)));
+      }
+      if (type == REF_DELTA) {
+        byte[] baseName = new byte[20];
+        data.get(position, baseName);
+        PackedObject base = find(baseName);
+        if (base == null) {
+          throw new IOException("Missing delta base " + LooseObjectStore.hex(baseName));
+        }
+        byte[] delta = inflate(position + 20, size);
+        return new PackedObject(base.type(), applyDelta(base.content(), delta));
+      }
+      if (type >= TYPES.length || TYPES[type] == null) {
+        throw new IOException("Unknown pack entry type " + type + " in " + packFile);
+      }
+      return new PackedObject(TYPES[type], inflate(position, size));
+    }
+
+    private ByteBuffer data() throws IOException {
+      if (data == null) {
+        try (FileChannel channel = FileChannel.open(packFile, StandardOpenOption.READ)) {
+          if (channel.size() > Integer.MAX_VALUE) {
+            throw new UnsupportedOperationException("Pack too large to map: " + packFile);
+          }
+          data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+      }
+      return data;
+    }
+
+    private byte[] inflate(int position, long size) throws IOException {
+      if (size > Integer.MAX_VALUE) {
+        throw new UnsupportedOperationException("Pack entry too large: " + size + " bytes");
+      }
+      Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(data.slice(position, data.limit() - position));
+        byte[] out = new byte[(int) size];
+        int filled = 0;
+        while (filled < out.length) {
+          int n = inflater.inflate(out, filled, out.length - filled);
+          if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+            throw new IOException("Truncated pack entry in " + packFile);
+          }
+          filled += n;
+        }
+        return out;
+      } catch (DataFormatException e) {
+        throw new IOException("Corrupt pack entry in " + packFile, e);
+      } finally {
+        inflater.end();
+      }
+    }
+  }
+
+  /** Rebuilds an object from its base and a git delta (copy and insert instructions). */
+  static byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+    int[] position = {0};
+    long baseSize = deltaSize(delta, position);
+    long resultSize = deltaSize(delta, position);
+    if (baseSize != base.length || resultSize > Integer.MAX_VALUE) {
+      throw new IOException("Delta does not match its base");
+    }
+
+    byte[] result = new byte[(int) resultSize];
+    int out = 0;
+    int i = position[0];
+    while (i < delta.length) {
+      int op = delta[i++] & 0xFF;
+      if ((op & 0x80) != 0) {
+        long from = 0;
+        for (int b = 0; b < 4; b++) {
+          if ((op & (1 << b)) != 0) {
+            from |= (long) (delta[i++] & 0xFF) << (8 * b);
+          }
+        }
+        int length = 0;
+        for (int b = 0; b < 3; b++) {
+          if ((op & (0x10 << b)) != 0) {
+            length |= (delta[i++] & 0xFF) << (8 * b);
+          }
+        }
+        if (length == 0) {
+          length = 0x10000;
+        }
+        System.arraycopy(base, (int) from, result, out, length);
+        out += length;
+      } else if (op != 0) {
+        System.arraycopy(delta, i, result, out, op);
+        i += op;
+        out += op;
+      } else {
+        throw new IOException("Corrupt delta instruction");
+      }
+    }
+    if (out != result.length) {
+      throw new IOException("Delta produced " + out + " of " + result.length + " bytes");
+    }
+    return result;
+  }
+
+  private static long deltaSize(byte[] delta, int[] position) {
+    long size = 0;
+    int shift = 0;
+    int c;
+    do {
+      c = delta[position[0]++] & 0xFF;
+      size |= (long) (c & 0x7F) << shift;
+      shift += 7;
+    } while ((c & 0x80) != 0);
+    return size;
+  }
+}
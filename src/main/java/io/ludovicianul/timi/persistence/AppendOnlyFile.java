@@ -0,0 +1,93 @@
+package io.ludovicianul.timi.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Durable line appends shared by the month journals and the index logs. A crash mid-append can
+ * leave a torn last line without its newline; readers ignore it via {@link #readLines} and the
+ * next append cuts it off before writing, so it never gets glued onto a valid record.
+ */
+final class AppendOnlyFile {
+  private static final int SCAN_CHUNK = 4096;
+
+  private AppendOnlyFile() {}
+
+  /**
+   * Appends {@code line} plus a newline to {@code file}, creating it if needed, and forces the
+   * write to disk before returning.
+   */
+  static void appendLine(Path file, String line) throws IOException {
+    appendLines(file, List.of(line));
+  }
+
+  /** Appends all {@code lines} with a single write and a single fsync. */
+  static void appendLines(Path file, List<String> lines) throws IOException {
+    StringBuilder text = new StringBuilder();
+    lines.forEach(line -> text.append(line).append('\n'));
+    try (FileChannel channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long end = completeLength(channel);
+      if (end < channel.size()) {
+        channel.truncate(end);
+      }
+      channel.position(end);
+      ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Returns the newline-terminated lines of {@code file}, or an empty list if it does not exist. A
+   * torn last line without its newline is left out.
+   */
+  static List<String> readLines(Path file) throws IOException {
+    List<String> lines = new ArrayList<>();
+    if (!Files.exists(file)) {
+      return lines;
+    }
+    byte[] bytes = Files.readAllBytes(file);
+    int start = 0;
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] == '\n') {
+        lines.add(new String(bytes, start, i - start, StandardCharsets.UTF_8));
+        start = i + 1;
+      }
+    }
+    return lines;
+  }
+
+  /** Length of the file up to and including its last newline. */
+  private static long completeLength(FileChannel channel) throws IOException {
+    long size = channel.size();
+    ByteBuffer chunk = ByteBuffer.allocate(SCAN_CHUNK);
+    long end = size;
+    while (end > 0) {
+      long start = Math.max(0, end - SCAN_CHUNK);
+      chunk.clear().limit((int) (end - start));
+      while (chunk.hasRemaining()) {
+        if (channel.read(chunk, start + chunk.position()) < 0) {
+          break;
+        }
+      }
+      for (int i = chunk.position() - 1; i >= 0; i--) {
+        if (chunk.get(i) == '\n') {
+          return start + i + 1;
+        }
+      }
+      end = start;
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,44 @@
+package io.ludovicianul.timi.persistence;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Inclusive range of days used to query the {@link EntryStore}. A {@code null} bound leaves that
+ * side open, so {@link #ALL} matches the whole history.
+ */
+public record DateRange(LocalDate from, LocalDate to) {
+  public static final DateRange ALL = new DateRange(null, null);
+
+  public static DateRange of(LocalDate from, LocalDate to) {
+    return new DateRange(from, to);
+  }
+
+  public static DateRange day(LocalDate day) {
+    return new DateRange(day, day);
+  }
+
+  public static DateRange month(YearMonth month) {
+    return new DateRange(month.atDay(1), month.atEndOfMonth());
+  }
+
+  public boolean contains(LocalDate date) {
+    return (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to));
+  }
+
+  public boolean contains(LocalDateTime dateTime) {
+    return contains(dateTime.toLocalDate());
+  }
+
+  /** Whether at least one day of {@code month} is in this range. */
+  public boolean overlaps(YearMonth month) {
+    return (from == null || !month.atEndOfMonth().isBefore(from))
+        && (to == null || !month.atDay(1).isAfter(to));
+  }
+
+  /** Whether every day of {@code month} is in this range. */
+  public boolean covers(YearMonth month) {
+    return contains(month.atDay(1)) && contains(month.atEndOfMonth());
+  }
+}
@@ -0,0 +1,83 @@
+package io.ludovicianul.timi.persistence;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pre-aggregated totals of one day, kept in the rollup store. Each map goes from a type, tag or
+ * meta tag to {@code [minutes, entries]}; the entry count lets a deleted entry be subtracted
+ * without leaving zero-minute groups behind. Tags and meta tags are summed both ways reports count
+ * them: split (an entry's duration divided between its tags) and full (the whole duration for
+ * every tag).
+ */
+@RegisterForReflection
+public record DayRollup(
+    Map<String, int[]> types,
+    Map<String, int[]> tagsSplit,
+    Map<String, int[]> tagsFull,
+    Map<String, int[]> metaTagsSplit,
+    Map<String, int[]> metaTagsFull) {
+
+  public enum Dimension {
+    TYPE,
+    TAG,
+    META_TAG
+  }
+
+  static DayRollup empty() {
+    return new DayRollup(
+        new TreeMap<>(), new TreeMap<>(), new TreeMap<>(), new TreeMap<>(), new TreeMap<>());
+  }
+
+  /** Minutes per type, tag or meta tag. Types are the same in both count modes. */
+  public Map<String, Integer> minutes(Dimension dimension, boolean split) {
+    Map<String, int[]> totals =
+        switch (dimension) {
+          case TYPE -> types;
+          case TAG -> split ? tagsSplit : tagsFull;
+          case META_TAG -> split ? metaTagsSplit : metaTagsFull;
+        };
+    Map<String, Integer> minutes = new TreeMap<>();
+    totals.forEach((name, total) -> minutes.put(name, total[0]));
+    return minutes;
+  }
+
+  /** Every entry has exactly one type, so the type counts add up to the day's entries. */
+  @JsonIgnore
+  public boolean isEmpty() {
+    return types.isEmpty();
+  }
+
+  /** Adds ({@code sign = 1}) or removes ({@code sign = -1}) one entry. */
+  void apply(
+      String type, Collection<String> tags, Collection<String> metaTags, int duration, int sign) {
+    add(types, type == null ? "" : type, duration, sign);
+    addShared(tagsSplit, tagsFull, tags, duration, sign);
+    addShared(metaTagsSplit, metaTagsFull, metaTags, duration, sign);
+  }
+
+  private static void addShared(
+      Map<String, int[]> split,
+      Map<String, int[]> full,
+      Collection<String> names,
+      int duration,
+      int sign) {
+    int share = names.isEmpty() ? duration : duration / names.size();
+    for (String name : names) {
+      add(split, name, share, sign);
+      add(full, name, duration, sign);
+    }
+  }
+
+  private static void add(Map<String, int[]> totals, String name, int minutes, int sign) {
+    int[] total = totals.computeIfAbsent(name, k -> new int[2]);
+    total[0] += sign * minutes;
+    total[1] += sign;
+    if (total[1] <= 0) {
+      totals.remove(name);
+    }
+  }
+}
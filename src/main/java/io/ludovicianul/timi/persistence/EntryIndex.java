@@ -0,0 +1,340 @@
+package io.ludovicianul.timi.persistence;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ludovicianul.timi.util.StartupProfiler;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Entry ID → month file index.
+ *
+ * <p>The compacted base lives in {@code index.bin}: a small header followed by records sorted by
+ * UUID, each holding the 16 raw UUID bytes and a 2-byte month ordinal ({@code year * 12 + month -
+ * 1}). The file is memory-mapped and binary-searched, so a lookup neither parses JSON nor builds a
+ * map, and its cost does not depend on how much history there is.
+ *
+ * <p>Every add, move or delete after the last compaction is appended as one short line to {@code
+ * index.log}, which is read into a small overlay on first use and folded into {@code index.bin}
+ * once it passes {@link #COMPACTION_THRESHOLD_BYTES}. A legacy {@code index.json} is migrated on
+ * first access.
+ */
+final class EntryIndex {
+  private static final long COMPACTION_THRESHOLD_BYTES = 64 * 1024;
+  private static final int MAGIC = 0x54495831; // "TIX1"
+  private static final int HEADER_BYTES = 8;
+  private static final int RECORD_BYTES = 18;
+  private static final String PUT = "+";
+  private static final String REMOVE = "-";
+
+  private final ObjectMapper mapper;
+  private final Path binaryFile;
+  private final Path legacyFile;
+  private final Path logFile;
+
+  private MappedByteBuffer base;
+  private int baseCount;
+  /** Changes from {@code index.log}; a {@code null} value marks a removed ID. */
+  private Map<UUID, String> overlay;
+  /** {@link FileSignature} of the files as this process last read or wrote them. */
+  private long[] loadedSignature;
+
+  EntryIndex(ObjectMapper mapper, Path baseDir) {
+    this.mapper = mapper;
+    this.binaryFile = baseDir.resolve("index.bin");
+    this.legacyFile = baseDir.resolve("index.json");
+    this.logFile = baseDir.resolve("index.log");
+  }
+
+  /** Every file this index may write or delete. */
+  List<Path> files() {
+    return List.of(binaryFile, legacyFile, logFile);
+  }
+
+  /** Forgets the loaded index if another process has written to it since. */
+  void refresh() {
+    if (overlay != null && !Arrays.equals(loadedSignature, signature())) {
+      overlay = null;
+      base = null;
+    }
+  }
+
+  String get(UUID id) {
+    load();
+    if (overlay.containsKey(id)) {
+      return overlay.get(id);
+    }
+    int slot = search(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    return slot < 0 ? null : monthFileName(base.getShort(offset(slot) + 16) & 0xFFFF);
+  }
+
+  /** Materializes the whole index; only meant for inspection and validation. */
+  Map<UUID, String> asMap() {
+    load();
+    Map<UUID, String> all = new HashMap<>();
+    for (int slot = 0; slot < baseCount; slot++) {
+      int offset = offset(slot);
+      all.put(
+          new UUID(base.getLong(offset), base.getLong(offset + 8)),
+          monthFileName(base.getShort(offset + 16) & 0xFFFF));
+    }
+    overlay.forEach(
+        (id, fileName) -> {
+          if (fileName == null) {
+            all.remove(id);
+          } else {
+            all.put(id, fileName);
+          }
+        });
+    return all;
+  }
+
+  void put(UUID id, String fileName) {
+    if (fileName.equals(get(id))) {
+      return;
+    }
+    overlay.put(id, fileName);
+    append(PUT + " " + id + " " + fileName);
+  }
+
+  /** Records a batch of locations with a single append to the log. */
+  void putAll(Map<UUID, String> locations) {
+    List<String> lines = new ArrayList<>();
+    locations.forEach(
+        (id, fileName) -> {
+          if (!fileName.equals(get(id))) {
+            overlay.put(id, fileName);
+            lines.add(PUT + " " + id + " " + fileName);
+          }
+        });
+    append(lines);
+  }
+
+  void remove(UUID id) {
+    if (get(id) != null) {
+      overlay.put(id, null);
+      append(REMOVE + " " + id);
+    }
+  }
+
+  /** Removes a batch of IDs with a single append to the log. */
+  void removeAll(Collection<UUID> ids) {
+    List<String> lines = new ArrayList<>();
+    for (UUID id : ids) {
+      if (get(id) != null) {
+        overlay.put(id, null);
+        lines.add(REMOVE + " " + id);
+      }
+    }
+    append(lines);
+  }
+
+  /** Replaces the whole index and writes it as a fresh base with an empty log. */
+  void replaceAll(Map<UUID, String> entries) {
+    write(entries);
+  }
+
+  private void load() {
+    if (overlay != null) {
+      return;
+    }
+
+    long start = System.nanoTime();
+    overlay = new HashMap<>();
+    if (!Files.exists(binaryFile) && Files.exists(legacyFile)) {
+      migrateLegacyIndex();
+    }
+    mapBase();
+    replayLog();
+    loadedSignature = signature();
+    StartupProfiler.recordBean("EntryStore: load index", start);
+  }
+
+  private void mapBase() {
+    base = null;
+    baseCount = 0;
+    if (!Files.exists(binaryFile)) {
+      return;
+    }
+
+    try (FileChannel channel = FileChannel.open(binaryFile, StandardOpenOption.READ)) {
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (mapped.capacity() < HEADER_BYTES || mapped.getInt(0) != MAGIC) {
+        throw new IOException("Unrecognized index format");
+      }
+      int count = mapped.getInt(4);
+      if (mapped.capacity() < HEADER_BYTES + (long) count * RECORD_BYTES) {
+        throw new IOException("Truncated index");
+      }
+      base = mapped;
+      baseCount = count;
+    } catch (IOException e) {
+      throw new RuntimeException(
+          "Failed to load index.bin (run `timi index rebuild` to recreate it)", e);
+    }
+  }
+
+  private void migrateLegacyIndex() {
+    try {
+      Map<String, String> raw = mapper.readValue(legacyFile.toFile(), new TypeReference<>() {});
+      Map<UUID, String> entries = new HashMap<>();
+      raw.forEach((k, v) -> entries.put(UUID.fromString(k), v));
+      writeBase(entries);
+      Files.deleteIfExists(legacyFile);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to migrate index.json", e);
+    }
+  }
+
+  private int search(long msb, long lsb) {
+    int low = 0;
+    int high = baseCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int offset = offset(mid);
+      int cmp = Long.compare(base.getLong(offset), msb);
+      if (cmp == 0) {
+        cmp = Long.compare(base.getLong(offset + 8), lsb);
+      }
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  private static int offset(int slot) {
+    return HEADER_BYTES + slot * RECORD_BYTES;
+  }
+
+  private void replayLog() {
+    List<String> lines;
+    try {
+      lines = AppendOnlyFile.readLines(logFile);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read index.log", e);
+    }
+
+    // A torn trailing write has no newline and is already left out; a complete line that does not
+    // parse means the log is corrupt, and skipping it would lose a location on the next compaction.
+    for (String line : lines) {
+      if (line.isBlank()) {
+        continue;
+      }
+      String[] parts = line.split(" ");
+      try {
+        if (parts.length == 3 && PUT.equals(parts[0])) {
+          monthOrdinal(parts[2]);
+          overlay.put(UUID.fromString(parts[1]), parts[2]);
+        } else if (parts.length == 2 && REMOVE.equals(parts[0])) {
+          overlay.put(UUID.fromString(parts[1]), null);
+        } else {
+          throw new IllegalArgumentException("Unrecognized record");
+        }
+      } catch (IllegalArgumentException e) {
+        throw new RuntimeException(
+            "Corrupt index.log line '" + line + "' (run `timi index rebuild` to recreate it)", e);
+      }
+    }
+  }
+
+  private void append(String line) {
+    append(List.of(line));
+  }
+
+  private void append(List<String> lines) {
+    if (lines.isEmpty()) {
+      return;
+    }
+    try {
+      Files.createDirectories(logFile.getParent());
+      AppendOnlyFile.appendLines(logFile, lines);
+      if (Files.size(logFile) > COMPACTION_THRESHOLD_BYTES) {
+        write(asMap());
+      }
+      loadedSignature = signature();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to write index.log", e);
+    }
+  }
+
+  private void write(Map<UUID, String> entries) {
+    try {
+      writeBase(entries);
+      Files.deleteIfExists(logFile);
+      overlay = new HashMap<>();
+      mapBase();
+      loadedSignature = signature();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to write index.bin", e);
+    }
+  }
+
+  private long[] signature() {
+    return FileSignature.of(binaryFile, logFile);
+  }
+
+  private void writeBase(Map<UUID, String> entries) throws IOException {
+    List<UUID> ids = new ArrayList<>(entries.keySet());
+    ids.sort(
+        Comparator.comparingLong(UUID::getMostSignificantBits)
+            .thenComparingLong(UUID::getLeastSignificantBits));
+
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + ids.size() * RECORD_BYTES);
+    buffer.putInt(MAGIC).putInt(ids.size());
+    for (UUID id : ids) {
+      buffer.putLong(id.getMostSignificantBits());
+      buffer.putLong(id.getLeastSignificantBits());
+      buffer.putShort((short) monthOrdinal(entries.get(id)));
+    }
+    buffer.flip();
+
+    Files.createDirectories(binaryFile.getParent());
+    Path tmp = binaryFile.resolveSibling("index.bin.tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            tmp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(
+        tmp, binaryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Maps {@code yyyy-MM.json} to {@code year * 12 + month - 1}. */
+  static int monthOrdinal(String fileName) {
+    if (fileName.length() < 7 || fileName.charAt(4) != '-') {
+      throw new IllegalArgumentException("Not a month file: " + fileName);
+    }
+    int year = Integer.parseInt(fileName.substring(0, 4));
+    int month = Integer.parseInt(fileName.substring(5, 7));
+    return year * 12 + month - 1;
+  }
+
+  static String monthFileName(int ordinal) {
+    return String.format("%04d-%02d.json", ordinal / 12, ordinal % 12 + 1);
+  }
+}
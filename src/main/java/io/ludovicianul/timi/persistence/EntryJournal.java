@@ -0,0 +1,157 @@
+package io.ludovicianul.timi.persistence;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Append-only journal sitting next to each monthly snapshot ({@code yyyy-MM.json}). Every
+ * mutation is written as a single JSON line to {@code yyyy-MM.journal} and fsync'd, so adding,
+ * editing or deleting an entry no longer rewrites the whole month. Reads replay the journal on top
+ * of the snapshot; once the journal grows past {@link #COMPACTION_THRESHOLD_BYTES} it is folded
+ * back into the snapshot.
+ *
+ * <p>Replaying is idempotent (puts replace by ID, deletes ignore missing IDs), so a crash between
+ * writing a compacted snapshot and removing the journal is harmless.
+ */
+final class EntryJournal {
+  static final String EXTENSION = ".journal";
+  private static final long COMPACTION_THRESHOLD_BYTES = 256 * 1024;
+
+  private static final String PUT = "put";
+  private static final String DELETE = "delete";
+
+  private final ObjectReader recordReader;
+  private final ObjectWriter recordWriter;
+
+  EntryJournal(JsonCodec codec) {
+    this.recordReader = codec.reader(Record.class);
+    this.recordWriter = codec.compactWriter(Record.class);
+  }
+
+  Path journalFor(Path monthFile) {
+    String fileName = monthFile.getFileName().toString();
+    String month = fileName.substring(0, fileName.lastIndexOf('.'));
+    return monthFile.resolveSibling(month + EXTENSION);
+  }
+
+  void appendPut(Path monthFile, TimeEntry entry) {
+    append(monthFile, new Record(PUT, entry.id(), entry));
+  }
+
+  void appendDelete(Path monthFile, UUID id) {
+    append(monthFile, new Record(DELETE, id, null));
+  }
+
+  /** Journals a whole batch of puts with one write and one fsync. */
+  void appendPuts(Path monthFile, Collection<TimeEntry> entries) {
+    append(monthFile, entries.stream().map(e -> new Record(PUT, e.id(), e)).toList());
+  }
+
+  /** Journals a whole batch of deletes with one write and one fsync. */
+  void appendDeletes(Path monthFile, Collection<UUID> ids) {
+    append(monthFile, ids.stream().map(id -> new Record(DELETE, id, null)).toList());
+  }
+
+  private void append(Path monthFile, Record record) {
+    append(monthFile, List.of(record));
+  }
+
+  private void append(Path monthFile, List<Record> records) {
+    Path journal = journalFor(monthFile);
+    try {
+      List<String> lines = new ArrayList<>(records.size());
+      for (Record record : records) {
+        lines.add(recordWriter.writeValueAsString(record));
+      }
+      AppendOnlyFile.appendLines(journal, lines);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to append to journal: " + journal, e);
+    }
+  }
+
+  /** Applies the journal for {@code monthFile} on top of the given snapshot entries. */
+  List<TimeEntry> replay(Path monthFile, List<TimeEntry> snapshot) {
+    List<Record> records = read(monthFile);
+    if (records.isEmpty()) {
+      return snapshot;
+    }
+
+    Map<UUID, TimeEntry> merged = new LinkedHashMap<>();
+    snapshot.forEach(e -> merged.put(e.id(), e));
+    for (Record record : records) {
+      if (PUT.equals(record.op())) {
+        merged.put(record.id(), record.entry());
+      } else if (DELETE.equals(record.op())) {
+        merged.remove(record.id());
+      }
+    }
+    return new ArrayList<>(merged.values());
+  }
+
+  /**
+   * Returns the net effect of the journal for {@code monthFile}: the latest version of every
+   * touched entry, or {@code null} for entries it deletes, in first-touched order.
+   */
+  Map<UUID, TimeEntry> pendingChanges(Path monthFile) {
+    Map<UUID, TimeEntry> changes = new LinkedHashMap<>();
+    for (Record record : read(monthFile)) {
+      if (PUT.equals(record.op())) {
+        changes.put(record.id(), record.entry());
+      } else if (DELETE.equals(record.op())) {
+        changes.put(record.id(), null);
+      }
+    }
+    return changes;
+  }
+
+  private List<Record> read(Path monthFile) {
+    Path journal = journalFor(monthFile);
+    List<Record> records = new ArrayList<>();
+    try {
+      // A torn trailing write has no newline, so readLines already leaves it out. A complete line
+      // that does not parse is real corruption: fail instead of letting compaction drop it.
+      for (String line : AppendOnlyFile.readLines(journal)) {
+        if (!line.isBlank()) {
+          records.add(recordReader.readValue(line));
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read journal: " + journal, e);
+    }
+    return records;
+  }
+
+  boolean exists(Path monthFile) {
+    return Files.exists(journalFor(monthFile));
+  }
+
+  boolean needsCompaction(Path monthFile) {
+    try {
+      Path journal = journalFor(monthFile);
+      return Files.exists(journal) && Files.size(journal) > COMPACTION_THRESHOLD_BYTES;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  void discard(Path monthFile) {
+    try {
+      Files.deleteIfExists(journalFor(monthFile));
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to remove journal for " + monthFile, e);
+    }
+  }
+
+  @RegisterForReflection
+  record Record(String op, UUID id, TimeEntry entry) {}
+}
@@ -1,90 +1,149 @@
 package io.ludovicianul.timi.persistence;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import jakarta.inject.Singleton;
+import com.fasterxml.jackson.databind.MappingIterator;
+import io.ludovicianul.timi.config.ConfigManager;
+import io.ludovicianul.timi.git.ChangeTracker;
+import io.ludovicianul.timi.util.StartupProfiler;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-@Singleton
+@ApplicationScoped
 public class EntryStore {
-  private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+  private static final TypeReference<List<TimeEntry>> ENTRY_LIST = new TypeReference<>() {};
+
+  private final JsonCodec codec;
   private final Path baseDir = Path.of(System.getProperty("user.home"), ".timi", "entries");
   private final Path lastActionFile =
       Path.of(System.getProperty("user.home"), ".timi", "history", "last-action.json");
 
-  private final Map<UUID, String> index = new HashMap<>();
-  private final Path indexFile = baseDir.resolve("index.json");
   private final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+  private final EntryJournal journal;
+  private final EntryIndex index;
+  private final TermIndex terms;
+  private final NoteIndex notes;
+  private final MonthCache cache = new MonthCache();
+  private final RollupStore rollups;
+  private final SymbolTable symbols = new SymbolTable();
+
+  @Inject ChangeTracker changeTracker;
+  @Inject ConfigManager configManager;
+
+  @Inject
+  public EntryStore(JsonCodec codec) {
+    long start = System.nanoTime();
+    this.codec = codec;
+    this.journal = new EntryJournal(codec);
+    this.index = new EntryIndex(codec.mapper(), baseDir);
+    this.terms = new TermIndex(baseDir);
+    this.notes = new NoteIndex(baseDir);
+    this.rollups =
+        new RollupStore(codec, Path.of(System.getProperty("user.home"), ".timi", "rollups"));
+    StartupProfiler.recordBean("EntryStore: init", start);
+  }
 
-  public EntryStore() {
-    loadIndex();
+  /**
+   * A store built outside of CDI, e.g. by the benchmarks. Without a {@code configManager}, months
+   * are loaded with the default parallelism.
+   */
+  public EntryStore(JsonCodec codec, ChangeTracker changeTracker, ConfigManager configManager) {
+    this(codec);
+    this.changeTracker = changeTracker;
+    this.configManager = configManager;
   }
 
   public Map<UUID, String> getIndex() {
-    return index;
+    return index.asMap();
   }
 
-  public UndoAction getLastAction() {
-    try {
-      return mapper.readValue(lastActionFile.toFile(), UndoAction.class);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+  /**
+   * Drops whatever another process has changed on disk since this store read it. Months are
+   * already checked on every read; the indexes are only read once, so a long-running process calls
+   * this before each command.
+   */
+  public void refresh() {
+    index.refresh();
+    terms.refresh();
+    notes.refresh();
   }
 
-  public void loadIndex() {
-    if (Files.exists(indexFile)) {
-      try {
-        Map<String, String> raw = mapper.readValue(indexFile.toFile(), new TypeReference<>() {});
-        raw.forEach((k, v) -> index.put(UUID.fromString(k), v));
-      } catch (IOException e) {
-        throw new RuntimeException("Failed to load index.json", e);
-      }
-    }
+  /** The dictionary that every segment returned by {@code loadSegments} is bound to. */
+  public SymbolTable symbols() {
+    return symbols;
   }
 
-  private void saveIndex() {
+  public UndoAction getLastAction() {
     try {
-      Map<String, String> raw =
-          index.entrySet().stream()
-              .collect(Collectors.toMap(e -> e.getKey().toString(), Map.Entry::getValue));
-      mapper.writerWithDefaultPrettyPrinter().writeValue(indexFile.toFile(), raw);
+      return codec.reader(UndoAction.class).readValue(lastActionFile.toFile());
     } catch (IOException e) {
-      throw new RuntimeException("Failed to write index.json", e);
+      throw new RuntimeException(e);
     }
   }
 
   public int indexRebuild() {
-    index.clear();
-
-    for (Path file : getJsonEntryFiles()) {
-
-      List<TimeEntry> entries = loadFromFile(file);
-      String fileName = file.getFileName().toString();
-
-      for (TimeEntry entry : entries) {
-        index.put(entry.id(), fileName);
+    Map<UUID, String> rebuilt = new HashMap<>();
+    List<Path> files = getJsonEntryFiles();
+    List<List<TimeEntry>> months =
+        loadMonths(
+            files,
+            file -> {
+              List<TimeEntry> entries = loadFromFile(file);
+              if (journal.exists(file)) {
+                saveToFile(file, entries);
+              }
+              return entries;
+            });
+
+    Map<String, List<TimeEntry>> byMonth = new LinkedHashMap<>();
+    for (int i = 0; i < files.size(); i++) {
+      String fileName = files.get(i).getFileName().toString();
+      for (TimeEntry entry : months.get(i)) {
+        rebuilt.put(entry.id(), fileName);
       }
+      byMonth.put(fileName, months.get(i));
     }
 
-    saveIndex();
-    return index.size();
+    index.replaceAll(rebuilt);
+    Map<String, long[]> sources = sourceSignatures(files);
+    terms.replaceAll(byMonth, sources);
+    notes.replaceAll(byMonth, sources);
+    changeTracker.modified(index.files());
+    return rebuilt.size();
   }
 
   public List<String> validateIndex() {
@@ -93,10 +152,14 @@ public class EntryStore {
     Set<UUID> foundInFiles = new HashSet<>();
 
     List<Path> jsonFiles = getJsonEntryFiles();
+    List<List<TimeEntry>> months = loadMonths(jsonFiles, this::loadFromFile);
+    Map<String, List<TimeEntry>> byMonth = new LinkedHashMap<>();
 
-    for (Path file : jsonFiles) {
+    for (int i = 0; i < jsonFiles.size(); i++) {
+      Path file = jsonFiles.get(i);
       String expectedPrefix = file.getFileName().toString().substring(0, 7);
-      List<TimeEntry> entries = loadFromFile(file);
+      List<TimeEntry> entries = months.get(i);
+      byMonth.put(file.getFileName().toString(), entries);
 
       for (TimeEntry entry : entries) {
         UUID id = entry.id();
@@ -130,12 +193,19 @@ public class EntryStore {
     }
 
     // Detect orphaned index entries (point to non-existent UUIDs)
-    for (UUID id : index.keySet()) {
+    for (UUID id : index.asMap().keySet()) {
       if (!foundInFiles.contains(id)) {
         issues.add("⚠️ Index references missing entry ID: " + id);
       }
     }
 
+    for (String fileName : terms.staleMonths(byMonth)) {
+      issues.add("⚠️ Term index out of date for " + fileName);
+    }
+    for (String fileName : notes.staleMonths(byMonth)) {
+      issues.add("⚠️ Note index out of date for " + fileName);
+    }
+
     return issues;
   }
 
@@ -155,20 +225,50 @@ public class EntryStore {
       Files.createDirectories(baseDir);
       Path file = resolveFileFor(entry.startTime());
 
-      List<TimeEntry> entries = new ArrayList<>();
-      if (Files.exists(file)) {
-        entries.addAll(Arrays.asList(mapper.readValue(file.toFile(), TimeEntry[].class)));
-      }
-      entries.add(entry);
-      mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), entries);
+      long[] before = sourceSignature(file);
+      journal.appendPut(file, entry);
+      afterJournalWrite(file, before, List.of(), List.of(entry));
       index.put(entry.id(), file.getFileName().toString());
-      saveIndex();
+      changeTracker.modified(index.files());
       recordUndo("add", null, entry);
     } catch (IOException e) {
       throw new RuntimeException("Failed to save entry", e);
     }
   }
 
+  /**
+   * Saves a batch of new entries as one unit: every touched month gets a single journal write, the
+   * index a single append, and the batch is recorded as one undoable {@code batch-add}.
+   */
+  public void saveAll(Collection<TimeEntry> entries) {
+    if (entries.isEmpty()) {
+      return;
+    }
+    try {
+      Files.createDirectories(baseDir);
+      Map<Path, List<TimeEntry>> byMonth =
+          entries.stream()
+              .collect(
+                  Collectors.groupingBy(
+                      e -> resolveFileFor(e.startTime()), LinkedHashMap::new, Collectors.toList()));
+
+      Map<UUID, String> locations = new LinkedHashMap<>();
+      byMonth.forEach(
+          (file, monthEntries) -> {
+            long[] before = sourceSignature(file);
+            journal.appendPuts(file, monthEntries);
+            afterJournalWrite(file, before, List.of(), monthEntries);
+            monthEntries.forEach(e -> locations.put(e.id(), file.getFileName().toString()));
+          });
+      index.putAll(locations);
+      changeTracker.modified(index.files());
+      recordUndo(
+          new UndoAction("batch-add", LocalDateTime.now(), null, null, List.copyOf(entries)));
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to save entries", e);
+    }
+  }
+
   public boolean updateFullEntry(
       UUID id,
       LocalDateTime newStart,
@@ -206,26 +306,27 @@ public class EntryStore {
 
     Path newFile = resolveFileFor(updatedEntry.startTime());
 
-    // If the file is unchanged, just replace it in place
+    // If the file is unchanged, the journaled put replaces the entry in place
     if (newFile.equals(currentFile)) {
-      List<TimeEntry> updated =
-          currentEntries.stream().map(e -> e.id().equals(id) ? updatedEntry : e).toList();
-      saveToFile(currentFile, updated);
+      long[] before = sourceSignature(currentFile);
+      journal.appendPut(currentFile, updatedEntry);
+      afterJournalWrite(currentFile, before, List.of(existing), List.of(updatedEntry));
       recordUndo("edit", existing, updatedEntry);
       return true;
     }
 
-    // Otherwise: remove from current file, add to new file
-    currentEntries.removeIf(e -> e.id().equals(id));
-    saveToFile(currentFile, currentEntries);
-
-    List<TimeEntry> newFileEntries = loadFromFile(newFile);
-    newFileEntries.add(updatedEntry);
-    saveToFile(newFile, newFileEntries);
+    // Otherwise: remove from current month, add to new month
+    long[] beforeCurrent = sourceSignature(currentFile);
+    journal.appendDelete(currentFile, id);
+    afterJournalWrite(currentFile, beforeCurrent, List.of(existing), List.of());
+    long[] beforeNew = sourceSignature(newFile);
+    journal.appendPut(newFile, updatedEntry);
+    afterJournalWrite(newFile, beforeNew, List.of(), List.of(updatedEntry));
 
     // Update index
     index.put(id, newFile.getFileName().toString());
-    saveIndex();
+    changeTracker.modified(index.files());
+    recordUndo("edit", existing, updatedEntry);
 
     return true;
   }
@@ -240,32 +341,310 @@ public class EntryStore {
     List<TimeEntry> entries = loadFromFile(file);
     Optional<TimeEntry> toRemove = entries.stream().filter(e -> e.id().equals(id)).findFirst();
     if (toRemove.isPresent()) {
-      entries.remove(toRemove.get());
-      saveToFile(file, entries);
+      long[] before = sourceSignature(file);
+      journal.appendDelete(file, id);
+      afterJournalWrite(file, before, List.of(toRemove.get()), List.of());
       index.remove(id);
-      saveIndex();
+      changeTracker.modified(index.files());
       recordUndo("delete", toRemove.get(), null);
     }
     return toRemove.isPresent();
   }
 
+  /**
+   * Deletes a batch of entries as one unit: IDs are resolved through the index and grouped by
+   * month, every touched month gets a single journal write, the index a single append, and the
+   * batch is recorded as one undoable {@code batch-delete}.
+   *
+   * @return the IDs that existed and were deleted
+   */
+  public Set<UUID> deleteAll(Set<UUID> ids) {
+    Map<String, Set<UUID>> byMonth = new LinkedHashMap<>();
+    for (UUID id : ids) {
+      String fileName = index.get(id);
+      if (fileName != null) {
+        byMonth.computeIfAbsent(fileName, k -> new HashSet<>()).add(id);
+      }
+    }
+
+    List<TimeEntry> removed = new ArrayList<>();
+    byMonth.forEach(
+        (fileName, monthIds) -> {
+          Path file = baseDir.resolve(fileName);
+          List<TimeEntry> monthRemoved =
+              loadFromFile(file).stream().filter(e -> monthIds.contains(e.id())).toList();
+          if (monthRemoved.isEmpty()) {
+            return;
+          }
+          long[] before = sourceSignature(file);
+          journal.appendDeletes(file, monthRemoved.stream().map(TimeEntry::id).toList());
+          afterJournalWrite(file, before, monthRemoved, List.of());
+          removed.addAll(monthRemoved);
+        });
+
+    Set<UUID> deleted = removed.stream().map(TimeEntry::id).collect(Collectors.toSet());
+    if (!deleted.isEmpty()) {
+      index.removeAll(deleted);
+      changeTracker.modified(index.files());
+      recordUndo(new UndoAction("batch-delete", LocalDateTime.now(), null, null, removed));
+    }
+    return deleted;
+  }
+
+  /**
+   * Loads a month snapshot and replays its journal on top of it. Months already parsed by this
+   * process are served from the {@link MonthCache} while their files are unchanged.
+   */
   public List<TimeEntry> loadFromFile(Path file) {
+    long[] signature = sourceSignature(file);
+    List<TimeEntry> cached = cache.get(file, signature);
+    if (cached != null) {
+      return cached;
+    }
+
     try {
-      if (!Files.exists(file)) {
-        return new ArrayList<>();
-      }
-      return new ArrayList<>(Arrays.asList(mapper.readValue(file.toFile(), TimeEntry[].class)));
+      List<TimeEntry> snapshot =
+          Files.exists(file)
+              ? new ArrayList<>(
+                  Arrays.asList(
+                      codec.reader(TimeEntry[].class).<TimeEntry[]>readValue(file.toFile())))
+              : new ArrayList<>();
+      List<TimeEntry> entries = journal.replay(file, snapshot);
+      cache.put(file, signature, entries);
+      return entries;
     } catch (IOException e) {
       throw new RuntimeException("Failed to load from file: " + file, e);
     }
   }
 
+  /**
+   * Replaces the month snapshot with {@code entries} and drops its journal. The snapshot is written
+   * to a temporary file first and moved into place, so readers never see a half-written month.
+   */
   public void saveToFile(Path file, List<TimeEntry> entries) {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
     try {
-      mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), entries);
+      codec.prettyWriter(ENTRY_LIST).writeValue(tmp.toFile(), entries);
+      Files.move(
+          tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      journal.discard(file);
+      cache.invalidate(file);
     } catch (IOException e) {
       throw new RuntimeException("Failed to save to file: " + file, e);
     }
+    writeSegment(file, MonthSegment.of(entries));
+    rollups.write(file, sourceSignature(file), RollupStore.of(entries));
+    long[] source = sourceSignature(file);
+    terms.replaceMonth(file.getFileName().toString(), source, entries);
+    notes.replaceMonth(file.getFileName().toString(), source, entries);
+    reportChanged(file);
+  }
+
+  /**
+   * Streams the entries starting within {@code range} that match {@code filter}. Month files are
+   * pruned by name, and months the range only partly covers are also pruned by the start-time
+   * bounds in their {@code .cols} header, so asking about one week reads at most two files.
+   *
+   * <p>Each month file is read incrementally with a {@link MappingIterator}, one entry at a time,
+   * so only matching entries are kept and a short-circuiting terminal operation stops reading
+   * early. The returned stream holds open files and must be closed.
+   */
+  public Stream<TimeEntry> query(DateRange range, Predicate<TimeEntry> filter) {
+    return query(range, TermFilter.NONE, filter);
+  }
+
+  /**
+   * As {@link #query(DateRange, Predicate)}, but months the term index lists no entry with all of
+   * {@code terms} for are not read at all. {@code filter} still has to check the terms itself.
+   */
+  public Stream<TimeEntry> query(DateRange range, TermFilter terms, Predicate<TimeEntry> filter) {
+    return monthFiles(range, terms).stream()
+        .flatMap(this::streamFile)
+        .filter(e -> range.contains(e.startTime()))
+        .filter(filter);
+  }
+
+  /**
+   * The first {@code limit} entries of {@link #query(DateRange, TermFilter, Predicate)} by start
+   * time, newest first if {@code latest}. Months are read in that order and reading stops at the
+   * first month that completes the limit, so asking for the last few entries reads the most recent
+   * month or two.
+   */
+  public List<TimeEntry> queryTop(
+      DateRange range, TermFilter terms, Predicate<TimeEntry> filter, int limit, boolean latest) {
+    return top(
+        monthFiles(range, terms),
+        file -> streamFile(file).filter(e -> range.contains(e.startTime())).filter(filter),
+        TimeEntry::startTime,
+        limit,
+        latest);
+  }
+
+  /**
+   * Entries starting within {@code range} whose note matches {@code query} and that match {@code
+   * filter}, with their relevance, in month order. Only months the note index lists a candidate
+   * for, and the term index an entry with all of {@code terms} for, are read; {@code filter} does
+   * not need to check the note.
+   */
+  public List<NoteMatch> searchNotes(
+      DateRange range, TermFilter terms, NoteQuery query, Predicate<TimeEntry> filter) {
+    return searchNotesTop(range, terms, query, filter, Integer.MAX_VALUE, false);
+  }
+
+  /**
+   * The first {@code limit} matches of {@link #searchNotes} by start time, newest first if {@code
+   * latest}, reading candidate months in that order as {@link #queryTop} does.
+   */
+  public List<NoteMatch> searchNotesTop(
+      DateRange range,
+      TermFilter terms,
+      NoteQuery query,
+      Predicate<TimeEntry> filter,
+      int limit,
+      boolean latest) {
+    Map<String, Map<UUID, Double>> candidates = noteIndex().search(query);
+    List<Path> files =
+        monthFiles(range, terms).stream()
+            .filter(f -> candidates.containsKey(f.getFileName().toString()))
+            .toList();
+    return top(
+        files,
+        file -> {
+          Map<UUID, Double> scores = candidates.get(file.getFileName().toString());
+          return streamFile(file)
+              .filter(e -> scores.containsKey(e.id()))
+              .filter(e -> range.contains(e.startTime()) && query.matches(e.note()))
+              .filter(filter)
+              .map(e -> new NoteMatch(e, scores.get(e.id())));
+        },
+        m -> m.entry().startTime(),
+        limit,
+        latest);
+  }
+
+  /**
+   * The first {@code limit} items read from {@code files} by start time, newest first if {@code
+   * latest}. Entries are filed by the month they start in, so once a month leaves {@code limit}
+   * items in hand no month after it in reading order can improve on them. A month is not sorted
+   * internally, so a bounded heap keeps the best items while it is read. Equal start times keep
+   * file order, reversed when newest first, as a stable sort of the whole history would.
+   */
+  private <T> List<T> top(
+      List<Path> files,
+      Function<Path, Stream<T>> read,
+      Function<T, LocalDateTime> startTime,
+      int limit,
+      boolean latest) {
+    Comparator<Ranked<T>> chronological =
+        Comparator.comparing((Ranked<T> r) -> startTime.apply(r.item()))
+            .thenComparingLong(Ranked::position);
+    Comparator<Ranked<T>> order = latest ? chronological.reversed() : chronological;
+    PriorityQueue<Ranked<T>> best = new PriorityQueue<>(order.reversed());
+
+    long position = 0;
+    for (Path file : latest ? files.reversed() : files) {
+      try (Stream<T> items = read.apply(file)) {
+        for (Iterator<T> it = items.iterator(); it.hasNext(); ) {
+          best.add(new Ranked<>(it.next(), position++));
+          if (best.size() > limit) {
+            best.poll();
+          }
+        }
+      }
+      if (best.size() >= limit) {
+        break;
+      }
+    }
+    return best.stream().sorted(order).map(Ranked::item).toList();
+  }
+
+  /** An item with its position in reading order, to break start-time ties. */
+  private record Ranked<T>(T item, long position) {}
+
+  private Stream<TimeEntry> streamFile(Path file) {
+    long[] signature = sourceSignature(file);
+    List<TimeEntry> cached = cache.get(file, signature);
+    if (cached != null) {
+      return cached.stream();
+    }
+
+    Map<UUID, TimeEntry> pending = journal.pendingChanges(file);
+    Stream<TimeEntry> snapshot = Stream.empty();
+
+    if (Files.exists(file)) {
+      try {
+        JsonParser parser = codec.mapper().getFactory().createParser(file.toFile());
+        if (parser.nextToken() == JsonToken.START_ARRAY) {
+          // Step inside the root array so the iterator yields its elements one by one.
+          parser.clearCurrentToken();
+        }
+        MappingIterator<TimeEntry> iterator = codec.reader(TimeEntry.class).readValues(parser);
+        snapshot =
+            StreamSupport.stream(
+                    Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(
+                    () -> {
+                      try (parser) {
+                        iterator.close();
+                      } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                      }
+                    });
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to read from file: " + file, e);
+      }
+    }
+
+    // Journaled versions replace snapshot entries in place; journaled additions follow them.
+    // A month that is read to the end is cached like one loaded with loadFromFile.
+    List<TimeEntry> read = new ArrayList<>();
+    Stream<TimeEntry> merged =
+        snapshot
+            .map(e -> pending.containsKey(e.id()) ? pending.remove(e.id()) : e)
+            .filter(Objects::nonNull)
+            .peek(read::add);
+    Stream<TimeEntry> added =
+        Stream.of(pending)
+            .flatMap(
+                p -> {
+                  List<TimeEntry> additions =
+                      p.values().stream().filter(Objects::nonNull).toList();
+                  read.addAll(additions);
+                  cache.put(file, signature, read);
+                  return additions.stream();
+                });
+    return Stream.concat(merged, added);
+  }
+
+  /**
+   * Keeps the derived state of {@code file} in step with a journal append: evicts the cached
+   * month, patches its rollup and compacts the journal when due. {@code before} is the month's
+   * signature prior to the append.
+   */
+  private void afterJournalWrite(
+      Path file, long[] before, Collection<TimeEntry> removed, Collection<TimeEntry> added) {
+    cache.invalidate(file);
+    long[] after = sourceSignature(file);
+    rollups.update(file, before, after, removed, added);
+    terms.update(file.getFileName().toString(), after, removed, added);
+    notes.update(file.getFileName().toString(), after, removed, added);
+    compactIfNeeded(file);
+    reportChanged(file);
+  }
+
+  /**
+   * Reports a month's snapshot, journal and derived files to the {@link ChangeTracker}. The term
+   * and note indexes are not versioned; each install keeps them in step with the months itself.
+   */
+  private void reportChanged(Path file) {
+    changeTracker.modified(
+        file, journal.journalFor(file), segmentFor(file), rollups.rollupFor(file));
+  }
+
+  private void compactIfNeeded(Path file) {
+    if (journal.needsCompaction(file)) {
+      saveToFile(file, loadFromFile(file));
+    }
   }
 
   public List<TimeEntry> loadAllEntries(String month) {
@@ -280,11 +659,200 @@ public class EntryStore {
             ? files.stream().filter(f -> f.getFileName().toString().startsWith(month)).toList()
             : files;
 
-    for (Path path : filtered) {
-      all.addAll(loadFromFile(path));
+    loadMonths(filtered, this::loadFromFile).forEach(all::addAll);
+    return all;
+  }
+
+  /**
+   * Loads the columnar view of every month (or only {@code month}, as in {@link
+   * #loadAllEntries(String)}). Months with an up-to-date {@code .cols} sidecar are read without
+   * touching JSON; the others are parsed once and their sidecar is refreshed.
+   */
+  public List<MonthSegment> loadSegments(String month) {
+    List<Path> files =
+        getJsonEntryFiles().stream()
+            .filter(f -> month == null || f.getFileName().toString().startsWith(month))
+            .toList();
+    return loadMonths(files, this::loadSegment);
+  }
+
+  /**
+   * Loads the columnar view of the months the term index lists an entry for that matches any of
+   * {@code alternatives}.
+   */
+  public List<MonthSegment> loadSegmentsMatching(List<TermFilter> alternatives) {
+    Set<String> holding = new HashSet<>();
+    for (TermFilter alternative : alternatives) {
+      Set<String> months = termIndex().months(alternative);
+      if (months == null) {
+        return loadSegments((String) null);
+      }
+      holding.addAll(months);
     }
+    return loadMonths(
+        getJsonEntryFiles().stream()
+            .filter(f -> holding.contains(f.getFileName().toString()))
+            .toList(),
+        this::loadSegment);
+  }
 
-    return all;
+  /** Whether any month holds an entry, answered from the term index. */
+  public boolean hasEntries() {
+    return !termIndex().isEmpty();
+  }
+
+  /** Loads the columnar view of the months overlapping {@code from}..{@code to} (inclusive). */
+  public List<MonthSegment> loadSegments(LocalDate from, LocalDate to) {
+    return loadMonths(monthFiles(DateRange.of(from, to)), this::loadSegment);
+  }
+
+  /**
+   * Returns the per-day totals between {@code from} and {@code to} (inclusive) from the rollup
+   * store, rebuilding any month whose rollup is missing or stale from its columnar segment.
+   */
+  public SortedMap<LocalDate, DayRollup> loadRollups(LocalDate from, LocalDate to) {
+    SortedMap<LocalDate, DayRollup> days = new TreeMap<>();
+    for (Path file : monthFiles(DateRange.of(from, to))) {
+      long[] signature = sourceSignature(file);
+      TreeMap<LocalDate, DayRollup> month = rollups.read(file, signature);
+      if (month == null) {
+        month = RollupStore.of(loadSegment(file));
+        rollups.write(file, signature, month);
+      }
+      days.putAll(month.subMap(from, true, to, true));
+    }
+    return days;
+  }
+
+  /** Month files that may hold entries in {@code range} with all of {@code terms}. */
+  private List<Path> monthFiles(DateRange range, TermFilter terms) {
+    Set<String> holding = termIndex().months(terms);
+    return monthFiles(range).stream()
+        .filter(f -> holding == null || holding.contains(f.getFileName().toString()))
+        .toList();
+  }
+
+  /** Month files that may hold entries in {@code range}. */
+  private List<Path> monthFiles(DateRange range) {
+    return getJsonEntryFiles().stream()
+        .filter(
+            f -> {
+              YearMonth month = YearMonth.parse(f.getFileName().toString().substring(0, 7));
+              return range.covers(month) || (range.overlaps(month) && mayOverlap(f, range));
+            })
+        .toList();
+  }
+
+  /** Checks a partly covered month against its sidecar bounds; unknown bounds mean maybe. */
+  private boolean mayOverlap(Path file, DateRange range) {
+    int[] bounds = MonthSegment.readBounds(segmentFor(file), sourceSignature(file));
+    if (bounds == null) {
+      return true;
+    }
+    return (range.from() == null || bounds[1] >= MonthSegment.epochMinute(range.from()))
+        && (range.to() == null || bounds[0] < MonthSegment.epochMinute(range.to().plusDays(1)));
+  }
+
+  /**
+   * The term index, built from the columnar segments the first time it is needed. Months whose
+   * files changed since they were indexed, e.g. edited by hand or pulled from git, are read again.
+   */
+  private TermIndex termIndex() {
+    if (!Files.exists(baseDir)) {
+      return terms;
+    }
+    List<Path> files = getJsonEntryFiles();
+    Map<String, long[]> sources = sourceSignatures(files);
+    if (!terms.isBuilt()) {
+      List<MonthSegment> segments = loadMonths(files, this::loadSegment);
+      Map<String, List<TimeEntry>> byMonth = new LinkedHashMap<>();
+      for (int i = 0; i < files.size(); i++) {
+        byMonth.put(files.get(i).getFileName().toString(), segments.get(i).toEntries(false));
+      }
+      terms.replaceAll(byMonth, sources);
+      return terms;
+    }
+    for (String fileName : terms.changedMonths(sources)) {
+      long[] source = sources.getOrDefault(fileName, sourceSignature(baseDir.resolve(fileName)));
+      terms.replaceMonth(fileName, source, reread(fileName, sources, false));
+    }
+    return terms;
+  }
+
+  /** The note index, built and kept in step with the months as {@link #termIndex()} is. */
+  private NoteIndex noteIndex() {
+    if (!Files.exists(baseDir)) {
+      return notes;
+    }
+    List<Path> files = getJsonEntryFiles();
+    Map<String, long[]> sources = sourceSignatures(files);
+    if (!notes.isBuilt()) {
+      List<MonthSegment> segments = loadMonths(files, this::loadSegment);
+      Map<String, List<TimeEntry>> byMonth = new LinkedHashMap<>();
+      for (int i = 0; i < files.size(); i++) {
+        byMonth.put(files.get(i).getFileName().toString(), segments.get(i).toEntries(true));
+      }
+      notes.replaceAll(byMonth, sources);
+      return notes;
+    }
+    for (String fileName : notes.changedMonths(sources)) {
+      long[] source = sources.getOrDefault(fileName, sourceSignature(baseDir.resolve(fileName)));
+      notes.replaceMonth(fileName, source, reread(fileName, sources, true));
+    }
+    return notes;
+  }
+
+  /**
+   * The entries of a month an index found changed, or none if the month is gone from {@code
+   * sources}; notes are only decoded if {@code withNotes}.
+   */
+  private List<TimeEntry> reread(String fileName, Map<String, long[]> sources, boolean withNotes) {
+    if (!sources.containsKey(fileName)) {
+      return List.of();
+    }
+    return loadSegment(baseDir.resolve(fileName)).toEntries(withNotes);
+  }
+
+  /** Runs {@code task} over {@code files} concurrently, see {@link MonthLoader}. */
+  private <T> List<T> loadMonths(List<Path> files, Function<Path, T> task) {
+    // No config when the store is built outside of CDI without one.
+    int parallelism = configManager == null ? 0 : configManager.getLoadParallelism();
+    return MonthLoader.load(files, parallelism, task);
+  }
+
+  private MonthSegment loadSegment(Path file) {
+    MonthSegment segment = MonthSegment.read(segmentFor(file), sourceSignature(file));
+    if (segment == null) {
+      segment = MonthSegment.of(loadFromFile(file));
+      writeSegment(file, segment);
+    }
+    segment.bind(symbols);
+    return segment;
+  }
+
+  private void writeSegment(Path file, MonthSegment segment) {
+    try {
+      segment.write(segmentFor(file), sourceSignature(file));
+    } catch (IOException e) {
+      // The sidecar is only an accelerator; the month is simply parsed again next time.
+    }
+  }
+
+  private Path segmentFor(Path file) {
+    String fileName = file.getFileName().toString();
+    return file.resolveSibling(fileName.substring(0, 7) + MonthSegment.EXTENSION);
+  }
+
+  /** Size and modification time of a month's snapshot and journal, {@code -1} if absent. */
+  private long[] sourceSignature(Path file) {
+    return FileSignature.of(file, journal.journalFor(file));
+  }
+
+  /** The {@link #sourceSignature} of each of {@code files}, keyed by file name. */
+  private Map<String, long[]> sourceSignatures(List<Path> files) {
+    Map<String, long[]> sources = new LinkedHashMap<>();
+    files.forEach(file -> sources.put(file.getFileName().toString(), sourceSignature(file)));
+    return sources;
   }
 
   private Path resolveFileFor(LocalDateTime dateTime) {
@@ -292,11 +860,22 @@ public class EntryStore {
     return baseDir.resolve(fileName);
   }
 
+  /**
+   * Returns the snapshot path of every month that has data, including months that so far only
+   * exist as a journal.
+   */
   private List<Path> getJsonEntryFiles() {
+    if (!Files.exists(baseDir)) {
+      return List.of();
+    }
     try (Stream<Path> files = Files.list(baseDir)) {
       return files
-          .filter(p -> p.getFileName().toString().endsWith(".json"))
-          .filter(p -> !p.getFileName().toString().equals("index.json"))
+          .map(p -> p.getFileName().toString())
+          .filter(name -> name.matches("\\d{4}-\\d{2}\\.(json|journal)"))
+          .map(name -> name.substring(0, 7))
+          .distinct()
+          .sorted()
+          .map(month -> baseDir.resolve(month + ".json"))
           .toList();
     } catch (IOException e) {
       throw new RuntimeException("Failed to list entry files in " + baseDir, e);
@@ -304,14 +883,17 @@ public class EntryStore {
   }
 
   private void recordUndo(String action, TimeEntry entryBefore, TimeEntry entryAfter) {
+    recordUndo(new UndoAction(action, LocalDateTime.now(), entryBefore, entryAfter, null));
+  }
+
+  private void recordUndo(UndoAction undo) {
     try {
       Path historyDir = Path.of(System.getProperty("user.home"), ".timi", "history");
       Files.createDirectories(historyDir);
       Path file = historyDir.resolve("last-action.json");
 
-      UndoAction undo = new UndoAction(action, LocalDateTime.now(), entryBefore, entryAfter);
-
-      mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), undo);
+      codec.prettyWriter(UndoAction.class).writeValue(file.toFile(), undo);
+      changeTracker.modified(file);
     } catch (IOException e) {
       System.err.println("❌ Failed to record undo action: " + e.getMessage());
     }
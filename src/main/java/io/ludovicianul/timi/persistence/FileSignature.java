@@ -0,0 +1,39 @@
+package io.ludovicianul.timi.persistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Size and modification time of a group of files, {@code -1} for each one that is absent. Caches
+ * keep the signature of what they read and drop it once the files no longer match, which is how a
+ * long-running process notices writes made by another one.
+ */
+public final class FileSignature {
+  private FileSignature() {}
+
+  public static long[] of(Path... files) {
+    long[] signature = new long[files.length * 2];
+    for (int i = 0; i < files.length; i++) {
+      signature[i * 2] = size(files[i]);
+      signature[i * 2 + 1] = modified(files[i]);
+    }
+    return signature;
+  }
+
+  private static long size(Path path) {
+    try {
+      return Files.exists(path) ? Files.size(path) : -1;
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  private static long modified(Path path) {
+    try {
+      return Files.exists(path) ? Files.getLastModifiedTime(path).toMillis() : -1;
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+}
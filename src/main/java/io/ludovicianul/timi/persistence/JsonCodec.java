@@ -0,0 +1,73 @@
+package io.ludovicianul.timi.persistence;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.ludovicianul.timi.util.StartupProfiler;
+import jakarta.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The application's single Jackson setup. Readers and writers are immutable and thread-safe, so
+ * each one is built the first time a type is read or written and reused afterwards. Files people
+ * open (entries, config, session, templates) use {@link #prettyWriter}; files only timi reads
+ * (journals, rollups) use {@link #compactWriter}.
+ *
+ * <p>The mapper itself is built on first use, so commands that never touch JSON don't pay for it.
+ */
+@Singleton
+public class JsonCodec {
+  private volatile ObjectMapper mapper;
+  private final Map<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+  private final Map<JavaType, ObjectWriter> prettyWriters = new ConcurrentHashMap<>();
+  private final Map<JavaType, ObjectWriter> compactWriters = new ConcurrentHashMap<>();
+
+  /** The shared mapper, for streaming parsers and one-off conversions. */
+  public ObjectMapper mapper() {
+    ObjectMapper result = mapper;
+    if (result == null) {
+      synchronized (this) {
+        result = mapper;
+        if (result == null) {
+          long start = System.nanoTime();
+          mapper = result = new ObjectMapper().registerModule(new JavaTimeModule());
+          StartupProfiler.recordBean("JsonCodec: build mapper", start);
+        }
+      }
+    }
+    return result;
+  }
+
+  public ObjectReader reader(Class<?> type) {
+    return reader(mapper().constructType(type));
+  }
+
+  public ObjectReader reader(TypeReference<?> type) {
+    return reader(mapper().constructType(type));
+  }
+
+  public ObjectWriter prettyWriter(Class<?> type) {
+    return prettyWriter(mapper().constructType(type));
+  }
+
+  public ObjectWriter prettyWriter(TypeReference<?> type) {
+    return prettyWriter(mapper().constructType(type));
+  }
+
+  public ObjectWriter compactWriter(Class<?> type) {
+    return compactWriters.computeIfAbsent(mapper().constructType(type), mapper()::writerFor);
+  }
+
+  private ObjectReader reader(JavaType type) {
+    return readers.computeIfAbsent(type, mapper()::readerFor);
+  }
+
+  private ObjectWriter prettyWriter(JavaType type) {
+    return prettyWriters.computeIfAbsent(
+        type, t -> mapper().writerFor(t).withDefaultPrettyPrinter());
+  }
+}
@@ -0,0 +1,49 @@
+package io.ludovicianul.timi.persistence;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed months kept for the lifetime of the process, so a command that visits the same month
+ * several times (a zen weekly report, config pruning) parses it only once.
+ *
+ * <p>Each month remembers the size and modification time of the snapshot and journal it was read
+ * from and is ignored as soon as they differ; {@link EntryStore} also evicts a month whenever it
+ * writes to it. At most {@link #MAX_MONTHS} months are kept, least recently used first out.
+ */
+final class MonthCache {
+  private static final int MAX_MONTHS = 36;
+
+  private final Map<Path, Cached> months =
+      Collections.synchronizedMap(
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Cached> eldest) {
+              return size() > MAX_MONTHS;
+            }
+          });
+
+  /** Returns a copy of the cached month, or {@code null} if it is absent or stale. */
+  List<TimeEntry> get(Path file, long[] sourceSignature) {
+    Cached cached = months.get(file);
+    if (cached == null || !Arrays.equals(cached.signature(), sourceSignature)) {
+      return null;
+    }
+    return new ArrayList<>(cached.entries());
+  }
+
+  void put(Path file, long[] sourceSignature, List<TimeEntry> entries) {
+    months.put(file, new Cached(sourceSignature, List.copyOf(entries)));
+  }
+
+  void invalidate(Path file) {
+    months.remove(file);
+  }
+
+  private record Cached(long[] signature, List<TimeEntry> entries) {}
+}
@@ -0,0 +1,64 @@
+package io.ludovicianul.timi.persistence;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Runs a per-month task over many month files at once. Parsing a month is independent of every
+ * other month, so with years of history loading is bound by CPU rather than by the disk.
+ *
+ * <p>Each file gets a virtual thread; a semaphore keeps at most {@code parallelism} of them
+ * working. Results come back in the order of the files, whatever order they finish in.
+ */
+final class MonthLoader {
+  private MonthLoader() {}
+
+  /**
+   * @param parallelism how many months to work on at once; {@code 0} means one per available
+   *     processor and {@code 1} runs the files one after another on the calling thread
+   */
+  static <T> List<T> load(List<Path> files, int parallelism, Function<Path, T> task) {
+    int permits = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+    if (permits <= 1 || files.size() <= 1) {
+      return files.stream().map(task).toList();
+    }
+
+    Semaphore semaphore = new Semaphore(permits);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<T>> futures = new ArrayList<>(files.size());
+      for (Path file : files) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  semaphore.acquire();
+                  try {
+                    return task.apply(file);
+                  } finally {
+                    semaphore.release();
+                  }
+                }));
+      }
+
+      List<T> results = new ArrayList<>(files.size());
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new RuntimeException("Failed to load month files", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while loading month files", e);
+    }
+  }
+}
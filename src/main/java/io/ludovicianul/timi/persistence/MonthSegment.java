@@ -0,0 +1,531 @@
+package io.ludovicianul.timi.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Column-oriented view of one month of entries, persisted as an optional {@code yyyy-MM.cols}
+ * sidecar next to the month snapshot.
+ *
+ * <p>Start times are stored as epoch minutes in an {@code int[]}, durations as 16-bit values
+ * (widened to 32 bits only if a month contains an unusually long entry), and activity types, tags
+ * and meta tags as IDs into a per-month dictionary. Notes sit in a trailing section that is only
+ * read when {@link #note(int)} is called, so aggregations scan primitive arrays and never touch
+ * them.
+ *
+ * <p>The header records the size and modification time of the snapshot and journal it was built
+ * from, plus the earliest and latest start time, so range queries can skip a month after reading a
+ * few bytes. A sidecar whose sources have changed since is ignored and rebuilt. Start times are
+ * kept at minute precision.
+ */
+public final class MonthSegment {
+  static final String EXTENSION = ".cols";
+  private static final int MAGIC = 0x54435332; // "TCS2"
+
+  private final Path file;
+  private final String[] dictionary;
+  private final long[] idMsb;
+  private final long[] idLsb;
+  private final int[] startMinutes;
+  private final int[] durations;
+  private final int[] typeIds;
+  private final int[] tagOffsets;
+  private final int[] tagIds;
+  private final int[] metaTagOffsets;
+  private final int[] metaTagIds;
+  private final int minStartMinute;
+  private final int maxStartMinute;
+  private final long notesOffset;
+  private String[] notes;
+  private int[] symbolIds;
+
+  private MonthSegment(
+      Path file,
+      String[] dictionary,
+      long[] idMsb,
+      long[] idLsb,
+      int[] startMinutes,
+      int[] durations,
+      int[] typeIds,
+      int[] tagOffsets,
+      int[] tagIds,
+      int[] metaTagOffsets,
+      int[] metaTagIds,
+      long notesOffset,
+      String[] notes) {
+    this.file = file;
+    this.dictionary = dictionary;
+    this.idMsb = idMsb;
+    this.idLsb = idLsb;
+    this.startMinutes = startMinutes;
+    this.durations = durations;
+    this.typeIds = typeIds;
+    this.tagOffsets = tagOffsets;
+    this.tagIds = tagIds;
+    this.metaTagOffsets = metaTagOffsets;
+    this.metaTagIds = metaTagIds;
+    this.notesOffset = notesOffset;
+    this.notes = notes;
+
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (int minute : startMinutes) {
+      min = Math.min(min, minute);
+      max = Math.max(max, minute);
+    }
+    this.minStartMinute = min;
+    this.maxStartMinute = max;
+  }
+
+  public int size() {
+    return startMinutes.length;
+  }
+
+  public int startMinute(int i) {
+    return startMinutes[i];
+  }
+
+  public LocalDateTime startTime(int i) {
+    return LocalDateTime.ofEpochSecond(startMinutes[i] * 60L, 0, ZoneOffset.UTC);
+  }
+
+  public LocalDate date(int i) {
+    return LocalDate.ofEpochDay(Math.floorDiv(startMinutes[i], 1440));
+  }
+
+  public int duration(int i) {
+    return durations[i];
+  }
+
+  public int typeId(int i) {
+    return typeIds[i];
+  }
+
+  public String type(int i) {
+    return dictionary[typeIds[i]];
+  }
+
+  public int tagCount(int i) {
+    return tagOffsets[i + 1] - tagOffsets[i];
+  }
+
+  public int tagId(int i, int k) {
+    return tagIds[tagOffsets[i] + k];
+  }
+
+  public int metaTagCount(int i) {
+    return metaTagOffsets[i + 1] - metaTagOffsets[i];
+  }
+
+  public int metaTagId(int i, int k) {
+    return metaTagIds[metaTagOffsets[i] + k];
+  }
+
+  /** Resolves a type, tag or meta tag ID from this segment's dictionary. */
+  public String symbol(int id) {
+    return dictionary[id];
+  }
+
+  /**
+   * Maps this segment's dictionary onto the store-wide {@code symbols}, which the {@code *Symbol}
+   * accessors below then answer in. {@link EntryStore} binds every segment it loads.
+   */
+  void bind(SymbolTable symbols) {
+    int[] ids = new int[dictionary.length];
+    for (int id = 0; id < ids.length; id++) {
+      ids[id] = symbols.intern(dictionary[id]);
+    }
+    symbolIds = ids;
+  }
+
+  public int typeSymbol(int i) {
+    return symbolIds[typeIds[i]];
+  }
+
+  public int tagSymbol(int i, int k) {
+    return symbolIds[tagIds[tagOffsets[i] + k]];
+  }
+
+  public int metaTagSymbol(int i, int k) {
+    return symbolIds[metaTagIds[metaTagOffsets[i] + k]];
+  }
+
+  /** Whether entry {@code i} is tagged with the store-wide {@code symbol}. */
+  public boolean hasTagSymbol(int i, int symbol) {
+    for (int k = tagOffsets[i]; k < tagOffsets[i + 1]; k++) {
+      if (symbolIds[tagIds[k]] == symbol) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Whether entry {@code i} has the store-wide {@code symbol} as a meta tag. */
+  public boolean hasMetaTagSymbol(int i, int symbol) {
+    for (int k = metaTagOffsets[i]; k < metaTagOffsets[i + 1]; k++) {
+      if (symbolIds[metaTagIds[k]] == symbol) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Earliest start time in this month as epoch minutes, or {@code Integer.MAX_VALUE} if empty. */
+  public int minStartMinute() {
+    return minStartMinute;
+  }
+
+  /** Latest start time in this month as epoch minutes, or {@code Integer.MIN_VALUE} if empty. */
+  public int maxStartMinute() {
+    return maxStartMinute;
+  }
+
+  /** Whether any entry starts in {@code [fromMinute, toMinute)}. */
+  public boolean hasEntriesBetween(int fromMinute, int toMinute) {
+    if (size() == 0 || maxStartMinute < fromMinute || minStartMinute >= toMinute) {
+      return false;
+    }
+    for (int minute : startMinutes) {
+      if (minute >= fromMinute && minute < toMinute) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public String note(int i) {
+    if (notes == null) {
+      notes = readNotes(file, notesOffset, size());
+    }
+    return notes[i];
+  }
+
+  /** Rebuilds full entries; notes are only loaded if {@code withNotes} is set. */
+  public List<TimeEntry> toEntries(boolean withNotes) {
+    List<TimeEntry> entries = new ArrayList<>(size());
+    for (int i = 0; i < size(); i++) {
+      entries.add(
+          new TimeEntry(
+              new UUID(idMsb[i], idLsb[i]),
+              startTime(i),
+              durations[i],
+              withNotes ? note(i) : null,
+              type(i),
+              symbols(tagIds, tagOffsets, i),
+              symbols(metaTagIds, metaTagOffsets, i)));
+    }
+    return entries;
+  }
+
+  private Set<String> symbols(int[] ids, int[] offsets, int i) {
+    Set<String> result = new LinkedHashSet<>();
+    for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+      result.add(dictionary[ids[k]]);
+    }
+    return result;
+  }
+
+  /** First minute of {@code date}, in the same epoch-minute scale as {@link #startMinute(int)}. */
+  public static int epochMinute(LocalDate date) {
+    return (int) (date.toEpochDay() * 1440);
+  }
+
+  static int toEpochMinute(LocalDateTime dateTime) {
+    return (int) Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+  }
+
+  static MonthSegment of(List<TimeEntry> entries) {
+    int count = entries.size();
+    Map<String, Integer> ids = new HashMap<>();
+    List<String> dictionary = new ArrayList<>();
+    long[] idMsb = new long[count];
+    long[] idLsb = new long[count];
+    int[] startMinutes = new int[count];
+    int[] durations = new int[count];
+    int[] typeIds = new int[count];
+    int[] tagOffsets = new int[count + 1];
+    int[] metaTagOffsets = new int[count + 1];
+    List<Integer> tagIds = new ArrayList<>();
+    List<Integer> metaTagIds = new ArrayList<>();
+    String[] notes = new String[count];
+
+    for (int i = 0; i < count; i++) {
+      TimeEntry e = entries.get(i);
+      idMsb[i] = e.id().getMostSignificantBits();
+      idLsb[i] = e.id().getLeastSignificantBits();
+      startMinutes[i] = toEpochMinute(e.startTime());
+      durations[i] = e.durationMinutes();
+      typeIds[i] = intern(e.activityType(), ids, dictionary);
+      for (String tag : e.tags()) {
+        tagIds.add(intern(tag, ids, dictionary));
+      }
+      tagOffsets[i + 1] = tagIds.size();
+      for (String metaTag : e.metaTags()) {
+        metaTagIds.add(intern(metaTag, ids, dictionary));
+      }
+      metaTagOffsets[i + 1] = metaTagIds.size();
+      notes[i] = e.note();
+    }
+
+    return new MonthSegment(
+        null,
+        dictionary.toArray(String[]::new),
+        idMsb,
+        idLsb,
+        startMinutes,
+        durations,
+        typeIds,
+        tagOffsets,
+        tagIds.stream().mapToInt(Integer::intValue).toArray(),
+        metaTagOffsets,
+        metaTagIds.stream().mapToInt(Integer::intValue).toArray(),
+        -1,
+        notes);
+  }
+
+  private static int intern(String value, Map<String, Integer> ids, List<String> dictionary) {
+    String key = value == null ? "" : value;
+    return ids.computeIfAbsent(
+        key,
+        k -> {
+          dictionary.add(k);
+          return dictionary.size() - 1;
+        });
+  }
+
+  /**
+   * Writes this segment to {@code file}, tagged with the signature of the sources it was built
+   * from. Layout: magic, source signature, min and max start minute, offset of the notes section,
+   * the column section, then the notes.
+   */
+  void write(Path file, long[] sourceSignature) throws IOException {
+    boolean wide = false;
+    for (int duration : durations) {
+      wide |= duration < 0 || duration > 0xFFFF;
+    }
+
+    ByteArrayOutputStream columnBytes = new ByteArrayOutputStream();
+    DataOutputStream columns = new DataOutputStream(columnBytes);
+    columns.writeInt(size());
+    columns.writeBoolean(wide);
+    columns.writeInt(dictionary.length);
+    for (String symbol : dictionary) {
+      writeString(columns, symbol);
+    }
+    for (int i = 0; i < size(); i++) {
+      columns.writeLong(idMsb[i]);
+      columns.writeLong(idLsb[i]);
+    }
+    writeInts(columns, startMinutes);
+    for (int duration : durations) {
+      if (wide) {
+        columns.writeInt(duration);
+      } else {
+        columns.writeShort(duration);
+      }
+    }
+    writeInts(columns, typeIds);
+    writeInts(columns, tagOffsets);
+    columns.writeInt(tagIds.length);
+    writeInts(columns, tagIds);
+    writeInts(columns, metaTagOffsets);
+    columns.writeInt(metaTagIds.length);
+    writeInts(columns, metaTagIds);
+    columns.flush();
+
+    long notesStart = headerBytes(sourceSignature) + columnBytes.size();
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+      out.writeInt(MAGIC);
+      for (long value : sourceSignature) {
+        out.writeLong(value);
+      }
+      out.writeInt(minStartMinute);
+      out.writeInt(maxStartMinute);
+      out.writeLong(notesStart);
+      columnBytes.writeTo(out);
+      for (int i = 0; i < size(); i++) {
+        writeString(out, note(i));
+      }
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads the column section of {@code file}, or returns {@code null} if it is missing, corrupt or
+   * was built from sources other than {@code sourceSignature}.
+   */
+  static MonthSegment read(Path file, long[] sourceSignature) {
+    if (!Files.exists(file)) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      int headerBytes = headerBytes(sourceSignature);
+      ByteBuffer header = readHeader(channel, sourceSignature);
+      if (header == null) {
+        return null;
+      }
+      header.getInt(); // min start minute, recomputed from the column
+      header.getInt(); // max start minute
+      long notesStart = header.getLong();
+      ByteBuffer in = ByteBuffer.allocate((int) (notesStart - headerBytes));
+      readFully(channel, in);
+
+      int count = in.getInt();
+      boolean wide = in.get() != 0;
+      String[] dictionary = new String[in.getInt()];
+      for (int i = 0; i < dictionary.length; i++) {
+        dictionary[i] = readString(in);
+      }
+      long[] idMsb = new long[count];
+      long[] idLsb = new long[count];
+      for (int i = 0; i < count; i++) {
+        idMsb[i] = in.getLong();
+        idLsb[i] = in.getLong();
+      }
+      int[] startMinutes = readInts(in, count);
+      int[] durations = new int[count];
+      for (int i = 0; i < count; i++) {
+        durations[i] = wide ? in.getInt() : in.getShort() & 0xFFFF;
+      }
+      int[] typeIds = readInts(in, count);
+      int[] tagOffsets = readInts(in, count + 1);
+      int[] tagIds = readInts(in, in.getInt());
+      int[] metaTagOffsets = readInts(in, count + 1);
+      int[] metaTagIds = readInts(in, in.getInt());
+
+      return new MonthSegment(
+          file,
+          dictionary,
+          idMsb,
+          idLsb,
+          startMinutes,
+          durations,
+          typeIds,
+          tagOffsets,
+          tagIds,
+          metaTagOffsets,
+          metaTagIds,
+          notesStart,
+          null);
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Reads only the header of {@code file} and returns {@code {minStartMinute, maxStartMinute}}, or
+   * {@code null} if the sidecar is missing, corrupt or stale.
+   */
+  static int[] readBounds(Path file, long[] sourceSignature) {
+    if (!Files.exists(file)) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = readHeader(channel, sourceSignature);
+      return header == null ? null : new int[] {header.getInt(), header.getInt()};
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  /** Reads the header and checks magic and signature, leaving the buffer at the bounds. */
+  private static ByteBuffer readHeader(FileChannel channel, long[] sourceSignature)
+      throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(headerBytes(sourceSignature));
+    readFully(channel, header);
+    if (header.getInt() != MAGIC) {
+      return null;
+    }
+    for (long expected : sourceSignature) {
+      if (header.getLong() != expected) {
+        return null;
+      }
+    }
+    return header;
+  }
+
+  private static int headerBytes(long[] sourceSignature) {
+    return Integer.BYTES + sourceSignature.length * Long.BYTES + 2 * Integer.BYTES + Long.BYTES;
+  }
+
+  private static String[] readNotes(Path file, long notesOffset, int count) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer in = ByteBuffer.allocate((int) (channel.size() - notesOffset));
+      channel.position(notesOffset);
+      readFully(channel, in);
+      String[] notes = new String[count];
+      for (int i = 0; i < count; i++) {
+        notes[i] = readString(in);
+      }
+      return notes;
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read notes from " + file, e);
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("Unexpected end of segment");
+      }
+    }
+    buffer.flip();
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  private static int[] readInts(ByteBuffer in, int count) {
+    int[] values = new int[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = in.getInt();
+    }
+    return values;
+  }
+}
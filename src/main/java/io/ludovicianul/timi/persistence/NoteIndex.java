@@ -0,0 +1,682 @@
+package io.ludovicianul.timi.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Full-text index over entry notes, so a note search only reads the months holding a candidate.
+ *
+ * <p>Every entry with a note is a document with a dense number. Lower-cased notes are split into
+ * words, whose posting lists carry the number of occurrences for ranking, and into trigrams (every
+ * three consecutive characters), whose posting lists narrow a substring query down to the notes
+ * holding all of its trigrams. Candidates are a superset of the matches; the caller checks the
+ * actual note with {@link NoteQuery#matches}.
+ *
+ * <p>The compacted base lives in {@code notes.bin}. Every change after it is appended to {@code
+ * notes.log} as a {@code put <month file> <id> <note>}, {@code del <month file> <id>} or {@code
+ * clear <month file>} line; a replaced or deleted document is only marked dead until the log passes
+ * {@link #COMPACTION_THRESHOLD_BYTES} and the base is rewritten without it. As with {@link
+ * TermIndex}, writes only append and the index is read on the first search or compaction, and
+ * nothing is recorded until {@code notes.bin} exists. Each write also records the signature of the
+ * month's files in a {@code source <month file> <signature>} line, so {@link #changedMonths} can
+ * tell which months were edited outside the store.
+ */
+final class NoteIndex {
+  private static final long COMPACTION_THRESHOLD_BYTES = 256 * 1024;
+  private static final int MAGIC = 0x544E4933; // "TNI3"
+  private static final int MAGIC_V2 = 0x544E4932; // "TNI2", without source signatures
+  private static final int GRAM = 3;
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+  private static final double PREFIX_WEIGHT = 0.5;
+
+  private final Path baseFile;
+  private final Path logFile;
+
+  /** Documents by number; {@code null} once dead. Loaded on first use, as are the maps below. */
+  private List<Doc> docs;
+
+  private Map<UUID, Integer> live;
+  private TreeMap<String, Postings> words;
+  private Map<String, Postings> trigrams;
+  private long totalLength;
+  /** Month ordinal → signature of the month files the notes were taken from. */
+  private Map<Integer, long[]> sources;
+  /** {@link FileSignature} of the files as this process last read or wrote them. */
+  private long[] loadedSignature;
+
+  /** An indexed note: its entry, month ordinal, normalized text and length in words. */
+  private record Doc(UUID id, int month, String note, int length) {}
+
+  /** Ascending document numbers, with occurrence counts when the list belongs to a word. */
+  private static final class Postings {
+    int[] docs = new int[4];
+    int[] counts;
+    int size;
+
+    Postings(boolean counted) {
+      counts = counted ? new int[4] : null;
+    }
+
+    Postings(int[] docs, int[] counts) {
+      this.docs = docs;
+      this.counts = counts;
+      this.size = docs.length;
+    }
+
+    void add(int doc, int count) {
+      if (size == docs.length) {
+        docs = Arrays.copyOf(docs, Math.max(4, size * 2));
+        counts = counts == null ? null : Arrays.copyOf(counts, docs.length);
+      }
+      docs[size] = doc;
+      if (counts != null) {
+        counts[size] = count;
+      }
+      size++;
+    }
+  }
+
+  NoteIndex(Path baseDir) {
+    this.baseFile = baseDir.resolve("notes.bin");
+    this.logFile = baseDir.resolve("notes.log");
+  }
+
+  /** Forgets the loaded index if another process has written to it since. */
+  synchronized void refresh() {
+    if (docs != null && !Arrays.equals(loadedSignature, signature())) {
+      docs = null;
+    }
+  }
+
+  boolean isBuilt() {
+    return Files.exists(baseFile);
+  }
+
+  /**
+   * The entries whose note may match {@code query}, grouped by month file name in month order, each
+   * with its BM25 relevance for the query's words. Notes holding the words only inside longer
+   * words score {@code 0}; with {@link NoteQuery.Match#word} only whole words count, otherwise a
+   * word also counts, at a lower weight, for the longer words it starts.
+   */
+  synchronized Map<String, Map<UUID, Double>> search(NoteQuery query) {
+    load();
+    BitSet candidates = candidates(query);
+    double[] scores = rank(query, candidates);
+
+    Map<String, Map<UUID, Double>> byMonth = new TreeMap<>();
+    for (int d = candidates.nextSetBit(0); d >= 0; d = candidates.nextSetBit(d + 1)) {
+      Doc doc = docs.get(d);
+      byMonth
+          .computeIfAbsent(EntryIndex.monthFileName(doc.month()), k -> new LinkedHashMap<>())
+          .put(doc.id(), scores[d]);
+    }
+    return byMonth;
+  }
+
+  /**
+   * Records that {@code removed} left the month in {@code fileName} and {@code added} joined, which
+   * left its files with the signature {@code source}.
+   */
+  synchronized void update(
+      String fileName,
+      long[] source,
+      Collection<TimeEntry> removed,
+      Collection<TimeEntry> added) {
+    if (!isBuilt()) {
+      return;
+    }
+    int month = EntryIndex.monthOrdinal(fileName);
+    Map<UUID, String> before = new HashMap<>();
+    removed.forEach(e -> before.put(e.id(), normalizedNote(e)));
+
+    List<String> lines = new ArrayList<>();
+    Set<UUID> kept = new HashSet<>();
+    for (TimeEntry entry : added) {
+      kept.add(entry.id());
+      String note = normalizedNote(entry);
+      if (note != null && !note.equals(before.get(entry.id()))) {
+        lines.add(put(entry.id(), month, note));
+      } else if (note == null && before.get(entry.id()) != null) {
+        lines.add(delete(entry.id(), month));
+      }
+    }
+    before.forEach(
+        (id, note) -> {
+          if (note != null && !kept.contains(id)) {
+            lines.add(delete(id, month));
+          }
+        });
+    lines.add(source(month, source));
+    append(lines);
+  }
+
+  /**
+   * Makes the month in {@code fileName} hold exactly the notes of {@code entries}, read from files
+   * with the signature {@code source}.
+   */
+  synchronized void replaceMonth(String fileName, long[] source, Collection<TimeEntry> entries) {
+    if (!isBuilt()) {
+      return;
+    }
+    int month = EntryIndex.monthOrdinal(fileName);
+    List<String> lines = new ArrayList<>();
+    lines.add(clearMonth(month));
+    for (TimeEntry entry : entries) {
+      String note = normalizedNote(entry);
+      if (note != null) {
+        lines.add(put(entry.id(), month, note));
+      }
+    }
+    lines.add(source(month, source));
+    append(lines);
+  }
+
+  /**
+   * Replaces the whole index with the notes of {@code months}, keyed by month file name and read
+   * from files with the signatures in {@code sources}, and writes it as a fresh base with an empty
+   * log.
+   */
+  synchronized void replaceAll(
+      Map<String, ? extends Collection<TimeEntry>> months, Map<String, long[]> sources) {
+    clear();
+    sources.forEach(
+        (fileName, source) -> this.sources.put(EntryIndex.monthOrdinal(fileName), source));
+    months.forEach(
+        (fileName, entries) -> {
+          int month = EntryIndex.monthOrdinal(fileName);
+          for (TimeEntry entry : entries) {
+            String note = normalizedNote(entry);
+            if (note != null) {
+              index(entry.id(), month, note);
+            }
+          }
+        });
+    write();
+  }
+
+  /**
+   * File names of the months whose files no longer have the signature they were indexed at, as
+   * {@link TermIndex#changedMonths}.
+   */
+  synchronized Set<String> changedMonths(Map<String, long[]> sources) {
+    load();
+    Set<Integer> changed = new TreeSet<>();
+    Set<Integer> present = new HashSet<>();
+    sources.forEach(
+        (fileName, source) -> {
+          int month = EntryIndex.monthOrdinal(fileName);
+          present.add(month);
+          if (!Arrays.equals(source, this.sources.get(month))) {
+            changed.add(month);
+          }
+        });
+    this.sources.forEach(
+        (month, source) -> {
+          if (!present.contains(month) && Arrays.stream(source).anyMatch(part -> part != -1)) {
+            changed.add(month);
+          }
+        });
+    Set<String> fileNames = new LinkedHashSet<>();
+    changed.forEach(month -> fileNames.add(EntryIndex.monthFileName(month)));
+    return fileNames;
+  }
+
+  /** File names of the months whose indexed notes differ from those of {@code months}. */
+  synchronized Set<String> staleMonths(Map<String, ? extends Collection<TimeEntry>> months) {
+    if (!isBuilt()) {
+      return Set.of();
+    }
+    load();
+    Map<UUID, Doc> expected = new HashMap<>();
+    months.forEach(
+        (fileName, entries) -> {
+          int month = EntryIndex.monthOrdinal(fileName);
+          for (TimeEntry entry : entries) {
+            String note = normalizedNote(entry);
+            if (note != null) {
+              expected.put(entry.id(), new Doc(entry.id(), month, note, 0));
+            }
+          }
+        });
+
+    Set<Integer> stale = new TreeSet<>();
+    expected.forEach(
+        (id, wanted) -> {
+          Integer doc = live.get(id);
+          if (doc == null) {
+            stale.add(wanted.month());
+          } else if (docs.get(doc).month() != wanted.month()
+              || !docs.get(doc).note().equals(wanted.note())) {
+            stale.add(wanted.month());
+            stale.add(docs.get(doc).month());
+          }
+        });
+    live.forEach(
+        (id, doc) -> {
+          if (!expected.containsKey(id)) {
+            stale.add(docs.get(doc).month());
+          }
+        });
+    Set<String> fileNames = new LinkedHashSet<>();
+    stale.forEach(month -> fileNames.add(EntryIndex.monthFileName(month)));
+    return fileNames;
+  }
+
+  private BitSet candidates(NoteQuery query) {
+    BitSet candidates = new BitSet(docs.size());
+    live.values().forEach(candidates::set);
+
+    if (query.match() == NoteQuery.Match.substring) {
+      String text = query.normalized();
+      for (String trigram : trigrams(text)) {
+        candidates.and(docsOf(List.of(trigrams.getOrDefault(trigram, new Postings(false)))));
+      }
+      return candidates;
+    }
+    for (String word : query.words()) {
+      candidates.and(docsOf(postingsFor(word, query.match()).values()));
+    }
+    return candidates;
+  }
+
+  /** BM25 of every candidate for the query's words, indexed by document number. */
+  private double[] rank(NoteQuery query, BitSet candidates) {
+    double[] scores = new double[docs.size()];
+    if (live.isEmpty()) {
+      return scores;
+    }
+    double averageLength = Math.max(1.0, (double) totalLength / live.size());
+    for (String word : query.words()) {
+      double[] counts = new double[docs.size()];
+      int holding = 0;
+      for (Map.Entry<String, Postings> list : postingsFor(word, query.match()).entrySet()) {
+        // A longer word the query word only starts counts half as much as the word itself.
+        double weight = list.getKey().equals(word) ? 1 : PREFIX_WEIGHT;
+        Postings postings = list.getValue();
+        for (int p = 0; p < postings.size; p++) {
+          int d = postings.docs[p];
+          if (docs.get(d) != null) {
+            holding += counts[d] == 0 ? 1 : 0;
+            counts[d] += weight * postings.counts[p];
+          }
+        }
+      }
+      double idf = Math.log(1 + (live.size() - holding + 0.5) / (holding + 0.5));
+      for (int d = candidates.nextSetBit(0); d >= 0; d = candidates.nextSetBit(d + 1)) {
+        if (counts[d] > 0) {
+          double norm = K1 * (1 - B + B * docs.get(d).length() / averageLength);
+          scores[d] += idf * counts[d] * (K1 + 1) / (counts[d] + norm);
+        }
+      }
+    }
+    return scores;
+  }
+
+  /** Posting lists of {@code word}, or of every indexed word it starts unless matching words. */
+  private Map<String, Postings> postingsFor(String word, NoteQuery.Match match) {
+    if (match == NoteQuery.Match.word) {
+      Postings postings = words.get(word);
+      return postings == null ? Map.of() : Map.of(word, postings);
+    }
+    return words.subMap(word, true, word + Character.MAX_VALUE, false);
+  }
+
+  private static BitSet docsOf(Collection<Postings> lists) {
+    BitSet docs = new BitSet();
+    for (Postings postings : lists) {
+      for (int p = 0; p < postings.size; p++) {
+        docs.set(postings.docs[p]);
+      }
+    }
+    return docs;
+  }
+
+  private static Set<String> trigrams(String text) {
+    Set<String> trigrams = new HashSet<>();
+    for (int i = 0; i + GRAM <= text.length(); i++) {
+      trigrams.add(text.substring(i, i + GRAM));
+    }
+    return trigrams;
+  }
+
+  private static String normalizedNote(TimeEntry entry) {
+    return entry.note() == null ? null : NoteQuery.normalize(entry.note());
+  }
+
+  private boolean isIn(UUID id, int month) {
+    Integer doc = live.get(id);
+    return doc != null && docs.get(doc).month() == month;
+  }
+
+  /** Indexes {@code note} for {@code id} if the index is loaded, returning the log line. */
+  private String put(UUID id, int month, String note) {
+    if (docs != null) {
+      index(id, month, note);
+    }
+    return "put " + EntryIndex.monthFileName(month) + " " + id + " " + escape(note);
+  }
+
+  /** Drops {@code id} from {@code month} if the index is loaded, returning the log line. */
+  private String delete(UUID id, int month) {
+    if (docs != null && isIn(id, month)) {
+      unindex(id);
+    }
+    return "del " + EntryIndex.monthFileName(month) + " " + id;
+  }
+
+  /** Records {@code source} for {@code month} if the index is loaded, returning the log line. */
+  private String source(int month, long[] source) {
+    if (docs != null) {
+      sources.put(month, source.clone());
+    }
+    StringBuilder line = new StringBuilder("source ").append(EntryIndex.monthFileName(month));
+    for (long part : source) {
+      line.append(' ').append(part);
+    }
+    return line.toString();
+  }
+
+  /** Drops every note of {@code month} if the index is loaded, returning the log line. */
+  private String clearMonth(int month) {
+    if (docs != null) {
+      unindexMonth(month);
+    }
+    return "clear " + EntryIndex.monthFileName(month);
+  }
+
+  private void index(UUID id, int month, String note) {
+    unindex(id);
+    int doc = docs.size();
+    List<String> noteWords = NoteQuery.words(note);
+    docs.add(new Doc(id, month, note, noteWords.size()));
+    live.put(id, doc);
+    totalLength += noteWords.size();
+
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    noteWords.forEach(word -> counts.merge(word, 1, Integer::sum));
+    counts.forEach(
+        (word, count) -> words.computeIfAbsent(word, k -> new Postings(true)).add(doc, count));
+    for (String trigram : trigrams(note)) {
+      trigrams.computeIfAbsent(trigram, k -> new Postings(false)).add(doc, 1);
+    }
+  }
+
+  private void unindex(UUID id) {
+    Integer doc = live.remove(id);
+    if (doc != null) {
+      totalLength -= docs.get(doc).length();
+      docs.set(doc, null);
+    }
+  }
+
+  private void unindexMonth(int month) {
+    for (UUID id : new ArrayList<>(live.keySet())) {
+      if (isIn(id, month)) {
+        unindex(id);
+      }
+    }
+  }
+
+  private void clear() {
+    docs = new ArrayList<>();
+    live = new HashMap<>();
+    words = new TreeMap<>();
+    trigrams = new HashMap<>();
+    totalLength = 0;
+    sources = new HashMap<>();
+  }
+
+  private void load() {
+    if (docs != null) {
+      return;
+    }
+
+    clear();
+    if (isBuilt()) {
+      readBase();
+      replayLog();
+    }
+    loadedSignature = signature();
+  }
+
+  private void readBase() {
+    try {
+      ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(baseFile));
+      int magic = in.getInt();
+      if (magic != MAGIC && magic != MAGIC_V2) {
+        throw new IOException("Unrecognized note index format");
+      }
+      int docCount = in.getInt();
+      for (int d = 0; d < docCount; d++) {
+        UUID id = new UUID(in.getLong(), in.getLong());
+        int month = in.getShort() & 0xFFFF;
+        byte[] note = new byte[in.getInt()];
+        in.get(note);
+        Doc doc = new Doc(id, month, new String(note, StandardCharsets.UTF_8), in.getInt());
+        docs.add(doc);
+        live.put(doc.id(), d);
+        totalLength += doc.length();
+      }
+      readPostings(in, words, true);
+      readPostings(in, trigrams, false);
+      // An older base has no signatures, so every month reads as changed and is indexed again.
+      if (magic == MAGIC) {
+        int sourceCount = in.getInt();
+        for (int s = 0; s < sourceCount; s++) {
+          int month = in.getShort() & 0xFFFF;
+          long[] source = new long[in.get() & 0xFF];
+          for (int i = 0; i < source.length; i++) {
+            source[i] = in.getLong();
+          }
+          sources.put(month, source);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      throw new RuntimeException(
+          "Failed to load notes.bin (run `timi index rebuild` to recreate it)", e);
+    }
+  }
+
+  private static void readPostings(ByteBuffer in, Map<String, Postings> into, boolean counted) {
+    int keyCount = in.getInt();
+    for (int k = 0; k < keyCount; k++) {
+      byte[] key = new byte[in.getInt()];
+      in.get(key);
+      int[] docs = readInts(in, in.getInt());
+      into.put(
+          new String(key, StandardCharsets.UTF_8),
+          new Postings(docs, counted ? readInts(in, docs.length) : null));
+    }
+  }
+
+  private static int[] readInts(ByteBuffer in, int count) {
+    int[] values = new int[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = in.getInt();
+    }
+    return values;
+  }
+
+  private void replayLog() {
+    List<String> lines;
+    try {
+      lines = AppendOnlyFile.readLines(logFile);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read notes.log", e);
+    }
+
+    // A torn trailing write has no newline and is already left out; a complete line that does not
+    // parse means the log is corrupt, and skipping it would lose notes on the next compaction.
+    for (String line : lines) {
+      try {
+        replay(line);
+      } catch (IllegalArgumentException e) {
+        throw new RuntimeException(
+            "Corrupt notes.log line '" + line + "' (run `timi index rebuild` to recreate it)", e);
+      }
+    }
+  }
+
+  private void replay(String line) {
+    String[] parts = line.split(" ", 4);
+    if (parts.length == 4 && parts[0].equals("put")) {
+      index(UUID.fromString(parts[2]), EntryIndex.monthOrdinal(parts[1]), unescape(parts[3]));
+    } else if (parts.length == 3 && parts[0].equals("del")) {
+      UUID id = UUID.fromString(parts[2]);
+      if (isIn(id, EntryIndex.monthOrdinal(parts[1]))) {
+        unindex(id);
+      }
+    } else if (parts.length == 2 && parts[0].equals("clear")) {
+      unindexMonth(EntryIndex.monthOrdinal(parts[1]));
+    } else if (parts.length >= 3 && parts[0].equals("source")) {
+      String[] source = line.split(" ");
+      sources.put(
+          EntryIndex.monthOrdinal(parts[1]),
+          Arrays.stream(source, 2, source.length).mapToLong(Long::parseLong).toArray());
+    } else {
+      throw new IllegalArgumentException("Unrecognized record");
+    }
+  }
+
+  /** Keeps a note on one log line. */
+  private static String escape(String note) {
+    return note.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+  }
+
+  private static String unescape(String text) {
+    StringBuilder note = new StringBuilder(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\\' && i + 1 < text.length()) {
+        char next = text.charAt(++i);
+        note.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+      } else {
+        note.append(c);
+      }
+    }
+    return note.toString();
+  }
+
+  private void append(List<String> lines) {
+    if (lines.isEmpty()) {
+      return;
+    }
+    try {
+      AppendOnlyFile.appendLines(logFile, lines);
+      if (Files.size(logFile) > COMPACTION_THRESHOLD_BYTES) {
+        load();
+        write();
+      }
+      loadedSignature = signature();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to write notes.log", e);
+    }
+  }
+
+  /** Writes the live documents as a fresh base, renumbered densely, and drops the log. */
+  private void write() {
+    try {
+      writeBase();
+      Files.deleteIfExists(logFile);
+      docs = null;
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to write notes.bin", e);
+    }
+  }
+
+  private long[] signature() {
+    return FileSignature.of(baseFile, logFile);
+  }
+
+  private void writeBase() throws IOException {
+    int[] renumbered = new int[docs.size()];
+    List<Doc> kept = new ArrayList<>();
+    for (int d = 0; d < docs.size(); d++) {
+      renumbered[d] = docs.get(d) == null ? -1 : kept.size();
+      if (docs.get(d) != null) {
+        kept.add(docs.get(d));
+      }
+    }
+
+    Files.createDirectories(baseFile.getParent());
+    Path tmp = baseFile.resolveSibling("notes.bin.tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(kept.size());
+      for (Doc doc : kept) {
+        out.writeLong(doc.id().getMostSignificantBits());
+        out.writeLong(doc.id().getLeastSignificantBits());
+        out.writeShort(doc.month());
+        byte[] note = doc.note().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(note.length);
+        out.write(note);
+        out.writeInt(doc.length());
+      }
+      writePostings(out, words, renumbered);
+      writePostings(out, trigrams, renumbered);
+      out.writeInt(sources.size());
+      for (Map.Entry<Integer, long[]> source : new TreeMap<>(sources).entrySet()) {
+        out.writeShort(source.getKey());
+        out.writeByte(source.getValue().length);
+        for (long part : source.getValue()) {
+          out.writeLong(part);
+        }
+      }
+    }
+    Files.move(tmp, baseFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static void writePostings(
+      DataOutputStream out, Map<String, Postings> lists, int[] renumbered) throws IOException {
+    Map<String, Postings> remaining = new TreeMap<>();
+    lists.forEach(
+        (key, postings) -> {
+          Postings kept = new Postings(postings.counts != null);
+          for (int p = 0; p < postings.size; p++) {
+            if (renumbered[postings.docs[p]] >= 0) {
+              kept.add(renumbered[postings.docs[p]], kept.counts == null ? 1 : postings.counts[p]);
+            }
+          }
+          if (kept.size > 0) {
+            remaining.put(key, kept);
+          }
+        });
+
+    out.writeInt(remaining.size());
+    for (Map.Entry<String, Postings> list : remaining.entrySet()) {
+      byte[] key = list.getKey().getBytes(StandardCharsets.UTF_8);
+      out.writeInt(key.length);
+      out.write(key);
+      Postings postings = list.getValue();
+      out.writeInt(postings.size);
+      for (int p = 0; p < postings.size; p++) {
+        out.writeInt(postings.docs[p]);
+      }
+      for (int p = 0; postings.counts != null && p < postings.size; p++) {
+        out.writeInt(postings.counts[p]);
+      }
+    }
+  }
+}
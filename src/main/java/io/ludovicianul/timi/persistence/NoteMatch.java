@@ -0,0 +1,4 @@
+package io.ludovicianul.timi.persistence;
+
+/** An entry found by a note search, with its relevance to the query; higher is better. */
+public record NoteMatch(TimeEntry entry, double score) {}
@@ -0,0 +1,78 @@
+package io.ludovicianul.timi.persistence;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Text an entry's note must contain, ignoring case. {@link Match#substring} looks for the text as
+ * is; {@link Match#word} and {@link Match#prefix} split it into words (runs of letters and digits)
+ * and require every one of them to be a whole word, or the start of a word, of the note.
+ */
+public record NoteQuery(String text, Match match) {
+
+  public enum Match {
+    substring,
+    word,
+    prefix
+  }
+
+  /** The lower-cased text, the form both notes and queries are compared in. */
+  public String normalized() {
+    return normalize(text);
+  }
+
+  /** The distinct words of the query. */
+  public Set<String> words() {
+    return new LinkedHashSet<>(words(text));
+  }
+
+  public boolean matches(String note) {
+    if (note == null) {
+      return false;
+    }
+    if (match == Match.substring) {
+      return normalize(note).contains(normalized());
+    }
+    List<String> noteWords = words(note);
+    for (String word : words()) {
+      boolean found =
+          match == Match.word
+              ? noteWords.contains(word)
+              : noteWords.stream().anyMatch(w -> w.startsWith(word));
+      if (!found) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static String normalize(String text) {
+    return text.toLowerCase(Locale.ROOT);
+  }
+
+  /** The words of {@code text} in order, lower-cased; repeated words are kept. */
+  static List<String> words(String text) {
+    String normalized = normalize(text);
+    List<String> words = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i < normalized.length(); ) {
+      int codePoint = normalized.codePointAt(i);
+      if (Character.isLetterOrDigit(codePoint)) {
+        if (start < 0) {
+          start = i;
+        }
+      } else if (start >= 0) {
+        words.add(normalized.substring(start, i));
+        start = -1;
+      }
+      i += Character.charCount(codePoint);
+    }
+    if (start >= 0) {
+      words.add(normalized.substring(start));
+    }
+    return words;
+  }
+}
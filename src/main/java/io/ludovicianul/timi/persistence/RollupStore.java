@@ -0,0 +1,129 @@
+package io.ludovicianul.timi.persistence;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Per-day totals by type, tag and meta tag, one {@code ~/.timi/rollups/yyyy-MM.json} file per
+ * month, so reports over long ranges read a few kilobytes per month instead of every entry.
+ *
+ * <p>Like the {@code .cols} sidecar, each file carries the signature of the month's snapshot and
+ * journal. Mutations apply their delta to an up-to-date rollup and re-stamp it; a rollup that no
+ * longer matches its month is rebuilt from the entries on the next read.
+ */
+final class RollupStore {
+  private final ObjectReader reader;
+  private final ObjectWriter writer;
+  private final Path dir;
+
+  RollupStore(JsonCodec codec, Path dir) {
+    this.reader = codec.reader(MonthRollup.class);
+    this.writer = codec.compactWriter(MonthRollup.class);
+    this.dir = dir;
+  }
+
+  /** Returns the days of {@code monthFile}, or {@code null} if missing, corrupt or stale. */
+  TreeMap<LocalDate, DayRollup> read(Path monthFile, long[] sourceSignature) {
+    Path file = rollupFor(monthFile);
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try {
+      MonthRollup rollup = reader.readValue(file.toFile());
+      return Arrays.equals(rollup.signature(), sourceSignature) ? rollup.days() : null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  void write(Path monthFile, long[] sourceSignature, TreeMap<LocalDate, DayRollup> days) {
+    Path file = rollupFor(monthFile);
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try {
+      Files.createDirectories(dir);
+      writer.writeValue(tmp.toFile(), new MonthRollup(sourceSignature, days));
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // Rollups are only an accelerator; the month is aggregated again next time.
+    }
+  }
+
+  /**
+   * Applies one write to {@code monthFile} that removed and added the given entries. The rollup is
+   * only patched if it matched the month as it was {@code before}; otherwise it is dropped and
+   * rebuilt on the next read.
+   */
+  void update(
+      Path monthFile,
+      long[] before,
+      long[] after,
+      Collection<TimeEntry> removed,
+      Collection<TimeEntry> added) {
+    TreeMap<LocalDate, DayRollup> days = read(monthFile, before);
+    if (days == null) {
+      discard(monthFile);
+      return;
+    }
+    removed.forEach(e -> apply(days, e, -1));
+    added.forEach(e -> apply(days, e, 1));
+    write(monthFile, after, days);
+  }
+
+  void discard(Path monthFile) {
+    try {
+      Files.deleteIfExists(rollupFor(monthFile));
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to remove rollup for " + monthFile, e);
+    }
+  }
+
+  static TreeMap<LocalDate, DayRollup> of(List<TimeEntry> entries) {
+    TreeMap<LocalDate, DayRollup> days = new TreeMap<>();
+    entries.forEach(e -> apply(days, e, 1));
+    return days;
+  }
+
+  static TreeMap<LocalDate, DayRollup> of(MonthSegment segment) {
+    TreeMap<LocalDate, DayRollup> days = new TreeMap<>();
+    for (int i = 0; i < segment.size(); i++) {
+      List<String> tags = new ArrayList<>(segment.tagCount(i));
+      for (int k = 0; k < segment.tagCount(i); k++) {
+        tags.add(segment.symbol(segment.tagId(i, k)));
+      }
+      List<String> metaTags = new ArrayList<>(segment.metaTagCount(i));
+      for (int k = 0; k < segment.metaTagCount(i); k++) {
+        metaTags.add(segment.symbol(segment.metaTagId(i, k)));
+      }
+      days.computeIfAbsent(segment.date(i), d -> DayRollup.empty())
+          .apply(segment.type(i), tags, metaTags, segment.duration(i), 1);
+    }
+    return days;
+  }
+
+  private static void apply(TreeMap<LocalDate, DayRollup> days, TimeEntry e, int sign) {
+    LocalDate day = e.startTime().toLocalDate();
+    DayRollup rollup = days.computeIfAbsent(day, d -> DayRollup.empty());
+    rollup.apply(e.activityType(), e.tags(), e.metaTags(), e.durationMinutes(), sign);
+    if (rollup.isEmpty()) {
+      days.remove(day);
+    }
+  }
+
+  Path rollupFor(Path monthFile) {
+    return dir.resolve(monthFile.getFileName().toString().substring(0, 7) + ".json");
+  }
+
+  @RegisterForReflection
+  record MonthRollup(long[] signature, TreeMap<LocalDate, DayRollup> days) {}
+}
@@ -0,0 +1,56 @@
+package io.ludovicianul.timi.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Store-wide dictionary of activity types, tags and meta tags. Names are lower-cased, so every
+ * spelling of a name shares one ID, and IDs are handed out densely from {@code 0} and never
+ * reused, so they can index plain arrays. Every {@link MonthSegment} the store loads maps its own
+ * dictionary onto this one, after which filters and group-bys compare ints instead of strings.
+ *
+ * <p>Months are loaded concurrently, so interning is thread-safe.
+ */
+public final class SymbolTable {
+  private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+  private final List<String> names = new ArrayList<>();
+
+  /** Returns the ID of {@code name}, assigning the next free one if it is new. */
+  public int intern(String name) {
+    String key = normalize(name);
+    Integer id = ids.get(key);
+    if (id != null) {
+      return id;
+    }
+    synchronized (this) {
+      return ids.computeIfAbsent(
+          key,
+          k -> {
+            names.add(k);
+            return names.size() - 1;
+          });
+    }
+  }
+
+  /** Returns the ID of {@code name}, or {@code -1} if no loaded entry uses it. */
+  public int id(String name) {
+    return ids.getOrDefault(normalize(name), -1);
+  }
+
+  /** The lower-cased name behind {@code id}. */
+  public synchronized String name(int id) {
+    return names.get(id);
+  }
+
+  /** The number of IDs handed out so far; every ID is below it. */
+  public synchronized int size() {
+    return names.size();
+  }
+
+  static String normalize(String name) {
+    return name == null ? "" : name.toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,22 @@
+package io.ludovicianul.timi.persistence;
+
+/**
+ * Activity type, tag and meta tag an entry must all carry, ignoring case; a {@code null} part
+ * matches anything. The {@link EntryStore} looks these up in its term index to read only the
+ * months that hold such an entry.
+ */
+public record TermFilter(String type, String tag, String metaTag) {
+  public static final TermFilter NONE = new TermFilter(null, null, null);
+
+  public static TermFilter type(String type) {
+    return new TermFilter(type, null, null);
+  }
+
+  public static TermFilter tag(String tag) {
+    return new TermFilter(null, tag, null);
+  }
+
+  public boolean isEmpty() {
+    return type == null && tag == null && metaTag == null;
+  }
+}
@@ -0,0 +1,451 @@
+package io.ludovicianul.timi.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Inverted index from activity types, tags and meta tags to the months that use them, so a query
+ * for one tag only reads the months holding it.
+ *
+ * <p>Terms are lower-cased and prefixed with their kind ({@code y:} type, {@code t:} tag, {@code
+ * m:} meta tag). Each has a posting list of month ordinals, as in {@link EntryIndex}, with the
+ * number of that month's entries carrying the term, so an edited or deleted entry is subtracted
+ * without reading its month again.
+ *
+ * <p>The compacted base lives in {@code terms.bin}. Every change after it is appended to {@code
+ * terms.log} as one {@code <month file> <delta> <term>} line, or {@code <month file> reset} when a
+ * month's terms are replaced wholesale, and folded into the base once the log passes {@link
+ * #COMPACTION_THRESHOLD_BYTES}. Writes only append, so they never load the index; it is read on the
+ * first query or compaction. Until {@code terms.bin} exists nothing is recorded; the store builds
+ * the index from scratch on first use.
+ *
+ * <p>Each write also records the {@link FileSignature} of the month's snapshot and journal as a
+ * {@code <month file> source <signature>} line. A month edited by hand or pulled from git no longer
+ * matches it, and {@link #changedMonths} hands it back to the store to be read again.
+ */
+final class TermIndex {
+  private static final long COMPACTION_THRESHOLD_BYTES = 64 * 1024;
+  private static final int MAGIC = 0x54544932; // "TTI2"
+  private static final int MAGIC_V1 = 0x54544931; // "TTI1", without source signatures
+  private static final String TYPE = "y:";
+  private static final String TAG = "t:";
+  private static final String META_TAG = "m:";
+  private static final String RESET = "reset";
+  private static final String SOURCE = "source";
+
+  private final Path baseFile;
+  private final Path logFile;
+
+  /** Term → month ordinal → matching entries; loaded on first use. */
+  private Map<String, TreeMap<Integer, Integer>> postings;
+  /** Month ordinal → signature of the month files the postings were taken from. */
+  private Map<Integer, long[]> sources;
+  /** {@link FileSignature} of the files as this process last read or wrote them. */
+  private long[] loadedSignature;
+
+  TermIndex(Path baseDir) {
+    this.baseFile = baseDir.resolve("terms.bin");
+    this.logFile = baseDir.resolve("terms.log");
+  }
+
+  /** Forgets the loaded index if another process has written to it since. */
+  synchronized void refresh() {
+    if (postings != null && !Arrays.equals(loadedSignature, signature())) {
+      postings = null;
+      sources = null;
+    }
+  }
+
+  boolean isBuilt() {
+    return Files.exists(baseFile);
+  }
+
+  /**
+   * File names of the months holding an entry that has every term of {@code filter}, or {@code
+   * null} if the filter is empty and so rules out no month.
+   */
+  synchronized Set<String> months(TermFilter filter) {
+    if (filter.isEmpty()) {
+      return null;
+    }
+    load();
+    Set<Integer> months = null;
+    for (String term : terms(filter.type(), filter.tag(), filter.metaTag())) {
+      Set<Integer> holding = postings.getOrDefault(term, new TreeMap<>()).keySet();
+      if (months == null) {
+        months = new TreeSet<>(holding);
+      } else {
+        months.retainAll(holding);
+      }
+    }
+    Set<String> fileNames = new LinkedHashSet<>();
+    months.forEach(month -> fileNames.add(EntryIndex.monthFileName(month)));
+    return fileNames;
+  }
+
+  /** Whether no month holds an entry; every entry has a type, so this checks the type terms. */
+  synchronized boolean isEmpty() {
+    load();
+    return postings.keySet().stream().noneMatch(term -> term.startsWith(TYPE));
+  }
+
+  /**
+   * Records that {@code removed} left the month in {@code fileName} and {@code added} joined, which
+   * left its files with the signature {@code source}.
+   */
+  synchronized void update(
+      String fileName,
+      long[] source,
+      Collection<TimeEntry> removed,
+      Collection<TimeEntry> added) {
+    if (!isBuilt()) {
+      return;
+    }
+    Map<String, Integer> delta = new LinkedHashMap<>();
+    count(removed).forEach((term, entries) -> delta.merge(term, -entries, Integer::sum));
+    count(added).forEach((term, entries) -> delta.merge(term, entries, Integer::sum));
+    List<String> lines = apply(fileName, delta);
+    lines.add(source(fileName, source));
+    append(lines);
+  }
+
+  /**
+   * Makes the month in {@code fileName} hold exactly the terms of {@code entries}, read from files
+   * with the signature {@code source}.
+   */
+  synchronized void replaceMonth(String fileName, long[] source, Collection<TimeEntry> entries) {
+    if (!isBuilt()) {
+      return;
+    }
+    int month = EntryIndex.monthOrdinal(fileName);
+    if (postings != null) {
+      clearMonth(month);
+    }
+    List<String> lines = new ArrayList<>();
+    lines.add(fileName + " " + RESET);
+    lines.addAll(apply(fileName, count(entries)));
+    lines.add(source(fileName, source));
+    append(lines);
+  }
+
+  /**
+   * Replaces the whole index with the terms of {@code months}, keyed by month file name and read
+   * from files with the signatures in {@code sources}, and writes it as a fresh base with an empty
+   * log.
+   */
+  synchronized void replaceAll(
+      Map<String, ? extends Collection<TimeEntry>> months, Map<String, long[]> sources) {
+    Map<Integer, long[]> rebuilt = new HashMap<>();
+    sources.forEach((fileName, source) -> rebuilt.put(EntryIndex.monthOrdinal(fileName), source));
+    write(postingsOf(months), rebuilt);
+  }
+
+  /**
+   * File names of the months whose files no longer have the signature they were indexed at, given
+   * the current signature of every month in {@code sources}. A month the index knows but {@code
+   * sources} lacks counts as changed unless it was indexed as absent.
+   */
+  synchronized Set<String> changedMonths(Map<String, long[]> sources) {
+    load();
+    Set<Integer> changed = new TreeSet<>();
+    Set<Integer> present = new HashSet<>();
+    sources.forEach(
+        (fileName, source) -> {
+          int month = EntryIndex.monthOrdinal(fileName);
+          present.add(month);
+          if (!Arrays.equals(source, this.sources.get(month))) {
+            changed.add(month);
+          }
+        });
+    this.sources.forEach(
+        (month, source) -> {
+          if (!present.contains(month) && Arrays.stream(source).anyMatch(part -> part != -1)) {
+            changed.add(month);
+          }
+        });
+    Set<String> fileNames = new LinkedHashSet<>();
+    changed.forEach(month -> fileNames.add(EntryIndex.monthFileName(month)));
+    return fileNames;
+  }
+
+  /** File names of the months whose indexed terms differ from those of {@code months}. */
+  synchronized Set<String> staleMonths(Map<String, ? extends Collection<TimeEntry>> months) {
+    if (!isBuilt()) {
+      return Set.of();
+    }
+    load();
+    Map<String, TreeMap<Integer, Integer>> expected = postingsOf(months);
+    Set<String> terms = new HashSet<>(expected.keySet());
+    terms.addAll(postings.keySet());
+
+    Set<Integer> stale = new TreeSet<>();
+    for (String term : terms) {
+      Map<Integer, Integer> wanted = expected.getOrDefault(term, new TreeMap<>());
+      Map<Integer, Integer> indexed = postings.getOrDefault(term, new TreeMap<>());
+      Set<Integer> union = new HashSet<>(wanted.keySet());
+      union.addAll(indexed.keySet());
+      for (int month : union) {
+        if (!wanted.getOrDefault(month, 0).equals(indexed.getOrDefault(month, 0))) {
+          stale.add(month);
+        }
+      }
+    }
+    Set<String> fileNames = new LinkedHashSet<>();
+    stale.forEach(month -> fileNames.add(EntryIndex.monthFileName(month)));
+    return fileNames;
+  }
+
+  private static Map<String, TreeMap<Integer, Integer>> postingsOf(
+      Map<String, ? extends Collection<TimeEntry>> months) {
+    Map<String, TreeMap<Integer, Integer>> postings = new HashMap<>();
+    months.forEach(
+        (fileName, entries) -> {
+          int month = EntryIndex.monthOrdinal(fileName);
+          count(entries)
+              .forEach(
+                  (term, matching) ->
+                      postings.computeIfAbsent(term, k -> new TreeMap<>()).put(month, matching));
+        });
+    return postings;
+  }
+
+  /** How many of {@code entries} carry each term. */
+  private static Map<String, Integer> count(Collection<TimeEntry> entries) {
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    for (TimeEntry entry : entries) {
+      for (String term : terms(entry)) {
+        counts.merge(term, 1, Integer::sum);
+      }
+    }
+    return counts;
+  }
+
+  /** The distinct terms of {@code entry}; spellings of one name count once. */
+  private static Set<String> terms(TimeEntry entry) {
+    Set<String> terms = new LinkedHashSet<>();
+    terms.add(TYPE + SymbolTable.normalize(entry.activityType()));
+    entry.tags().forEach(tag -> terms.add(TAG + SymbolTable.normalize(tag)));
+    entry.metaTags().forEach(metaTag -> terms.add(META_TAG + SymbolTable.normalize(metaTag)));
+    return terms;
+  }
+
+  private static List<String> terms(String type, String tag, String metaTag) {
+    List<String> terms = new ArrayList<>();
+    if (type != null) {
+      terms.add(TYPE + SymbolTable.normalize(type));
+    }
+    if (tag != null) {
+      terms.add(TAG + SymbolTable.normalize(tag));
+    }
+    if (metaTag != null) {
+      terms.add(META_TAG + SymbolTable.normalize(metaTag));
+    }
+    return terms;
+  }
+
+  /** Records {@code source} if the index is loaded and returns it as a log line. */
+  private String source(String fileName, long[] source) {
+    if (sources != null) {
+      sources.put(EntryIndex.monthOrdinal(fileName), source.clone());
+    }
+    StringBuilder line = new StringBuilder(fileName).append(' ').append(SOURCE);
+    for (long part : source) {
+      line.append(' ').append(part);
+    }
+    return line.toString();
+  }
+
+  /** Applies {@code delta} if the index is loaded and returns it as log lines. */
+  private List<String> apply(String fileName, Map<String, Integer> delta) {
+    int month = EntryIndex.monthOrdinal(fileName);
+    List<String> lines = new ArrayList<>();
+    delta.forEach(
+        (term, change) -> {
+          if (change != 0) {
+            if (postings != null) {
+              adjust(term, month, change);
+            }
+            lines.add(fileName + " " + change + " " + term);
+          }
+        });
+    return lines;
+  }
+
+  private void clearMonth(int month) {
+    postings.values().removeIf(months -> months.remove(month) != null && months.isEmpty());
+  }
+
+  private void adjust(String term, int month, int change) {
+    TreeMap<Integer, Integer> months = postings.computeIfAbsent(term, k -> new TreeMap<>());
+    int entries = months.getOrDefault(month, 0) + change;
+    if (entries > 0) {
+      months.put(month, entries);
+    } else {
+      months.remove(month);
+    }
+    if (months.isEmpty()) {
+      postings.remove(term);
+    }
+  }
+
+  private void load() {
+    if (postings != null) {
+      return;
+    }
+
+    postings = new HashMap<>();
+    sources = new HashMap<>();
+    if (isBuilt()) {
+      readBase();
+      replayLog();
+    }
+    loadedSignature = signature();
+  }
+
+  private void readBase() {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(baseFile)))) {
+      int magic = in.readInt();
+      if (magic != MAGIC && magic != MAGIC_V1) {
+        throw new IOException("Unrecognized term index format");
+      }
+      int termCount = in.readInt();
+      for (int t = 0; t < termCount; t++) {
+        String term = in.readUTF();
+        TreeMap<Integer, Integer> months = new TreeMap<>();
+        int monthCount = in.readInt();
+        for (int m = 0; m < monthCount; m++) {
+          months.put(in.readShort() & 0xFFFF, in.readInt());
+        }
+        postings.put(term, months);
+      }
+      // An older base has no signatures, so every month reads as changed and is indexed again.
+      if (magic == MAGIC) {
+        int sourceCount = in.readInt();
+        for (int s = 0; s < sourceCount; s++) {
+          int month = in.readShort() & 0xFFFF;
+          long[] source = new long[in.readUnsignedByte()];
+          for (int i = 0; i < source.length; i++) {
+            source[i] = in.readLong();
+          }
+          sources.put(month, source);
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(
+          "Failed to load terms.bin (run `timi index rebuild` to recreate it)", e);
+    }
+  }
+
+  private void replayLog() {
+    List<String> lines;
+    try {
+      lines = AppendOnlyFile.readLines(logFile);
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to read terms.log", e);
+    }
+
+    // A torn trailing write has no newline and is already left out; a complete line that does not
+    // parse means the log is corrupt, and skipping it would lose counts on the next compaction.
+    for (String line : lines) {
+      String[] parts = line.split(" ", 3);
+      try {
+        if (parts.length == 3 && SOURCE.equals(parts[1])) {
+          sources.put(
+              EntryIndex.monthOrdinal(parts[0]),
+              Arrays.stream(parts[2].split(" ")).mapToLong(Long::parseLong).toArray());
+        } else if (parts.length == 2 && RESET.equals(parts[1])) {
+          clearMonth(EntryIndex.monthOrdinal(parts[0]));
+        } else if (parts.length == 3 && parts[2].length() >= 2 && parts[2].charAt(1) == ':') {
+          adjust(parts[2], EntryIndex.monthOrdinal(parts[0]), Integer.parseInt(parts[1]));
+        } else {
+          throw new IllegalArgumentException("Unrecognized record");
+        }
+      } catch (IllegalArgumentException e) {
+        throw new RuntimeException(
+            "Corrupt terms.log line '" + line + "' (run `timi index rebuild` to recreate it)", e);
+      }
+    }
+  }
+
+  private void append(List<String> lines) {
+    if (lines.isEmpty()) {
+      return;
+    }
+    try {
+      AppendOnlyFile.appendLines(logFile, lines);
+      if (Files.size(logFile) > COMPACTION_THRESHOLD_BYTES) {
+        load();
+        write(postings, sources);
+      }
+      loadedSignature = signature();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to write terms.log", e);
+    }
+  }
+
+  private void write(
+      Map<String, TreeMap<Integer, Integer>> rebuilt, Map<Integer, long[]> rebuiltSources) {
+    try {
+      writeBase(rebuilt, rebuiltSources);
+      Files.deleteIfExists(logFile);
+      postings = rebuilt;
+      sources = rebuiltSources;
+      loadedSignature = signature();
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to write terms.bin", e);
+    }
+  }
+
+  private long[] signature() {
+    return FileSignature.of(baseFile, logFile);
+  }
+
+  private void writeBase(
+      Map<String, TreeMap<Integer, Integer>> rebuilt, Map<Integer, long[]> rebuiltSources)
+      throws IOException {
+    Files.createDirectories(baseFile.getParent());
+    Path tmp = baseFile.resolveSibling("terms.bin.tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(rebuilt.size());
+      for (String term : new TreeSet<>(rebuilt.keySet())) {
+        out.writeUTF(term);
+        TreeMap<Integer, Integer> months = rebuilt.get(term);
+        out.writeInt(months.size());
+        for (Map.Entry<Integer, Integer> month : months.entrySet()) {
+          out.writeShort(month.getKey());
+          out.writeInt(month.getValue());
+        }
+      }
+      out.writeInt(rebuiltSources.size());
+      for (Map.Entry<Integer, long[]> source : new TreeMap<>(rebuiltSources).entrySet()) {
+        out.writeShort(source.getKey());
+        out.writeByte(source.getValue().length);
+        for (long part : source.getValue()) {
+          out.writeLong(part);
+        }
+      }
+    }
+    Files.move(tmp, baseFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -2,7 +2,16 @@ package io.ludovicianul.timi.persistence;
 
 import io.quarkus.runtime.annotations.RegisterForReflection;
 import java.time.LocalDateTime;
+import java.util.List;
 
+/**
+ * The last undoable change. Single-entry actions use {@code entryBefore}/{@code entryAfter}; batch
+ * actions list every affected entry in {@code entries}.
+ */
 @RegisterForReflection
 public record UndoAction(
-    String action, LocalDateTime timestamp, TimeEntry entryBefore, TimeEntry entryAfter) {}
+    String action,
+    LocalDateTime timestamp,
+    TimeEntry entryBefore,
+    TimeEntry entryAfter,
+    List<TimeEntry> entries) {}
@@ -1,28 +1,28 @@
 package io.ludovicianul.timi.persistence.session;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import jakarta.inject.Singleton;
+import io.ludovicianul.timi.persistence.JsonCodec;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
 
-@Singleton
+@ApplicationScoped
 public class SessionManager {
   private final Path SESSION_FILE =
       Path.of(System.getProperty("user.home"), ".timi", "session.json");
-  private final ObjectMapper mapper;
+  private final JsonCodec codec;
 
-  public SessionManager() {
-    this.mapper = new ObjectMapper();
-    this.mapper.registerModule(new JavaTimeModule());
+  @Inject
+  public SessionManager(JsonCodec codec) {
+    this.codec = codec;
   }
 
   public Optional<Session> load() {
     if (!Files.exists(SESSION_FILE)) return Optional.empty();
     try {
-      return Optional.of(mapper.readValue(SESSION_FILE.toFile(), Session.class));
+      return Optional.of(codec.reader(Session.class).readValue(SESSION_FILE.toFile()));
     } catch (IOException e) {
       System.err.println("❌ Failed to load session: " + e.getMessage());
       return Optional.empty();
@@ -32,7 +32,7 @@ public class SessionManager {
   public void save(Session session) {
     try {
       Files.createDirectories(SESSION_FILE.getParent());
-      mapper.writerWithDefaultPrettyPrinter().writeValue(SESSION_FILE.toFile(), session);
+      codec.prettyWriter(Session.class).writeValue(SESSION_FILE.toFile(), session);
     } catch (IOException e) {
       throw new RuntimeException("Failed to save session", e);
     }
@@ -1,29 +1,35 @@
 package io.ludovicianul.timi.persistence.zen;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.inject.Singleton;
+import io.ludovicianul.timi.persistence.JsonCodec;
+import io.ludovicianul.timi.util.StartupProfiler;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 
-@Singleton
+@ApplicationScoped
 public class ZenSuggestionsStore {
 
   private final Map<String, Map<String, List<String>>> suggestions;
 
-  public ZenSuggestionsStore() {
-    suggestions = initializeSuggestions();
+  @Inject
+  public ZenSuggestionsStore(JsonCodec codec) {
+    long start = System.nanoTime();
+    suggestions = initializeSuggestions(codec);
+    StartupProfiler.recordBean("ZenSuggestionsStore: load suggestions", start);
   }
 
-  private Map<String, Map<String, List<String>>> initializeSuggestions() {
+  private Map<String, Map<String, List<String>>> initializeSuggestions(JsonCodec codec) {
     Path suggestionsFile =
         Path.of(System.getProperty("user.home"), ".timi", "zen-suggestions.json");
     if (Files.exists(suggestionsFile)) {
       try {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(suggestionsFile.toFile(), new TypeReference<>() {});
+        return codec
+            .reader(new TypeReference<Map<String, Map<String, List<String>>>>() {})
+            .readValue(suggestionsFile.toFile());
       } catch (IOException e) {
         System.err.println("⚠️ Failed to load zen suggestions from file, using defaults.");
       }
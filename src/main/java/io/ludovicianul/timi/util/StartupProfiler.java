@@ -0,0 +1,92 @@
+package io.ludovicianul.timi.util;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects where the time of one invocation goes: process start to {@code main}, Quarkus boot, the
+ * expensive bean initializations, command execution and the final output flush. Recording is a
+ * couple of {@link System#nanoTime()} calls and only happens for {@code --profile-startup}, which
+ * {@code main} looks for before anything is timed; a daemon, which never gets that flag, records
+ * nothing however many requests it serves.
+ */
+public final class StartupProfiler {
+  private static final List<Phase> phases = new ArrayList<>();
+  private static long mainStart = System.nanoTime();
+  private static long sinceProcessStart = -1;
+  private static volatile boolean enabled;
+
+  private StartupProfiler() {}
+
+  /** Called first thing in {@code main}, with its arguments. */
+  public static void mainStarted(String... args) {
+    mainStart = System.nanoTime();
+    if (Arrays.asList(args).contains("--profile-startup")) {
+      enable();
+    }
+    sinceProcessStart =
+        ProcessHandle.current()
+            .info()
+            .startInstant()
+            .map(start -> Duration.between(start, Instant.now()).toNanos())
+            .orElse(-1L);
+  }
+
+  public static long mainStart() {
+    return mainStart;
+  }
+
+  public static void enable() {
+    enabled = true;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Records a top-level phase that started at {@code startNanos} and ends now. */
+  public static synchronized void record(String phase, long startNanos) {
+    if (!enabled) {
+      return;
+    }
+    phases.add(new Phase(phase, System.nanoTime() - startNanos, false));
+  }
+
+  /**
+   * Records the initialization of a bean. Beans are created lazily, so this time is part of
+   * whichever top-level phase first used them.
+   */
+  public static synchronized void recordBean(String bean, long startNanos) {
+    if (!enabled) {
+      return;
+    }
+    phases.add(new Phase(bean, System.nanoTime() - startNanos, true));
+  }
+
+  public static synchronized void report(PrintStream out) {
+    out.println("\n⏱  Startup profile");
+    out.println("-".repeat(48));
+    if (sinceProcessStart >= 0) {
+      out.printf("%-36s %8.1f ms%n", "Process start → main", sinceProcessStart / 1e6);
+    }
+    phases.stream()
+        .filter(phase -> !phase.bean())
+        .forEach(phase -> out.printf("%-36s %8.1f ms%n", phase.name(), phase.nanos() / 1e6));
+    long total = System.nanoTime() - mainStart + Math.max(sinceProcessStart, 0);
+    out.println("-".repeat(48));
+    out.printf("%-36s %8.1f ms%n", "Total", total / 1e6);
+
+    if (phases.stream().anyMatch(Phase::bean)) {
+      out.println("\nBean initialization (included above)");
+      phases.stream()
+          .filter(Phase::bean)
+          .forEach(phase -> out.printf("  %-34s %8.1f ms%n", phase.name(), phase.nanos() / 1e6));
+    }
+  }
+
+  private record Phase(String name, long nanos, boolean bean) {}
+}
@@ -1,5 +1,6 @@
 package io.ludovicianul.timi.util;
 
+import io.ludovicianul.timi.persistence.DateRange;
 import io.ludovicianul.timi.persistence.EntryStore;
 import io.ludovicianul.timi.persistence.TimeEntry;
 import java.time.LocalDate;
@@ -7,9 +8,8 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.stream.Stream;
 
 public class Utils {
 
@@ -68,20 +68,8 @@ public class Utils {
    */
   public static List<TimeEntry> loadEntriesBetween(
       EntryStore entryStore, LocalDate from, LocalDate to) {
-    Set<String> months = new HashSet<>();
-    LocalDate cursor = from.withDayOfMonth(1);
-    while (!cursor.isAfter(to)) {
-      months.add(cursor.toString().substring(0, 7)); // yyyy-MM
-      cursor = cursor.plusMonths(1);
+    try (Stream<TimeEntry> entries = entryStore.query(DateRange.of(from, to), e -> true)) {
+      return entries.toList();
     }
-
-    return months.stream()
-        .flatMap(m -> entryStore.loadAllEntries(m).stream())
-        .filter(
-            e -> {
-              LocalDate d = e.startTime().toLocalDate();
-              return !d.isBefore(from) && !d.isAfter(to);
-            })
-        .toList();
   }
 }
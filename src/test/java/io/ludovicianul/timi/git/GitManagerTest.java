@@ -0,0 +1,108 @@
+package io.ludovicianul.timi.git;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import io.ludovicianul.timi.config.ConfigManager;
+import io.ludovicianul.timi.persistence.JsonCodec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GitManagerTest {
+  @TempDir Path home;
+
+  private String userHome;
+  private Path repo;
+  private ChangeTracker changeTracker;
+  private GitManager git;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    assumeTrue(gitAvailable(), "git is not installed");
+    userHome = System.getProperty("user.home");
+    System.setProperty("user.home", home.toString());
+    repo = Files.createDirectories(home.resolve(".timi"));
+    git("init", "--quiet");
+    git("config", "user.name", "Test");
+    git("config", "user.email", "test@example.com");
+    git("config", "gc.auto", "0");
+
+    changeTracker = new ChangeTracker();
+    git = new GitManager();
+    git.changeTracker = changeTracker;
+    git.configManager = new ConfigManager(new JsonCodec());
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (userHome != null) {
+      System.setProperty("user.home", userHome);
+    }
+  }
+
+  @Test
+  void retriesTheSamePathsAfterAFailedCommit() throws Exception {
+    Path entries = Files.createDirectories(repo.resolve("entries"));
+    Files.writeString(entries.resolve("2025-01.json"), "[]");
+    changeTracker.modified(entries.resolve("2025-01.json"));
+    // Both the in-process writer and the git binary refuse to commit while the index is locked.
+    Path lock = Files.createFile(repo.resolve(".git/index.lock"));
+
+    git.commit("Add entry");
+    git.flush();
+    assertEquals("", git("rev-list", "--all").trim());
+
+    Files.delete(lock);
+    git.commit("Edit config");
+    git.flush();
+
+    assertEquals("entries/2025-01.json", git("ls-tree", "-r", "--name-only", "HEAD").trim());
+    assertTrue(changeTracker.drain().isEmpty());
+  }
+
+  @Test
+  void leavesTheTermAndNoteIndexesOutOfTheRepository() throws Exception {
+    Path entries = Files.createDirectories(repo.resolve("entries"));
+    Files.writeString(entries.resolve("notes.bin"), "committed by an older version");
+    git("add", "entries/notes.bin");
+    git("commit", "--quiet", "-m", "Older commit");
+
+    Files.writeString(entries.resolve("2025-01.json"), "[]");
+    Files.writeString(entries.resolve("terms.bin"), "index");
+    Files.writeString(entries.resolve("notes.log"), "index");
+    changeTracker.modified(
+        entries.resolve("2025-01.json"), entries.resolve("terms.bin"), entries.resolve("notes.log"));
+    git.commit("Add entry");
+    git.flush();
+
+    assertEquals("entries/2025-01.json", git("ls-tree", "-r", "--name-only", "HEAD").trim());
+    assertTrue(Files.exists(entries.resolve("notes.bin")));
+  }
+
+  private String git(String... args) throws Exception {
+    List<String> command = new ArrayList<>(List.of("git", "-C", repo.toString()));
+    command.addAll(List.of(args));
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    byte[] output = process.getInputStream().readAllBytes();
+    assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+    return new String(output, StandardCharsets.UTF_8);
+  }
+
+  private static boolean gitAvailable() {
+    try {
+      return new ProcessBuilder("git", "--version").start().waitFor() == 0;
+    } catch (IOException | InterruptedException e) {
+      return false;
+    }
+  }
+}
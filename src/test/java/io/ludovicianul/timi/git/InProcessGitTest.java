@@ -0,0 +1,247 @@
+package io.ludovicianul.timi.git;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the in-process writer against the git binary: every commit must pass {@code git fsck}
+ * and leave {@code git status} clean. Tests that need git are skipped when it is not installed.
+ */
+class InProcessGitTest {
+  @TempDir Path workTree;
+
+  @Test
+  void looseObjectsRoundTrip() throws IOException {
+    LooseObjectStore objects = new LooseObjectStore(workTree.resolve(".git"));
+    byte[] content = "hello\n".getBytes(StandardCharsets.UTF_8);
+
+    String id = objects.write("blob", content);
+
+    assertEquals("ce013625030ba8dba906f756967f9e9ca394464a", id);
+    assertArrayEquals(content, objects.read(id, "blob"));
+    assertThrows(IOException.class, () -> objects.read(id, "tree"));
+    assertThrows(IOException.class, () -> objects.read("0".repeat(40), "blob"));
+  }
+
+  @Test
+  void appliesCopyAndInsertDeltas() throws IOException {
+    byte[] base = "the quick brown fox".getBytes(StandardCharsets.US_ASCII);
+    byte[] delta = {
+      19, 17, // base and result sizes
+      (byte) 0x90, 10, // copy 10 bytes from offset 0: "the quick "
+      3, 'r', 'e', 'd', // insert "red"
+      (byte) 0x91, 15, 4 // copy 4 bytes from offset 15: " fox"
+    };
+
+    assertEquals("the quick red fox", new String(PackFiles.applyDelta(base, delta)));
+    assertThrows(IOException.class, () -> PackFiles.applyDelta(new byte[3], delta));
+  }
+
+  @Test
+  void commitsTheWholeTreeAndThenOnlyChangedPaths() throws Exception {
+    initRepository();
+    write("entries/2025-01.json", "[]");
+    write("config.json", "{}");
+    write("session.json", "{\"active\":true}");
+    InProcessGit git = new InProcessGit(workTree, Set.of("session.json"));
+
+    assertTrue(git.commit("Initial", null));
+    write("entries/2025-01.json", "[1]");
+    write("entries/2025-02.json", "[2]");
+    Files.delete(workTree.resolve("config.json"));
+    assertTrue(
+        git.commit(
+            "Second", List.of("entries/2025-01.json", "entries/2025-02.json", "config.json")));
+
+    assertEquals(
+        List.of("entries/2025-01.json", "entries/2025-02.json"),
+        git("ls-tree", "-r", "--name-only", "HEAD").lines().toList());
+    assertEquals(List.of("Second", "Initial"), git("log", "--format=%s").lines().toList());
+    assertEquals("?? session.json", git("status", "--porcelain").trim());
+    assertEquals(2, git("reflog", "show", "HEAD").lines().count());
+    git("fsck", "--strict", "--no-dangling");
+  }
+
+  @Test
+  void dropsAnUntrackedPathAnOlderVersionCommitted() throws Exception {
+    initRepository();
+    write("session.json", "{}");
+    write("a.json", "1");
+    git("add", "-A");
+    git("commit", "--quiet", "-m", "Old layout");
+
+    write("a.json", "2");
+    InProcessGit git = new InProcessGit(workTree, Set.of("session.json"));
+    assertTrue(git.commit("Next", List.of("a.json")));
+
+    assertEquals("a.json", git("ls-tree", "--name-only", "HEAD").trim());
+    assertEquals("?? session.json", git("status", "--porcelain").trim());
+  }
+
+  @Test
+  void takesTheAuthorAndTheCommitterFromTheirOwnVariables() throws Exception {
+    initRepository();
+    write("a.json", "1");
+    InProcessGit git = new InProcessGit(workTree, Set.of());
+    git.environment = Map.of("GIT_AUTHOR_NAME", "Ada", "GIT_AUTHOR_EMAIL", "ada@example.com");
+
+    assertTrue(git.commit("First", null));
+
+    assertEquals(
+        "Ada <ada@example.com> / Test <test@example.com>",
+        git("log", "--format=%an <%ae> / %cn <%ce>").trim());
+    assertTrue(git("reflog", "show", "--format=%gn", "HEAD").startsWith("Test"));
+  }
+
+  @Test
+  void dropsItsLockWhenTheIndexCannotBeReplaced() throws Exception {
+    initRepository();
+    write("a.json", "1");
+    InProcessGit git = new InProcessGit(workTree, Set.of());
+    // A non-empty directory where the index goes makes the final rename fail.
+    Files.createDirectories(workTree.resolve(".git/index/blocked"));
+
+    assertThrows(IOException.class, () -> git.commit("First", null));
+    assertFalse(Files.exists(workTree.resolve(".git/index.lock")));
+
+    Files.delete(workTree.resolve(".git/index/blocked"));
+    Files.delete(workTree.resolve(".git/index"));
+    assertTrue(git.commit("First", null));
+    git("fsck", "--strict", "--no-dangling");
+  }
+
+  @Test
+  void skipsCommitsThatChangeNothing() throws Exception {
+    initRepository();
+    write("a.json", "1");
+    InProcessGit git = new InProcessGit(workTree, Set.of());
+    git.commit("First", null);
+
+    assertFalse(git.commit("Again", List.of("a.json")));
+    assertEquals(1, git("log", "--format=%s").lines().count());
+  }
+
+  @Test
+  void keepsCommittingAfterTheHistoryIsPacked() throws Exception {
+    initRepository();
+    InProcessGit git = new InProcessGit(workTree, Set.of());
+    StringBuilder log = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      log.append("line ").append(i).append(" of a file that grows a little every commit\n");
+      write("entries/2025-01.journal", log.toString());
+      write("entries/sub/" + (i % 3) + ".json", "v" + i);
+      git.commit(
+          "Commit " + i, List.of("entries/2025-01.journal", "entries/sub/" + (i % 3) + ".json"));
+    }
+    git("gc", "--aggressive", "--prune=now", "--quiet");
+    assertTrue(git("count-objects", "-v").contains("count: 0"));
+
+    write("entries/sub/1.json", "after gc");
+    InProcessGit afterGc = new InProcessGit(workTree, Set.of());
+
+    assertTrue(afterGc.commit("After gc", List.of("entries/sub/1.json")));
+    assertEquals("after gc", git("show", "HEAD:entries/sub/1.json"));
+    assertEquals(log.toString(), git("show", "HEAD:entries/2025-01.journal"));
+    assertEquals(21, git("log", "--format=%s").lines().count());
+    assertEquals("", git("status", "--porcelain"));
+    git("fsck", "--strict", "--no-dangling");
+  }
+
+  @Test
+  void readsDeltifiedObjectsFromPacks() throws Exception {
+    initRepository();
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 20; j++) {
+        write("entries/" + j + ".json", "entry " + j + (j == i ? " changed in " + i : ""));
+      }
+      git("add", "-A");
+      git("commit", "--quiet", "-m", "Commit " + i);
+    }
+    git("gc", "--aggressive", "--prune=now", "--quiet");
+    String index;
+    try (var packs = Files.list(workTree.resolve(".git/objects/pack"))) {
+      index = packs.filter(p -> p.toString().endsWith(".idx")).findFirst().orElseThrow().toString();
+    }
+    LooseObjectStore objects = new LooseObjectStore(workTree.resolve(".git"));
+
+    int deltas = 0;
+    for (String line : git("verify-pack", "-v", index).lines().toList()) {
+      String[] fields = line.split("\\s+");
+      if (fields.length >= 5 && Set.of("commit", "tree", "blob").contains(fields[1])) {
+        assertArrayEquals(
+            gitBytes("cat-file", fields[1], fields[0]), objects.read(fields[0], fields[1]));
+        deltas += fields.length >= 7 ? 1 : 0;
+      }
+    }
+    assertTrue(deltas > 0, "expected deltified objects in the pack");
+  }
+
+  @Test
+  void reportsWhenLooseObjectsNeedPacking() throws IOException {
+    Path sample = workTree.resolve(".git/objects/17");
+    Files.createDirectories(sample);
+    LooseObjectStore objects = new LooseObjectStore(workTree.resolve(".git"));
+    for (int i = 0; i < 27; i++) {
+      Files.createFile(sample.resolve(String.format("%038d", i)));
+    }
+    assertFalse(objects.needsPacking());
+
+    Files.createFile(sample.resolve(String.format("%038d", 27)));
+    assertTrue(objects.needsPacking());
+  }
+
+  private void initRepository() throws Exception {
+    assumeTrue(gitAvailable(), "git is not installed");
+    git("init", "--quiet");
+    git("config", "user.name", "Test");
+    git("config", "user.email", "test@example.com");
+    git("config", "gc.auto", "0");
+  }
+
+  private void write(String path, String content) throws IOException {
+    Path file = workTree.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content);
+  }
+
+  private String git(String... args) throws Exception {
+    return new String(gitBytes(args), StandardCharsets.UTF_8);
+  }
+
+  private byte[] gitBytes(String... args) throws Exception {
+    List<String> command = new ArrayList<>(List.of("git", "-C", workTree.toString()));
+    command.addAll(List.of(args));
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    byte[] output = process.getInputStream().readAllBytes();
+    assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+    assertEquals(
+        0,
+        process.exitValue(),
+        String.join(" ", args) + ": " + new String(output, StandardCharsets.UTF_8));
+    return output;
+  }
+
+  private static boolean gitAvailable() {
+    try {
+      return new ProcessBuilder("git", "--version").start().waitFor() == 0;
+    } catch (IOException | InterruptedException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package io.ludovicianul.timi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EntryIndexTest {
+  @TempDir Path dir;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @Test
+  void logChangesSurviveAReload() {
+    UUID moved = UUID.randomUUID();
+    UUID removed = UUID.randomUUID();
+    UUID kept = UUID.randomUUID();
+    EntryIndex index = new EntryIndex(mapper, dir);
+    index.putAll(Map.of(moved, "2025-01.json", removed, "2025-01.json", kept, "2024-12.json"));
+    index.put(moved, "2025-02.json");
+    index.remove(removed);
+
+    EntryIndex reloaded = new EntryIndex(mapper, dir);
+
+    assertEquals("2025-02.json", reloaded.get(moved));
+    assertNull(reloaded.get(removed));
+    assertEquals("2024-12.json", reloaded.get(kept));
+    assertEquals(Map.of(moved, "2025-02.json", kept, "2024-12.json"), reloaded.asMap());
+  }
+
+  @Test
+  void refreshPicksUpWritesFromAnotherProcess() {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    EntryIndex daemon = new EntryIndex(mapper, dir);
+    daemon.put(first, "2025-01.json");
+
+    new EntryIndex(mapper, dir).put(second, "2025-02.json");
+    daemon.refresh();
+
+    assertEquals("2025-02.json", daemon.get(second));
+    daemon.put(first, "2025-03.json");
+    daemon.refresh();
+    assertEquals(Map.of(first, "2025-03.json", second, "2025-02.json"), daemon.asMap());
+  }
+
+  @Test
+  void binaryBaseRoundTrips() {
+    Map<UUID, String> entries = new HashMap<>();
+    for (int i = 0; i < 500; i++) {
+      entries.put(UUID.randomUUID(), EntryIndex.monthFileName(2000 * 12 + i % 300));
+    }
+    new EntryIndex(mapper, dir).replaceAll(entries);
+
+    EntryIndex reloaded = new EntryIndex(mapper, dir);
+
+    assertTrue(Files.exists(dir.resolve("index.bin")));
+    assertFalse(Files.exists(dir.resolve("index.log")));
+    entries.forEach((id, file) -> assertEquals(file, reloaded.get(id)));
+    assertNull(reloaded.get(UUID.randomUUID()));
+    assertEquals(entries, reloaded.asMap());
+  }
+
+  @Test
+  void compactsTheLogIntoTheBase() {
+    EntryIndex index = new EntryIndex(mapper, dir);
+    Map<UUID, String> entries = new HashMap<>();
+    for (int i = 0; i < 2000; i++) {
+      UUID id = UUID.randomUUID();
+      entries.put(id, "2025-03.json");
+      index.put(id, "2025-03.json");
+    }
+
+    assertTrue(Files.exists(dir.resolve("index.bin")));
+    assertEquals(entries, new EntryIndex(mapper, dir).asMap());
+  }
+
+  @Test
+  void appendAfterATornLineKeepsBothSides() throws IOException {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    new EntryIndex(mapper, dir).put(first, "2025-01.json");
+    Files.writeString(dir.resolve("index.log"), "+ 5d0c6a", StandardOpenOption.APPEND);
+
+    assertEquals(Map.of(first, "2025-01.json"), new EntryIndex(mapper, dir).asMap());
+
+    new EntryIndex(mapper, dir).put(second, "2025-02.json");
+
+    assertEquals(
+        Map.of(first, "2025-01.json", second, "2025-02.json"), new EntryIndex(mapper, dir).asMap());
+    assertEquals(2, Files.readAllLines(dir.resolve("index.log")).size());
+  }
+
+  @Test
+  void failsOnACorruptCompleteLine() throws IOException {
+    new EntryIndex(mapper, dir).put(UUID.randomUUID(), "2025-01.json");
+    Files.writeString(dir.resolve("index.log"), "+ nonsense\n", StandardOpenOption.APPEND);
+
+    assertThrows(RuntimeException.class, () -> new EntryIndex(mapper, dir).asMap());
+  }
+
+  @Test
+  void migratesTheLegacyJsonIndex() throws IOException {
+    UUID id = UUID.randomUUID();
+    Files.writeString(dir.resolve("index.json"), "{\"" + id + "\":\"2023-07.json\"}");
+
+    EntryIndex index = new EntryIndex(mapper, dir);
+
+    assertEquals("2023-07.json", index.get(id));
+    assertFalse(Files.exists(dir.resolve("index.json")));
+    assertTrue(Files.exists(dir.resolve("index.bin")));
+  }
+
+  @Test
+  void monthOrdinalRoundTrips() {
+    for (String file : List.of("0001-01.json", "2025-12.json", "9999-06.json")) {
+      assertEquals(file, EntryIndex.monthFileName(EntryIndex.monthOrdinal(file)));
+    }
+    assertThrows(IllegalArgumentException.class, () -> EntryIndex.monthOrdinal("index.bin"));
+  }
+}
@@ -0,0 +1,110 @@
+package io.ludovicianul.timi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EntryJournalTest {
+  @TempDir Path dir;
+
+  private final EntryJournal journal = new EntryJournal(new JsonCodec());
+
+  @Test
+  void replaysPutsAndDeletesOnTopOfTheSnapshot() {
+    Path month = dir.resolve("2025-01.json");
+    TimeEntry kept = entry("kept", 1);
+    TimeEntry edited = entry("before", 2);
+    TimeEntry removed = entry("removed", 3);
+
+    journal.appendPut(month, entry(edited.id(), "after", 2));
+    journal.appendDelete(month, removed.id());
+    TimeEntry added = entry("added", 4);
+    journal.appendPuts(month, List.of(added));
+
+    List<TimeEntry> merged = journal.replay(month, List.of(kept, edited, removed));
+
+    assertEquals(List.of("kept", "after", "added"), merged.stream().map(TimeEntry::note).toList());
+  }
+
+  @Test
+  void ignoresATornTrailingLine() throws IOException {
+    Path month = dir.resolve("2025-01.json");
+    TimeEntry first = entry("first", 1);
+    journal.appendPut(month, first);
+    tear(journal.journalFor(month));
+
+    assertEquals(List.of(first), journal.replay(month, List.of()));
+  }
+
+  @Test
+  void appendAfterATornLineKeepsTheNewRecord() throws IOException {
+    Path month = dir.resolve("2025-01.json");
+    TimeEntry first = entry("first", 1);
+    TimeEntry second = entry("second", 2);
+    TimeEntry third = entry("third", 3);
+    journal.appendPut(month, first);
+    tear(journal.journalFor(month));
+
+    journal.appendPut(month, second);
+    journal.appendPut(month, third);
+
+    assertEquals(List.of(first, second, third), journal.replay(month, List.of()));
+    String text = Files.readString(journal.journalFor(month));
+    assertTrue(text.endsWith("\n"));
+    assertEquals(3, text.lines().count());
+  }
+
+  @Test
+  void failsOnACorruptCompleteLine() throws IOException {
+    Path month = dir.resolve("2025-01.json");
+    journal.appendPut(month, entry("first", 1));
+    Files.writeString(journal.journalFor(month), "not json\n", StandardOpenOption.APPEND);
+
+    assertThrows(RuntimeException.class, () -> journal.replay(month, List.of()));
+  }
+
+  @Test
+  void pendingChangesKeepsTheLatestVersionOfEachEntry() {
+    Path month = dir.resolve("2025-01.json");
+    TimeEntry entry = entry("v1", 1);
+    journal.appendPut(month, entry);
+    journal.appendPut(month, entry(entry.id(), "v2", 1));
+    UUID deleted = UUID.randomUUID();
+    journal.appendDeletes(month, List.of(deleted));
+
+    var changes = journal.pendingChanges(month);
+
+    assertEquals("v2", changes.get(entry.id()).note());
+    assertTrue(changes.containsKey(deleted));
+    assertEquals(null, changes.get(deleted));
+  }
+
+  /** Simulates a crash mid-append: half a record and no newline. */
+  static void tear(Path file) throws IOException {
+    Files.write(
+        file,
+        "{\"op\":\"put\",\"id\":\"4f1c".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.APPEND);
+  }
+
+  static TimeEntry entry(String note, int day) {
+    return entry(UUID.randomUUID(), note, day);
+  }
+
+  static TimeEntry entry(UUID id, String note, int day) {
+    return new TimeEntry(
+        id, LocalDateTime.of(2025, 1, day, 9, 0), 30, note, "work", Set.of("tag"), Set.of());
+  }
+}
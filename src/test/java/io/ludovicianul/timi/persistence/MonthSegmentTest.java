@@ -0,0 +1,94 @@
+package io.ludovicianul.timi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MonthSegmentTest {
+  private static final long[] SIGNATURE = {120L, 1_700_000_000_000L, 0L, 0L};
+
+  @TempDir Path dir;
+
+  @Test
+  void roundTripsEntriesThroughTheSidecar() throws IOException {
+    List<TimeEntry> entries =
+        List.of(
+            entry(LocalDateTime.of(2025, 1, 3, 9, 15), 45, "standup", "meeting", Set.of("team")),
+            entry(LocalDateTime.of(2025, 1, 1, 14, 0), 120, null, "coding", Set.of("api", "team")),
+            entry(LocalDateTime.of(2025, 1, 31, 23, 59), 5, "ünïcødé ✓", "coding", Set.of()));
+    Path file = dir.resolve("2025-01.cols");
+
+    MonthSegment.of(entries).write(file, SIGNATURE);
+    MonthSegment read = MonthSegment.read(file, SIGNATURE);
+
+    assertNotNull(read);
+    assertEquals(entries, read.toEntries(true));
+    assertEquals("standup", read.note(0));
+    assertEquals(LocalDate.of(2025, 1, 1), read.date(1));
+    assertEquals(
+        MonthSegment.epochMinute(LocalDate.of(2025, 1, 1)) + 14 * 60, read.minStartMinute());
+    assertArrayEquals(
+        new int[] {read.minStartMinute(), read.maxStartMinute()},
+        MonthSegment.readBounds(file, SIGNATURE));
+  }
+
+  @Test
+  void keepsDurationsThatDoNotFitInSixteenBits() throws IOException {
+    List<TimeEntry> entries =
+        List.of(
+            entry(LocalDateTime.of(2025, 2, 1, 0, 0), 70_000, "long", "travel", Set.of()),
+            entry(LocalDateTime.of(2025, 2, 2, 0, 0), 30, "short", "travel", Set.of()));
+    Path file = dir.resolve("2025-02.cols");
+
+    MonthSegment.of(entries).write(file, SIGNATURE);
+
+    assertEquals(entries, MonthSegment.read(file, SIGNATURE).toEntries(true));
+  }
+
+  @Test
+  void emptyMonthRoundTrips() throws IOException {
+    Path file = dir.resolve("2025-03.cols");
+
+    MonthSegment.of(List.of()).write(file, SIGNATURE);
+    MonthSegment read = MonthSegment.read(file, SIGNATURE);
+
+    assertEquals(0, read.size());
+    assertTrue(read.toEntries(true).isEmpty());
+  }
+
+  @Test
+  void ignoresStaleAndTornSidecars() throws IOException {
+    Path file = dir.resolve("2025-01.cols");
+    MonthSegment.of(List.of(entry(LocalDateTime.of(2025, 1, 1, 8, 0), 10, "n", "t", Set.of())))
+        .write(file, SIGNATURE);
+
+    long[] changed = SIGNATURE.clone();
+    changed[0]++;
+    assertNull(MonthSegment.read(file, changed));
+    assertNull(MonthSegment.readBounds(file, changed));
+
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+    assertNull(MonthSegment.read(file, SIGNATURE));
+    assertNull(MonthSegment.read(dir.resolve("missing.cols"), SIGNATURE));
+  }
+
+  private static TimeEntry entry(
+      LocalDateTime start, int minutes, String note, String type, Set<String> tags) {
+    return new TimeEntry(UUID.randomUUID(), start, minutes, note, type, tags, Set.of("meta"));
+  }
+}
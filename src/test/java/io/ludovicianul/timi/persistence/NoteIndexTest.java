@@ -0,0 +1,209 @@
+package io.ludovicianul.timi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class NoteIndexTest {
+  private static final String JANUARY = "2025-01.json";
+  private static final String FEBRUARY = "2025-02.json";
+  private static final long[] SOURCE = {120, 1_700_000_000_000L, -1, -1};
+
+  @TempDir Path dir;
+
+  private final TimeEntry review = entry("Reviewed the billing API\nwith the team");
+  private final TimeEntry planning = entry("Sprint planning");
+
+  @Test
+  void baseRoundTrips() {
+    new NoteIndex(dir)
+        .replaceAll(Map.of(JANUARY, List.of(review), FEBRUARY, List.of(planning)), Map.of());
+
+    NoteIndex reloaded = new NoteIndex(dir);
+
+    assertEquals(Map.of(JANUARY, Set.of(review.id())), ids(reloaded, "billing api"));
+    assertEquals(Map.of(FEBRUARY, Set.of(planning.id())), ids(reloaded, "PLANNING"));
+    assertEquals(Map.of(), ids(reloaded, "retro"));
+    assertEquals(
+        Set.of(),
+        reloaded.staleMonths(Map.of(JANUARY, List.of(review), FEBRUARY, List.of(planning))));
+  }
+
+  @Test
+  void updatesOnlyAppendAndAreSeenAfterAReload() throws IOException {
+    new NoteIndex(dir).replaceAll(Map.of(JANUARY, List.of(review)), Map.of());
+    NoteIndex index = new NoteIndex(dir);
+    byte[] base = Files.readAllBytes(dir.resolve("notes.bin"));
+    Files.writeString(dir.resolve("notes.bin"), "not an index");
+
+    // Neither write reads the (now unreadable) base.
+    TimeEntry edited = withNote(review, "Reviewed the invoicing API");
+    index.update(JANUARY, SOURCE, List.of(review), List.of(edited));
+    index.replaceMonth(FEBRUARY, SOURCE, List.of(planning));
+    assertThrows(RuntimeException.class, () -> index.search(query("api")));
+
+    Files.write(dir.resolve("notes.bin"), base);
+    NoteIndex reloaded = new NoteIndex(dir);
+    assertEquals(Map.of(), ids(reloaded, "billing"));
+    assertEquals(Map.of(JANUARY, Set.of(review.id())), ids(reloaded, "invoicing"));
+    assertEquals(Map.of(FEBRUARY, Set.of(planning.id())), ids(reloaded, "sprint"));
+  }
+
+  @Test
+  void refreshPicksUpWritesFromAnotherProcess() {
+    new NoteIndex(dir).replaceAll(Map.of(JANUARY, List.of(review)), Map.of());
+    NoteIndex daemon = new NoteIndex(dir);
+    assertEquals(Map.of(), ids(daemon, "sprint"));
+
+    new NoteIndex(dir).update(FEBRUARY, SOURCE, List.of(), List.of(planning));
+    daemon.refresh();
+
+    assertEquals(Map.of(FEBRUARY, Set.of(planning.id())), ids(daemon, "sprint"));
+  }
+
+  @Test
+  void movingAnEntryBetweenMonthsKeepsItInEitherOrder() {
+    new NoteIndex(dir).replaceAll(Map.of(JANUARY, List.of(review)), Map.of());
+    NoteIndex index = new NoteIndex(dir);
+
+    // The new month is written before the old one lets go of the entry.
+    index.update(FEBRUARY, SOURCE, List.of(), List.of(review));
+    index.update(JANUARY, SOURCE, List.of(review), List.of());
+
+    assertEquals(Map.of(FEBRUARY, Set.of(review.id())), ids(index, "billing"));
+    assertEquals(Map.of(FEBRUARY, Set.of(review.id())), ids(new NoteIndex(dir), "billing"));
+  }
+
+  @Test
+  void replaceMonthClearsTheMonthInMemoryAndOnReplay() {
+    new NoteIndex(dir).replaceAll(Map.of(JANUARY, List.of(review, planning)), Map.of());
+    NoteIndex index = new NoteIndex(dir);
+    assertEquals(Map.of(JANUARY, Set.of(review.id())), ids(index, "billing"));
+
+    index.replaceMonth(JANUARY, SOURCE, List.of(planning, withNote(review, null)));
+
+    assertEquals(Map.of(), ids(index, "billing"));
+    assertEquals(Map.of(), ids(new NoteIndex(dir), "billing"));
+    assertEquals(Map.of(JANUARY, Set.of(planning.id())), ids(new NoteIndex(dir), "sprint"));
+  }
+
+  @Test
+  void staleMonthsComparesTheTextNotItsHash() {
+    // "a?" and "b " have the same String.hashCode().
+    TimeEntry indexed = entry("note a?");
+    new NoteIndex(dir).replaceAll(Map.of(JANUARY, List.of(indexed)), Map.of());
+
+    Set<String> stale =
+        new NoteIndex(dir).staleMonths(Map.of(JANUARY, List.of(withNote(indexed, "note b "))));
+
+    assertEquals(Set.of(JANUARY), stale);
+  }
+
+  @Test
+  void compactsTheLogIntoTheBase() throws IOException {
+    new NoteIndex(dir).replaceAll(Map.of(), Map.of());
+    NoteIndex index = new NoteIndex(dir);
+    for (int i = 0; i < 3000; i++) {
+      index.update(JANUARY, SOURCE, List.of(), List.of(entry("note number " + i + " ".repeat(80))));
+    }
+
+    Path log = dir.resolve("notes.log");
+    assertTrue(!Files.exists(log) || Files.size(log) < 256 * 1024);
+    assertEquals(3000, ids(new NoteIndex(dir), "number").get(JANUARY).size());
+  }
+
+  @Test
+  void appendAfterATornLineKeepsBothSides() throws IOException {
+    new NoteIndex(dir).replaceAll(Map.of(), Map.of());
+    new NoteIndex(dir).update(JANUARY, SOURCE, List.of(), List.of(review));
+    Files.writeString(
+        dir.resolve("notes.log"), "put 2025-02.json 5d0c", StandardOpenOption.APPEND);
+
+    new NoteIndex(dir).update(FEBRUARY, SOURCE, List.of(), List.of(planning));
+
+    NoteIndex reloaded = new NoteIndex(dir);
+    assertEquals(Map.of(JANUARY, Set.of(review.id())), ids(reloaded, "billing"));
+    assertEquals(Map.of(FEBRUARY, Set.of(planning.id())), ids(reloaded, "sprint"));
+  }
+
+  @Test
+  void failsOnACorruptCompleteLine() throws IOException {
+    new NoteIndex(dir).replaceAll(Map.of(), Map.of());
+    Files.writeString(dir.resolve("notes.log"), "put 2025-01.json not-a-uuid text\n");
+
+    assertThrows(RuntimeException.class, () -> new NoteIndex(dir).search(query("text")));
+  }
+
+  @Test
+  void reportsMonthsWhoseFilesChangedSinceTheyWereIndexed() throws IOException {
+    long[] edited = {140, 1_700_000_060_000L, -1, -1};
+    new NoteIndex(dir)
+        .replaceAll(
+            Map.of(JANUARY, List.of(review), FEBRUARY, List.of(planning)),
+            Map.of(JANUARY, SOURCE, FEBRUARY, SOURCE));
+
+    assertEquals(
+        Set.of(), new NoteIndex(dir).changedMonths(Map.of(JANUARY, SOURCE, FEBRUARY, SOURCE)));
+    assertEquals(
+        Set.of(JANUARY, FEBRUARY),
+        new NoteIndex(dir).changedMonths(Map.of(JANUARY, edited)),
+        "an edited month and a deleted one");
+
+    // Signatures survive both the log and a compaction into the base.
+    new NoteIndex(dir).update(JANUARY, edited, List.of(review), List.of());
+    new NoteIndex(dir).replaceMonth(FEBRUARY, new long[] {-1, -1, -1, -1}, List.of());
+    assertEquals(Set.of(), new NoteIndex(dir).changedMonths(Map.of(JANUARY, edited)));
+    NoteIndex index = new NoteIndex(dir);
+    for (int i = 0; i < 3000; i++) {
+      index.update(JANUARY, edited, List.of(), List.of(entry("note " + i + " ".repeat(80))));
+    }
+    Path log = dir.resolve("notes.log");
+    assertTrue(!Files.exists(log) || Files.size(log) < 256 * 1024);
+    assertEquals(Set.of(), new NoteIndex(dir).changedMonths(Map.of(JANUARY, edited)));
+  }
+
+  private static Map<String, Set<UUID>> ids(NoteIndex index, String text) {
+    Map<String, Set<UUID>> ids = new TreeMap<>();
+    index.search(query(text)).forEach((month, scores) -> ids.put(month, scores.keySet()));
+    return ids;
+  }
+
+  private static NoteQuery query(String text) {
+    return new NoteQuery(text, NoteQuery.Match.substring);
+  }
+
+  private static TimeEntry entry(String note) {
+    return new TimeEntry(
+        UUID.randomUUID(),
+        LocalDateTime.of(2025, 1, 1, 9, 0),
+        30,
+        note,
+        "work",
+        Set.of(),
+        Set.of());
+  }
+
+  private static TimeEntry withNote(TimeEntry entry, String note) {
+    return new TimeEntry(
+        entry.id(),
+        entry.startTime(),
+        entry.durationMinutes(),
+        note,
+        entry.activityType(),
+        entry.tags(),
+        entry.metaTags());
+  }
+}
@@ -0,0 +1,129 @@
+package io.ludovicianul.timi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RollupStoreTest {
+  private static final long[] BEFORE = {100L, 1L, 0L, 0L};
+  private static final long[] AFTER = {150L, 2L, 0L, 0L};
+
+  @TempDir Path dir;
+
+  private final Path monthFile = Path.of("2025-01.json");
+
+  private final TimeEntry design =
+      entry(LocalDateTime.of(2025, 1, 2, 9, 0), 60, "design", Set.of("api", "ux"), Set.of("q1"));
+  private final TimeEntry review =
+      entry(LocalDateTime.of(2025, 1, 2, 14, 0), 30, "review", Set.of("api"), Set.of());
+  private final TimeEntry coding =
+      entry(LocalDateTime.of(2025, 1, 9, 10, 0), 90, "coding", Set.of(), Set.of("q1"));
+
+  @Test
+  void roundTripsThroughTheRollupFile() {
+    RollupStore store = new RollupStore(new JsonCodec(), dir);
+    TreeMap<LocalDate, DayRollup> days = RollupStore.of(List.of(design, review, coding));
+
+    store.write(monthFile, BEFORE, days);
+
+    assertEquals(totals(days), totals(store.read(monthFile, BEFORE)));
+    assertNull(store.read(monthFile, AFTER));
+  }
+
+  @Test
+  void segmentAndEntriesAggregateTheSame() {
+    List<TimeEntry> entries = List.of(design, review, coding);
+
+    assertEquals(
+        totals(RollupStore.of(entries)), totals(RollupStore.of(MonthSegment.of(entries))));
+  }
+
+  @Test
+  void updateAppliesTheDeltaToAMatchingRollup() {
+    RollupStore store = new RollupStore(new JsonCodec(), dir);
+    store.write(monthFile, BEFORE, RollupStore.of(List.of(design, review)));
+
+    store.update(monthFile, BEFORE, AFTER, List.of(review), List.of(coding));
+
+    assertEquals(
+        totals(RollupStore.of(List.of(design, coding))), totals(store.read(monthFile, AFTER)));
+  }
+
+  @Test
+  void removingTheLastEntryOfADayDropsTheDay() {
+    RollupStore store = new RollupStore(new JsonCodec(), dir);
+    store.write(monthFile, BEFORE, RollupStore.of(List.of(design, coding)));
+
+    store.update(monthFile, BEFORE, AFTER, List.of(coding), List.of());
+
+    TreeMap<LocalDate, DayRollup> days = store.read(monthFile, AFTER);
+    assertEquals(List.of(LocalDate.of(2025, 1, 2)), List.copyOf(days.keySet()));
+  }
+
+  @Test
+  void updateDiscardsAStaleRollup() {
+    RollupStore store = new RollupStore(new JsonCodec(), dir);
+    store.write(monthFile, AFTER, RollupStore.of(List.of(design)));
+
+    store.update(monthFile, BEFORE, AFTER, List.of(), List.of(review));
+
+    assertFalse(Files.exists(store.rollupFor(monthFile)));
+  }
+
+  @Test
+  void ignoresATornRollupFile() throws IOException {
+    RollupStore store = new RollupStore(new JsonCodec(), dir);
+    store.write(monthFile, BEFORE, RollupStore.of(List.of(design, review, coding)));
+    Path file = store.rollupFor(monthFile);
+    byte[] bytes = Files.readAllBytes(file);
+    assertNotNull(store.read(monthFile, BEFORE));
+
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+
+    assertNull(store.read(monthFile, BEFORE));
+  }
+
+  /** Flattens the {@code [minutes, entries]} arrays so rollups can be compared by value. */
+  private static Map<LocalDate, List<Map<String, List<Integer>>>> totals(
+      TreeMap<LocalDate, DayRollup> days) {
+    Map<LocalDate, List<Map<String, List<Integer>>>> flat = new LinkedHashMap<>();
+    days.forEach(
+        (day, rollup) ->
+            flat.put(
+                day,
+                List.of(
+                    flatten(rollup.types()),
+                    flatten(rollup.tagsSplit()),
+                    flatten(rollup.tagsFull()),
+                    flatten(rollup.metaTagsSplit()),
+                    flatten(rollup.metaTagsFull()))));
+    return flat;
+  }
+
+  private static Map<String, List<Integer>> flatten(Map<String, int[]> totals) {
+    Map<String, List<Integer>> flat = new TreeMap<>();
+    totals.forEach((name, total) -> flat.put(name, Arrays.stream(total).boxed().toList()));
+    return flat;
+  }
+
+  private static TimeEntry entry(
+      LocalDateTime start, int minutes, String type, Set<String> tags, Set<String> metaTags) {
+    return new TimeEntry(UUID.randomUUID(), start, minutes, type, type, tags, metaTags);
+  }
+}
@@ -0,0 +1,191 @@
+package io.ludovicianul.timi.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TermIndexTest {
+  private static final String JANUARY = "2025-01.json";
+  private static final String FEBRUARY = "2025-02.json";
+  private static final long[] SOURCE = {120, 1_700_000_000_000L, -1, -1};
+
+  @TempDir Path dir;
+
+  private final TimeEntry apiWork = entry("Coding", Set.of("API"), Set.of("q1"));
+  private final TimeEntry uxWork = entry("design", Set.of("ux"), Set.of());
+
+  @Test
+  void baseRoundTrips() {
+    new TermIndex(dir)
+        .replaceAll(Map.of(JANUARY, List.of(apiWork), FEBRUARY, List.of(uxWork)), Map.of());
+
+    TermIndex reloaded = new TermIndex(dir);
+
+    assertEquals(Set.of(JANUARY), reloaded.months(TermFilter.tag("api")));
+    assertEquals(Set.of(JANUARY), reloaded.months(new TermFilter("coding", "Api", "Q1")));
+    assertEquals(Set.of(), reloaded.months(new TermFilter("design", "api", null)));
+    assertEquals(Set.of(FEBRUARY), reloaded.months(TermFilter.type("DESIGN")));
+    assertEquals(null, reloaded.months(TermFilter.NONE));
+    assertFalse(reloaded.isEmpty());
+  }
+
+  @Test
+  void updatesOnlyAppendAndAreSeenAfterAReload() throws IOException {
+    new TermIndex(dir).replaceAll(Map.of(JANUARY, List.of(apiWork)), Map.of());
+    TermIndex index = new TermIndex(dir);
+    byte[] base = Files.readAllBytes(dir.resolve("terms.bin"));
+    Files.writeString(dir.resolve("terms.bin"), "not an index");
+
+    // Neither write reads the (now unreadable) base.
+    index.update(JANUARY, SOURCE, List.of(apiWork), List.of(uxWork));
+    index.replaceMonth(FEBRUARY, SOURCE, List.of(apiWork));
+    assertThrows(RuntimeException.class, () -> index.months(TermFilter.tag("api")));
+
+    Files.write(dir.resolve("terms.bin"), base);
+    TermIndex reloaded = new TermIndex(dir);
+    assertEquals(Set.of(FEBRUARY), reloaded.months(TermFilter.tag("api")));
+    assertEquals(Set.of(JANUARY), reloaded.months(TermFilter.tag("ux")));
+  }
+
+  @Test
+  void refreshPicksUpWritesFromAnotherProcess() {
+    new TermIndex(dir).replaceAll(Map.of(JANUARY, List.of(apiWork)), Map.of());
+    TermIndex daemon = new TermIndex(dir);
+    assertEquals(Set.of(), daemon.months(TermFilter.tag("ux")));
+
+    new TermIndex(dir).update(FEBRUARY, SOURCE, List.of(), List.of(uxWork));
+    daemon.refresh();
+
+    assertEquals(Set.of(FEBRUARY), daemon.months(TermFilter.tag("ux")));
+  }
+
+  @Test
+  void replaceMonthResetsTheMonthInMemoryAndOnReplay() {
+    new TermIndex(dir).replaceAll(Map.of(JANUARY, List.of(apiWork, uxWork)), Map.of());
+    TermIndex index = new TermIndex(dir);
+    assertEquals(Set.of(JANUARY), index.months(TermFilter.tag("api")));
+
+    index.replaceMonth(JANUARY, SOURCE, List.of(uxWork));
+
+    assertEquals(Set.of(), index.months(TermFilter.tag("api")));
+    assertEquals(Set.of(JANUARY), index.months(TermFilter.tag("ux")));
+    assertEquals(Set.of(), new TermIndex(dir).months(TermFilter.tag("api")));
+    assertEquals(
+        Set.of(),
+        new TermIndex(dir).staleMonths(Map.of(JANUARY, List.of(uxWork))),
+        "index matches the month after the reset");
+  }
+
+  @Test
+  void compactsTheLogIntoTheBase() throws IOException {
+    new TermIndex(dir).replaceAll(Map.of(), Map.of());
+    TermIndex index = new TermIndex(dir);
+    for (int i = 0; i < 2000; i++) {
+      TimeEntry added = entry("type" + i, Set.of("tag" + i), Set.of());
+      index.update(JANUARY, SOURCE, List.of(), List.of(added));
+    }
+
+    Path log = dir.resolve("terms.log");
+    assertTrue(!Files.exists(log) || Files.size(log) < 64 * 1024);
+    TermIndex reloaded = new TermIndex(dir);
+    assertEquals(Set.of(JANUARY), reloaded.months(TermFilter.tag("tag0")));
+    assertEquals(Set.of(JANUARY), reloaded.months(TermFilter.tag("tag1999")));
+  }
+
+  @Test
+  void appendAfterATornLineKeepsBothSides() throws IOException {
+    new TermIndex(dir).replaceAll(Map.of(), Map.of());
+    new TermIndex(dir).update(JANUARY, SOURCE, List.of(), List.of(apiWork));
+    Files.writeString(dir.resolve("terms.log"), "2025-02.json 1 t:u", StandardOpenOption.APPEND);
+
+    new TermIndex(dir).update(FEBRUARY, SOURCE, List.of(), List.of(uxWork));
+
+    TermIndex reloaded = new TermIndex(dir);
+    assertEquals(Set.of(JANUARY), reloaded.months(TermFilter.tag("api")));
+    assertEquals(Set.of(FEBRUARY), reloaded.months(TermFilter.tag("ux")));
+    assertEquals(Set.of(), reloaded.months(TermFilter.tag("u")));
+  }
+
+  @Test
+  void failsOnACorruptCompleteLine() throws IOException {
+    new TermIndex(dir).replaceAll(Map.of(), Map.of());
+    Files.writeString(dir.resolve("terms.log"), "2025-01.json x t:api\n");
+
+    assertThrows(RuntimeException.class, () -> new TermIndex(dir).isEmpty());
+  }
+
+  @Test
+  void reportsStaleMonths() {
+    new TermIndex(dir)
+        .replaceAll(Map.of(JANUARY, List.of(apiWork), FEBRUARY, List.of(uxWork)), Map.of());
+
+    Set<String> stale =
+        new TermIndex(dir).staleMonths(Map.of(JANUARY, List.of(apiWork), FEBRUARY, List.of()));
+
+    assertEquals(Set.of(FEBRUARY), stale);
+  }
+
+  @Test
+  void reportsMonthsWhoseFilesChangedSinceTheyWereIndexed() {
+    long[] edited = {140, 1_700_000_060_000L, -1, -1};
+    long[] absent = {-1, -1, -1, -1};
+    new TermIndex(dir)
+        .replaceAll(
+            Map.of(JANUARY, List.of(apiWork), FEBRUARY, List.of(uxWork)),
+            Map.of(JANUARY, SOURCE, FEBRUARY, SOURCE));
+
+    assertEquals(
+        Set.of(), new TermIndex(dir).changedMonths(Map.of(JANUARY, SOURCE, FEBRUARY, SOURCE)));
+    assertEquals(
+        Set.of(JANUARY, FEBRUARY),
+        new TermIndex(dir).changedMonths(Map.of(JANUARY, edited)),
+        "an edited month and a deleted one");
+    assertEquals(
+        Set.of("2025-03.json"),
+        new TermIndex(dir)
+            .changedMonths(Map.of(JANUARY, SOURCE, FEBRUARY, SOURCE, "2025-03.json", SOURCE)),
+        "a month the index has never seen");
+
+    // Signatures written to the log are replayed, and a month indexed as absent stays settled.
+    new TermIndex(dir).update(JANUARY, edited, List.of(apiWork), List.of(uxWork));
+    new TermIndex(dir).replaceMonth(FEBRUARY, absent, List.of());
+    assertEquals(Set.of(), new TermIndex(dir).changedMonths(Map.of(JANUARY, edited)));
+  }
+
+  @Test
+  void anOlderBaseReportsEveryMonthAsChanged() throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(Files.newOutputStream(dir.resolve("terms.bin")))) {
+      out.writeInt(0x54544931); // "TTI1": the postings without the signatures
+      out.writeInt(1);
+      out.writeUTF("t:api");
+      out.writeInt(1);
+      out.writeShort(EntryIndex.monthOrdinal(JANUARY));
+      out.writeInt(1);
+    }
+
+    TermIndex index = new TermIndex(dir);
+
+    assertEquals(Set.of(JANUARY), index.months(TermFilter.tag("api")));
+    assertEquals(Set.of(JANUARY), index.changedMonths(Map.of(JANUARY, SOURCE)));
+  }
+
+  private static TimeEntry entry(String type, Set<String> tags, Set<String> metaTags) {
+    return new TimeEntry(
+        UUID.randomUUID(), LocalDateTime.of(2025, 1, 1, 9, 0), 30, "note", type, tags, metaTags);
+  }
+}